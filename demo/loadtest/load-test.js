@@ -0,0 +1,33 @@
+// k6 scenario for the threading comparison, see run-load-test.sh.
+// Every virtual user is one open connection looping over the read paths that hit MySQL
+// (feed, comment thread, movie recommendations, leaderboard) without think time.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MAX_USER_ID = parseInt(__ENV.MAX_USER_ID || '100');
+const MAX_MOVIE_ID = parseInt(__ENV.MAX_MOVIE_ID || '100');
+const MAX_RECOMMENDATION_ID = parseInt(__ENV.MAX_RECOMMENDATION_ID || '100');
+
+export const options = {
+  scenarios: {
+    connections: {
+      executor: 'constant-vus',
+      vus: parseInt(__ENV.VUS || '1000'),
+      duration: __ENV.DURATION || '60s',
+    },
+  },
+  summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+};
+
+const pick = (max) => 1 + Math.floor(Math.random() * max);
+
+export default function () {
+  const responses = http.batch([
+    ['GET', `${BASE_URL}/api/v1/recommendations/followed/${pick(MAX_USER_ID)}/feed?size=20`],
+    ['GET', `${BASE_URL}/api/v1/comments/recommendation/${pick(MAX_RECOMMENDATION_ID)}/thread?size=20`],
+    ['GET', `${BASE_URL}/api/v1/recommendations/movie/${pick(MAX_MOVIE_ID)}`],
+    ['GET', `${BASE_URL}/api/v1/recommendations/top?size=20`],
+  ]);
+  responses.forEach((response) => check(response, { 'status is 200': (r) => r.status === 200 }));
+}
@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request handling at 1k, 5k and 10k concurrent
+# connections. Both modes get the same Tomcat connection limits, Hikari pool, connection timeout
+# and task executor limit, so only the threading model differs.
+#
+# Needs JDK 21+, k6 and jq, plus the MySQL database from application.properties with some data
+# (Documentation/MyDatabase.sql). Set MAX_USER_ID / MAX_MOVIE_ID / MAX_RECOMMENDATION_ID to the
+# id ranges present. Run on a machine other than the database for meaningful numbers.
+#
+# Usage (from demo/): loadtest/run-load-test.sh [duration per step, default 60s]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+DURATION=${1:-60s}
+CONNECTIONS=${CONNECTIONS:-"1000 5000 10000"}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+RESULTS=loadtest/results/$(date +%Y%m%d-%H%M%S)
+mkdir -p "$RESULTS"
+
+# 10k client sockets plus 10k server sockets
+ulimit -n 65536
+
+./mvnw -q -DskipTests package
+JAR=$(ls target/demo-*.jar | grep -v plain | head -1)
+
+# Passed to both runs so neither profile can tune one mode differently
+SETTINGS=(
+  --server.tomcat.max-connections=20000 --server.tomcat.accept-count=2000
+  --spring.datasource.hikari.maximum-pool-size=40 --spring.datasource.hikari.minimum-idle=40
+  --spring.datasource.hikari.connection-timeout=5000
+  --spring.task.execution.pool.core-size=16 --spring.task.execution.simple.concurrency-limit=16
+)
+
+for mode in platform virtual; do
+  profile=default
+  [ "$mode" = virtual ] && profile=virtual
+  java -jar "$JAR" --spring.profiles.active=$profile "${SETTINGS[@]}" \
+      > "$RESULTS/$mode-app.log" 2>&1 &
+  app=$!
+  until curl -sf "$BASE_URL/actuator/health" > /dev/null; do sleep 1; done
+
+  for vus in $CONNECTIONS; do
+    echo "== $mode threads, $vus connections"
+    k6 run --quiet -e BASE_URL="$BASE_URL" -e VUS="$vus" -e DURATION="$DURATION" \
+        -e MAX_USER_ID="${MAX_USER_ID:-100}" -e MAX_MOVIE_ID="${MAX_MOVIE_ID:-100}" \
+        -e MAX_RECOMMENDATION_ID="${MAX_RECOMMENDATION_ID:-100}" \
+        --summary-export "$RESULTS/$mode-$vus.json" loadtest/load-test.js
+  done
+
+  kill "$app"
+  wait "$app" || true
+done
+
+{
+  printf '%-9s %6s %10s %9s %9s %9s %8s\n' mode conns req/s p50_ms p95_ms p99_ms errors
+  for mode in platform virtual; do
+    for vus in $CONNECTIONS; do
+      jq -r --arg mode "$mode" --arg vus "$vus" '[$mode, $vus,
+          (.metrics.http_reqs.rate | floor),
+          (.metrics.http_req_duration.med | floor),
+          (.metrics.http_req_duration["p(95)"] | floor),
+          (.metrics.http_req_duration["p(99)"] | floor),
+          ((.metrics.http_req_failed.value * 100 | floor | tostring) + "%")] | @tsv' \
+          "$RESULTS/$mode-$vus.json"
+    done
+  done | awk -F'\t' '{ printf "%-9s %6s %10s %9s %9s %9s %8s\n", $1, $2, $3, $4, $5, $6, $7 }'
+} | tee "$RESULTS/summary.txt"
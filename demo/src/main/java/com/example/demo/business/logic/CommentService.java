@@ -4,34 +4,47 @@ import com.example.demo.data.access.CommentRepository;
 import com.example.demo.data.access.RecommendationRepository;
 import com.example.demo.data.access.UserRepository;
 import com.example.demo.dto.CommentDTO;
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.KeysetCursor;
 import com.example.demo.dto.UserDTO;
 import jakarta.transaction.Transactional;
 import com.example.demo.model.Comment;
 import com.example.demo.model.Recommendation;
 import com.example.demo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class CommentService {
+    private static final int DEFAULT_THREAD_PAGE_SIZE = 20;
+    private static final int MAX_THREAD_PAGE_SIZE = 100;
+
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
     private final RecommendationRepository recommendationRepository;
     private final UserService userService;
+    private final SearchService searchService;
 
     @Autowired
     public CommentService(CommentRepository commentRepository,
                           UserRepository userRepository,
                           RecommendationRepository recommendationRepository,
-                          UserService userService) {
+                          UserService userService,
+                          SearchService searchService) {
         this.commentRepository = commentRepository;
         this.userRepository = userRepository;
         this.recommendationRepository = recommendationRepository;
         this.userService = userService;
+        this.searchService = searchService;
     }
 
     @Transactional
@@ -53,38 +66,97 @@ public class CommentService {
         comment.setCreatedAt(LocalDate.now());
 
         Comment savedComment = commentRepository.save(comment);
+        userRepository.adjustCommentCount(userId, 1);
+        recommendationRepository.adjustCommentCount(recommendationId, 1);
+        searchService.indexComment(savedComment);
         return convertToDTO(savedComment);
     }
 
     public List<CommentDTO> findByRecommendationId(Integer recommendationId) {
-        return commentRepository.findByRecommendationIdOrderByCreatedAtDesc(recommendationId)
-                .stream()
-                .map(this::convertToDTO)
+        return convertToDTOs(commentRepository.findByRecommendationIdOrderByCreatedAtDesc(recommendationId));
+    }
+
+    // Newest comments first; pass the returned nextCursor to continue below the last one
+    public CursorPageDTO<CommentDTO> getThread(Integer recommendationId, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_THREAD_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_THREAD_PAGE_SIZE);
+
+        // Fetch one extra row to find out whether another page exists
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<CommentRepository.ThreadComment> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = commentRepository.findThread(recommendationId, limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            rows = commentRepository.findThreadAfter(recommendationId, position.createdAt(), position.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<CommentRepository.ThreadComment> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            CommentRepository.ThreadComment last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        List<CommentDTO> items = page.stream()
+                .map(row -> toThreadDTO(recommendationId, row))
                 .collect(Collectors.toList());
+        return new CursorPageDTO<>(items, nextCursor);
     }
 
     public List<CommentDTO> findByUserId(Integer userId) {
-        return commentRepository.findByUserId(userId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(commentRepository.findByUserId(userId));
     }
 
     public Integer getCommentCountForRecommendation(Integer recommendationId) {
-        return commentRepository.countByRecommendationId(recommendationId);
+        // Same counter the recommendation DTOs use, so the two never disagree
+        return recommendationRepository.findCommentCountById(recommendationId).orElse(0);
     }
 
     private CommentDTO convertToDTO(Comment comment) {
+        return convertToDTO(comment, userService.convertToDTO(comment.getUser()));
+    }
+
+    // Converts all authors in one batch instead of once per comment
+    private List<CommentDTO> convertToDTOs(List<Comment> comments) {
+        Map<Integer, User> authors = new LinkedHashMap<>();
+        for (Comment comment : comments) {
+            authors.putIfAbsent(comment.getUser().getId(), comment.getUser());
+        }
+        Map<Integer, UserDTO> authorDTOs = userService.convertToDTOs(new ArrayList<>(authors.values()))
+                .stream()
+                .collect(Collectors.toMap(UserDTO::getId, Function.identity()));
+
+        return comments.stream()
+                .map(comment -> convertToDTO(comment, authorDTOs.get(comment.getUser().getId())))
+                .collect(Collectors.toList());
+    }
+
+    // Threads only label the author, so none of the author's id lists are loaded
+    private CommentDTO toThreadDTO(Integer recommendationId, CommentRepository.ThreadComment row) {
+        UserDTO author = new UserDTO();
+        author.setId(row.getAuthorId());
+        author.setUsername(row.getAuthorUsername());
+        author.setForename(row.getAuthorForename());
+        author.setSurename(row.getAuthorSurename());
+
+        CommentDTO dto = new CommentDTO();
+        dto.setId(row.getId());
+        dto.setContent(row.getContent());
+        dto.setCreatedAt(row.getCreatedAt());
+        dto.setRecommendationId(recommendationId);
+        dto.setUser(author);
+        return dto;
+    }
+
+    private CommentDTO convertToDTO(Comment comment, UserDTO userDTO) {
         CommentDTO dto = new CommentDTO();
         dto.setId(comment.getId());
         dto.setContent(comment.getContent());
         dto.setCreatedAt(comment.getCreatedAt());
         dto.setRecommendationId(comment.getRecommendation().getId());
-
-        // Convert user to UserDTO using the existing UserService
-        UserDTO userDTO = userService.convertToDTO(comment.getUser());
         dto.setUser(userDTO);
-
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.example.demo.business.logic;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Immutable follow graph in compressed sparse row form, indexed directly by user id. Each
+// direction is an offsets array (one int per user id) and one array of neighbour ids sorted
+// per user, so memory is 8 bytes per user id plus 8 bytes per edge. Lookups are a binary
+// search in one user's slice and neighbour pages are copies out of it.
+public class FollowGraph {
+    private static final int[] NONE = new int[0];
+
+    private final int[] followingOffsets;
+    private final int[] following;
+    private final int[] followerOffsets;
+    private final int[] followers;
+
+    private FollowGraph(int[] followingOffsets, int[] following, int[] followerOffsets, int[] followers) {
+        this.followingOffsets = followingOffsets;
+        this.following = following;
+        this.followerOffsets = followerOffsets;
+        this.followers = followers;
+    }
+
+    public static FollowGraph empty() {
+        return build(NONE, NONE, 0);
+    }
+
+    // Edge i is followerIds[i] -> followedIds[i]; edges must be distinct
+    public static FollowGraph build(int[] followerIds, int[] followedIds, int edgeCount) {
+        int maxId = -1;
+        for (int i = 0; i < edgeCount; i++) {
+            maxId = Math.max(maxId, Math.max(followerIds[i], followedIds[i]));
+        }
+        int[] followingOffsets = new int[maxId + 2];
+        int[] followerOffsets = new int[maxId + 2];
+        int[] following = new int[edgeCount];
+        int[] followers = new int[edgeCount];
+        fill(followerIds, followedIds, edgeCount, followingOffsets, following);
+        fill(followedIds, followerIds, edgeCount, followerOffsets, followers);
+        return new FollowGraph(followingOffsets, following, followerOffsets, followers);
+    }
+
+    // Counting sort of the edges by source, then each source's targets sorted
+    private static void fill(int[] sources, int[] targets, int edgeCount, int[] offsets, int[] adjacency) {
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int i = 0; i < edgeCount; i++) {
+            adjacency[next[sources[i]]++] = targets[i];
+        }
+        for (int source = 0; source < offsets.length - 1; source++) {
+            Arrays.sort(adjacency, offsets[source], offsets[source + 1]);
+        }
+    }
+
+    // A new graph with the changes applied; true adds the edge (follower << 32 | followed), false removes it
+    public FollowGraph with(Map<Long, Boolean> changes) {
+        int capacity = following.length + changes.size();
+        int[] followerIds = new int[capacity];
+        int[] followedIds = new int[capacity];
+        int count = 0;
+        for (int follower = 0; follower < followingOffsets.length - 1; follower++) {
+            for (int i = followingOffsets[follower]; i < followingOffsets[follower + 1]; i++) {
+                if (!changes.containsKey(edge(follower, following[i]))) {
+                    followerIds[count] = follower;
+                    followedIds[count] = following[i];
+                    count++;
+                }
+            }
+        }
+        for (Map.Entry<Long, Boolean> change : changes.entrySet()) {
+            if (change.getValue()) {
+                followerIds[count] = (int) (change.getKey() >>> 32);
+                followedIds[count] = (int) (long) change.getKey();
+                count++;
+            }
+        }
+        return build(followerIds, followedIds, count);
+    }
+
+    public static long edge(int followerId, int followedId) {
+        return ((long) followerId << 32) | (followedId & 0xFFFFFFFFL);
+    }
+
+    public boolean isFollowing(int followerId, int followedId) {
+        if (!contains(followingOffsets, followerId)) {
+            return false;
+        }
+        return Arrays.binarySearch(following, followingOffsets[followerId], followingOffsets[followerId + 1],
+                followedId) >= 0;
+    }
+
+    public int followingCount(int userId) {
+        return degree(followingOffsets, userId);
+    }
+
+    public int followerCount(int userId) {
+        return degree(followerOffsets, userId);
+    }
+
+    // Ids the user follows, ascending
+    public int[] following(int userId, int offset, int limit) {
+        return slice(followingOffsets, following, userId, offset, limit);
+    }
+
+    // Ids following the user, ascending
+    public int[] followers(int userId, int offset, int limit) {
+        return slice(followerOffsets, followers, userId, offset, limit);
+    }
+
+    // A page of the user's neighbours (following when outgoing, else followers) with changes applied:
+    // added holds ids not in this graph, removed ids that are, both ascending. Walks the slice only
+    // up to the end of the page.
+    public int[] page(int userId, boolean outgoing, int[] added, int[] removed, int offset, int limit) {
+        int[] offsets = outgoing ? followingOffsets : followerOffsets;
+        int[] adjacency = outgoing ? following : followers;
+        int from = contains(offsets, userId) ? offsets[userId] : 0;
+        int to = contains(offsets, userId) ? offsets[userId + 1] : 0;
+        int total = to - from + added.length - removed.length;
+        if (offset >= total) {
+            return NONE;
+        }
+        int[] page = new int[Math.min(limit, total - offset)];
+        int position = 0;
+        int count = 0;
+        for (int i = from, a = 0, r = 0; count < page.length; ) {
+            int next;
+            if (a < added.length && (i == to || added[a] < adjacency[i])) {
+                next = added[a++];
+            } else {
+                next = adjacency[i++];
+                while (r < removed.length && removed[r] < next) {
+                    r++;
+                }
+                if (r < removed.length && removed[r] == next) {
+                    continue;
+                }
+            }
+            if (position++ >= offset) {
+                page[count++] = next;
+            }
+        }
+        return page;
+    }
+
+    public int edgeCount() {
+        return following.length;
+    }
+
+    private static boolean contains(int[] offsets, int userId) {
+        return userId >= 0 && userId < offsets.length - 1;
+    }
+
+    private static int degree(int[] offsets, int userId) {
+        return contains(offsets, userId) ? offsets[userId + 1] - offsets[userId] : 0;
+    }
+
+    private static int[] slice(int[] offsets, int[] adjacency, int userId, int offset, int limit) {
+        int degree = degree(offsets, userId);
+        if (offset >= degree) {
+            return NONE;
+        }
+        int from = offsets[userId] + offset;
+        return Arrays.copyOfRange(adjacency, from, from + Math.min(limit, degree - offset));
+    }
+}
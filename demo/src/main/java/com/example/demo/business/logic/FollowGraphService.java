@@ -0,0 +1,261 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.FollowedUserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Who-follows-whom answered from memory: an immutable FollowGraph snapshot loaded from
+// followed_user, plus an overlay of follows and unfollows since the snapshot was built.
+// Lookups consult the overlay first; once it grows past OVERLAY_LIMIT it is folded into
+// a new snapshot in the background. Changes apply when their transaction commits, and the
+// graph is only kept in step with writes made through this instance, so it serves reads;
+// whether a follow exists for a write is decided by the followed_user table. An edge's overlay
+// entry and its entries by user are only written together, under the edge's lock.
+@Service
+public class FollowGraphService {
+    private static final int OVERLAY_LIMIT = 1024;
+    private static final int LOAD_CHUNK = 50_000;
+    private static final int LOCK_STRIPES = 64;
+    private static final int[] NONE = new int[0];
+
+    // Overlay changes relative to the snapshot, split into ids that are not in it and ids that are
+    private record Delta(int[] added, int[] removed) {
+        static final Delta EMPTY = new Delta(NONE, NONE);
+    }
+
+    private final FollowedUserRepository followedUserRepository;
+    private final TaskExecutor taskExecutor;
+
+    // Edge key (see FollowGraph.edge) to true for followed, false for unfollowed
+    private final Map<Long, Boolean> overlay = new ConcurrentHashMap<>();
+    // The same changes by user, so one user's lookups never scan the whole overlay. Inner maps
+    // are immutable and replaced inside compute(), which keeps each user's entry atomic.
+    private final Map<Integer, Map<Integer, Boolean>> followingChanges = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<Integer, Boolean>> followerChanges = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ReentrantLock[] edgeLocks = new ReentrantLock[LOCK_STRIPES];
+    private volatile FollowGraph snapshot = FollowGraph.empty();
+
+    @Autowired
+    public FollowGraphService(FollowedUserRepository followedUserRepository,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.followedUserRepository = followedUserRepository;
+        this.taskExecutor = taskExecutor;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            edgeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Follow checks depend on the graph, so it is loaded before the web server starts accepting requests
+    @PostConstruct
+    public void load() {
+        int[] followerIds = new int[LOAD_CHUNK];
+        int[] followedIds = new int[LOAD_CHUNK];
+        int count = 0;
+        List<FollowedUserRepository.FollowEdge> chunk = followedUserRepository.findEdges(PageRequest.of(0, LOAD_CHUNK));
+        while (!chunk.isEmpty()) {
+            if (count + chunk.size() > followerIds.length) {
+                followerIds = Arrays.copyOf(followerIds, followerIds.length * 2);
+                followedIds = Arrays.copyOf(followedIds, followedIds.length * 2);
+            }
+            for (FollowedUserRepository.FollowEdge edge : chunk) {
+                followerIds[count] = edge.getFollowerId();
+                followedIds[count] = edge.getFollowedId();
+                count++;
+            }
+            if (chunk.size() < LOAD_CHUNK) {
+                break;
+            }
+            FollowedUserRepository.FollowEdge last = chunk.get(chunk.size() - 1);
+            chunk = followedUserRepository.findEdgesAfter(last.getFollowerId(), last.getFollowedId(),
+                    PageRequest.of(0, LOAD_CHUNK));
+        }
+        fold(FollowGraph.build(followerIds, followedIds, count));
+        System.out.println("Follow graph loaded with " + snapshot.edgeCount() + " edges");
+    }
+
+    public void onFollow(Integer followerId, Integer followedId) {
+        afterCommit(() -> refresh(followerId, followedId));
+    }
+
+    public void onUnfollow(Integer followerId, Integer followedId) {
+        afterCommit(() -> refresh(followerId, followedId));
+    }
+
+    public boolean isFollowing(Integer followerId, Integer followedId) {
+        Boolean changed = overlay.get(FollowGraph.edge(followerId, followedId));
+        return changed != null ? changed : snapshot.isFollowing(followerId, followedId);
+    }
+
+    public int followingCount(Integer userId) {
+        // Changes are read before the snapshot; a fold in between only repeats them in the snapshot
+        Map<Integer, Boolean> changes = followingChanges.getOrDefault(userId, Map.of());
+        FollowGraph graph = snapshot;
+        Delta delta = delta(graph, userId, true, changes);
+        return graph.followingCount(userId) + delta.added().length - delta.removed().length;
+    }
+
+    public int followerCount(Integer userId) {
+        Map<Integer, Boolean> changes = followerChanges.getOrDefault(userId, Map.of());
+        FollowGraph graph = snapshot;
+        Delta delta = delta(graph, userId, false, changes);
+        return graph.followerCount(userId) + delta.added().length - delta.removed().length;
+    }
+
+    // Ids the user follows, ascending
+    public int[] following(Integer userId) {
+        return followingPage(userId, 0, Integer.MAX_VALUE);
+    }
+
+    // Ids following the user, ascending
+    public int[] followers(Integer userId) {
+        return followersPage(userId, 0, Integer.MAX_VALUE);
+    }
+
+    public int[] followingPage(Integer userId, int offset, int limit) {
+        Map<Integer, Boolean> changes = followingChanges.getOrDefault(userId, Map.of());
+        FollowGraph graph = snapshot;
+        Delta delta = delta(graph, userId, true, changes);
+        return graph.page(userId, true, delta.added(), delta.removed(), offset, limit);
+    }
+
+    public int[] followersPage(Integer userId, int offset, int limit) {
+        Map<Integer, Boolean> changes = followerChanges.getOrDefault(userId, Map.of());
+        FollowGraph graph = snapshot;
+        Delta delta = delta(graph, userId, false, changes);
+        return graph.page(userId, false, delta.added(), delta.removed(), offset, limit);
+    }
+
+    // Users who follow the user back, ascending; walks the shorter side and looks up the other
+    public int[] mutuals(Integer userId) {
+        boolean fromFollowing = followingCount(userId) <= followerCount(userId);
+        int[] candidates = fromFollowing ? following(userId) : followers(userId);
+        int[] mutual = new int[candidates.length];
+        int count = 0;
+        for (int candidate : candidates) {
+            if (fromFollowing ? isFollowing(candidate, userId) : isFollowing(userId, candidate)) {
+                mutual[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(mutual, count);
+    }
+
+    private static Delta delta(FollowGraph graph, int userId, boolean outgoing, Map<Integer, Boolean> changes) {
+        if (changes.isEmpty()) {
+            return Delta.EMPTY;
+        }
+        int[] added = new int[changes.size()];
+        int[] removed = new int[changes.size()];
+        int addedCount = 0;
+        int removedCount = 0;
+        for (Map.Entry<Integer, Boolean> change : changes.entrySet()) {
+            int neighbour = change.getKey();
+            boolean inGraph = outgoing ? graph.isFollowing(userId, neighbour) : graph.isFollowing(neighbour, userId);
+            if (change.getValue() && !inGraph) {
+                added[addedCount++] = neighbour;
+            } else if (!change.getValue() && inGraph) {
+                removed[removedCount++] = neighbour;
+            }
+        }
+        added = Arrays.copyOf(added, addedCount);
+        removed = Arrays.copyOf(removed, removedCount);
+        Arrays.sort(added);
+        Arrays.sort(removed);
+        return new Delta(added, removed);
+    }
+
+    // Follows and unfollows of one edge commit in row lock order, but their afterCommit callbacks
+    // can run the other way round, so the edge takes the state read back from the table rather than
+    // the one its change wrote. Each read happens after its own commit and under the edge's lock,
+    // so whichever refresh runs last applies the state of the last commit.
+    private void refresh(int followerId, int followedId) {
+        long edge = FollowGraph.edge(followerId, followedId);
+        ReentrantLock lock = lock(edge);
+        lock.lock();
+        try {
+            boolean followed = followedUserRepository.isFollowing(followerId, followedId);
+            overlay.put(edge, followed);
+            followingChanges.compute(followerId, (key, changes) -> with(changes, followedId, followed));
+            followerChanges.compute(followedId, (key, changes) -> with(changes, followerId, followed));
+        } finally {
+            lock.unlock();
+        }
+        if (overlay.size() > OVERLAY_LIMIT && rebuilding.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                try {
+                    fold(snapshot);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    // Makes base plus the current overlay the snapshot, then drops the folded changes. A change made
+    // meanwhile stays, even when it is a later change of the same edge, since only equal values go.
+    private void fold(FollowGraph base) {
+        Map<Long, Boolean> folded = Map.copyOf(overlay);
+        snapshot = base.with(folded);
+        folded.forEach((edge, followed) -> {
+            int followerId = (int) (edge >>> 32);
+            int followedId = (int) (long) edge;
+            ReentrantLock lock = lock(edge);
+            lock.lock();
+            try {
+                if (overlay.remove(edge, followed)) {
+                    followingChanges.computeIfPresent(followerId, (key, changes) -> without(changes, followedId, followed));
+                    followerChanges.computeIfPresent(followedId, (key, changes) -> without(changes, followerId, followed));
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private ReentrantLock lock(long edge) {
+        return edgeLocks[Math.floorMod(Long.hashCode(edge), LOCK_STRIPES)];
+    }
+
+    private static Map<Integer, Boolean> with(Map<Integer, Boolean> changes, int neighbour, boolean followed) {
+        Map<Integer, Boolean> updated = new HashMap<>(changes == null ? Map.of() : changes);
+        updated.put(neighbour, followed);
+        return Map.copyOf(updated);
+    }
+
+    // Null (no entry) once nothing is left
+    private static Map<Integer, Boolean> without(Map<Integer, Boolean> changes, int neighbour, boolean followed) {
+        if (!Boolean.valueOf(followed).equals(changes.get(neighbour))) {
+            return changes;
+        }
+        Map<Integer, Boolean> updated = new HashMap<>(changes);
+        updated.remove(neighbour);
+        return updated.isEmpty() ? null : Map.copyOf(updated);
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.ConversationRepository;
+import com.example.demo.data.access.MessageArchive;
+import com.example.demo.data.access.MessageRepository;
+import com.example.demo.model.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Moves chat messages out of the message table into the MessageArchive a month at a time, once the
+// whole month is older than app.messages.archive.age-days, so the table and its indexes only hold
+// recent history. The month boundary is turned into an id boundary, which keeps every archived id
+// below every id left in the table. Archived messages count as read.
+@Service
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "jpa", matchIfMissing = true)
+public class MessageArchiver {
+    private static final int CHUNK_SIZE = 5000;
+
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageArchive archive;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int ageDays;
+
+    @Autowired
+    public MessageArchiver(MessageRepository messageRepository, ConversationRepository conversationRepository,
+                           MessageArchive archive, TransactionTemplate transactionTemplate,
+                           @Value("${app.messages.archive.enabled:false}") boolean enabled,
+                           @Value("${app.messages.archive.age-days:90}") int ageDays) {
+        this.messageRepository = messageRepository;
+        this.conversationRepository = conversationRepository;
+        this.archive = archive;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.ageDays = ageDays;
+    }
+
+    @Scheduled(cron = "${app.messages.archive.cron:0 30 3 * * *}")
+    public void archiveOldMonths() {
+        if (enabled) {
+            int archived = archiveBefore(YearMonth.from(LocalDate.now().minusDays(ageDays)));
+            if (archived > 0) {
+                System.out.println("Archived " + archived + " messages");
+            }
+        }
+    }
+
+    // Archives every message sent before the given month, returns how many were moved
+    public int archiveBefore(YearMonth month) {
+        // Rows a previous run archived but did not get to delete, once its files are all in place
+        try {
+            archive.completePublish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        purgeUpTo(archive.archivedThrough());
+
+        Integer boundaryId = messageRepository.findFirstIdSentFrom(month.atDay(1).atStartOfDay());
+        if (boundaryId == null) {
+            Integer maxId = messageRepository.findMaxId();
+            if (maxId == null) {
+                return 0;
+            }
+            boundaryId = maxId + 1;
+        }
+
+        Map<YearMonth, MessageArchive.SegmentWriter> segments = new TreeMap<>();
+        // (receiver, sender) of conversations whose unread count shrinks
+        Set<List<Integer>> unread = new HashSet<>();
+        int lastId = archive.archivedThrough();
+        int archived = 0;
+        try {
+            List<MessageRepository.ArchivableMessage> chunk;
+            do {
+                chunk = messageRepository.findArchivable(lastId, boundaryId, PageRequest.of(0, CHUNK_SIZE));
+                for (MessageRepository.ArchivableMessage message : chunk) {
+                    LocalDateTime sentAt = message.getSentAt();
+                    YearMonth sentIn = sentAt == null ? month.minusMonths(1) : YearMonth.from(sentAt);
+                    MessageArchive.SegmentWriter segment = segments.get(sentIn);
+                    if (segment == null) {
+                        segment = archive.newSegment(sentIn);
+                        segments.put(sentIn, segment);
+                    }
+                    segment.add(message.getConversationId(), message.getId(), message.getSenderId(),
+                            message.getReceiverId(), sentAt, message.getContent());
+                    if (!message.getIsRead()) {
+                        unread.add(List.of(message.getReceiverId(), message.getSenderId()));
+                    }
+                    lastId = message.getId();
+                }
+                archived += chunk.size();
+            } while (chunk.size() == CHUNK_SIZE);
+
+            if (archived == 0) {
+                return 0;
+            }
+            for (MessageArchive.SegmentWriter segment : segments.values()) {
+                segment.finish();
+            }
+            archive.publish(new ArrayList<>(segments.values()), lastId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (MessageArchive.SegmentWriter segment : segments.values()) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    System.out.println("Failed to clean up archive segment: " + e.getMessage());
+                }
+            }
+        }
+
+        purgeUpTo(lastId);
+        for (List<Integer> pair : unread) {
+            Integer receiverId = pair.get(0);
+            Integer senderId = pair.get(1);
+            transactionTemplate.executeWithoutResult(status -> conversationRepository.setUnreadCount(receiverId,
+                    senderId, messageRepository.countUnread(receiverId, Message.conversationId(receiverId, senderId))));
+        }
+        return archived;
+    }
+
+    private void purgeUpTo(int upToId) {
+        Integer minId = messageRepository.findMinId();
+        if (minId == null) {
+            return;
+        }
+        for (int afterId = minId - 1; afterId < upToId; afterId += CHUNK_SIZE) {
+            messageRepository.deleteRange(afterId, Math.min(afterId + CHUNK_SIZE, upToId));
+        }
+    }
+}
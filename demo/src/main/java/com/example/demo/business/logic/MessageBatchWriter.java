@@ -0,0 +1,255 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.ConversationRepository;
+import com.example.demo.data.access.MessageStore;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Optional high-throughput write path for chat messages. Senders hand messages to a
+// bounded queue and a single writer thread drains whatever has accumulated into one
+// transaction: one user lookup, one batched INSERT and one conversation upsert per
+// (user, peer) pair, so a burst costs a few round-trips instead of several per message.
+@Service
+public class MessageBatchWriter {
+    public enum Backpressure { BLOCK, REJECT }
+
+    // Back-pressure rather than a failed write: the message was not queued, or not written in time.
+    // The controller answers it with 503 so clients retry later.
+    public static class UnavailableException extends RuntimeException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+
+        public UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final Backpressure backpressure;
+    private final BlockingQueue<PendingMessage> queue;
+    private final MessageStore messageStore;
+    private final ConversationRepository conversationRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public MessageBatchWriter(@Value("${app.messages.write-mode:direct}") String writeMode,
+                              @Value("${app.messages.batch.queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.messages.batch.size:100}") int batchSize,
+                              @Value("${app.messages.batch.poll-interval-ms:50}") long pollIntervalMs,
+                              @Value("${app.messages.batch.backpressure:block}") String backpressure,
+                              MessageStore messageStore,
+                              ConversationRepository conversationRepository,
+                              UserRepository userRepository,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry) {
+        this.enabled = "batched".equalsIgnoreCase(writeMode);
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.backpressure = Backpressure.valueOf(backpressure.toUpperCase());
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.messageStore = messageStore;
+        this.conversationRepository = conversationRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSizes = DistributionSummary.builder("messages.batch.size")
+                .description("Messages written per flush")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Completes with the persisted message once its batch has committed
+    public CompletableFuture<Message> enqueue(Integer senderId, Integer receiverId, String content, LocalDateTime sentAt) {
+        PendingMessage pending = new PendingMessage(senderId, receiverId, content, sentAt, new CompletableFuture<>());
+        if (backpressure == Backpressure.REJECT) {
+            if (!queue.offer(pending)) {
+                throw new UnavailableException("Message queue is full");
+            }
+        } else {
+            try {
+                queue.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnavailableException("Interrupted while waiting for queue space", e);
+            }
+        }
+        return pending.saved();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled && writer == null) {
+            running = true;
+            writer = new Thread(this::drain, "message-writer");
+            writer.start();
+        }
+    }
+
+    // Flush what is already queued before the datasource goes away
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private void drain() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Group commit: everything that piled up during the previous flush goes together
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("Message batch writer failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingMessage> batch) {
+        batchSizes.record(batch.size());
+        List<Message> saved = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(batch, saved));
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), saved.get(i));
+            }
+        } catch (RuntimeException batchFailure) {
+            // Retry one by one so a single bad message cannot fail its whole batch. A store that
+            // writes outside the transaction keeps what it appended before the failure; appending
+            // those again would duplicate them under new ids, so they only get their conversations.
+            boolean transactional = messageStore.isTransactional();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingMessage pending = batch.get(i);
+                Message appended = !transactional && i < saved.size() ? saved.get(i) : null;
+                try {
+                    if (appended != null && appended.getId() != null) {
+                        transactionTemplate.executeWithoutResult(status -> upsertConversations(List.of(appended)));
+                        complete(pending, appended);
+                    } else {
+                        List<Message> single = new ArrayList<>(1);
+                        transactionTemplate.executeWithoutResult(status -> persist(List.of(pending), single));
+                        complete(pending, single.get(0));
+                    }
+                } catch (RuntimeException e) {
+                    pending.saved().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void complete(PendingMessage pending, Message message) {
+        if (message == null) {
+            pending.saved().completeExceptionally(new RuntimeException("Sender or receiver not found"));
+        } else {
+            pending.saved().complete(message);
+        }
+    }
+
+    // Adds the message for each pending entry to result, null where a participant does not exist.
+    // The messages are added before they are appended, so after a failure the ones with an id are stored.
+    private void persist(List<PendingMessage> batch, List<Message> result) {
+        Set<Integer> userIds = new HashSet<>();
+        for (PendingMessage pending : batch) {
+            userIds.add(pending.senderId());
+            userIds.add(pending.receiverId());
+        }
+        Map<Integer, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Message> toSave = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            User sender = users.get(pending.senderId());
+            User receiver = users.get(pending.receiverId());
+            if (sender == null || receiver == null) {
+                result.add(null);
+                continue;
+            }
+            Message message = new Message();
+            message.setSender(sender);
+            message.setReceiver(receiver);
+            message.setContent(pending.content());
+            message.setSentAt(pending.sentAt());
+            message.setRead(false);
+            result.add(message);
+            toSave.add(message);
+        }
+        messageStore.append(toSave);
+        upsertConversations(toSave);
+    }
+
+    // One upsert per conversation side and batch; the newest message wins and unread counts add up
+    private void upsertConversations(List<Message> messages) {
+        Map<List<Integer>, ConversationUpdate> updates = new LinkedHashMap<>();
+        for (Message message : messages) {
+            Integer senderId = message.getSender().getId();
+            Integer receiverId = message.getReceiver().getId();
+            updates.computeIfAbsent(List.of(senderId, receiverId), key -> new ConversationUpdate()).add(message, 0);
+            updates.computeIfAbsent(List.of(receiverId, senderId), key -> new ConversationUpdate()).add(message, 1);
+        }
+        updates.forEach((key, update) -> conversationRepository.upsert(key.get(0), key.get(1),
+                update.last.getId(), update.last.getSender().getId(), MessageService.preview(update.last.getContent()),
+                update.last.getSentAt(), update.unread));
+    }
+
+    private static class ConversationUpdate {
+        private Message last;
+        private int unread;
+
+        void add(Message message, int unreadDelta) {
+            if (last == null || message.getId() > last.getId()) {
+                last = message;
+            }
+            unread += unreadDelta;
+        }
+    }
+
+    private record PendingMessage(Integer senderId, Integer receiverId, String content,
+                                  LocalDateTime sentAt, CompletableFuture<Message> saved) {
+    }
+}
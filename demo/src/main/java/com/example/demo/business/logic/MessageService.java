@@ -1,73 +1,124 @@
 package com.example.demo.business.logic;
 
+import com.example.demo.data.access.ConversationRepository;
 import com.example.demo.data.access.MessageRepository;
+import com.example.demo.data.access.MessageStore;
 import com.example.demo.data.access.UserRepository;
+import com.example.demo.dto.ConversationDTO;
 import com.example.demo.dto.MessageDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.dto.UserDTO;
 import com.example.demo.model.Message;
 import com.example.demo.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import jakarta.transaction.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
 public class MessageService {
+    // Resolved per user by the broker, clients subscribe to /user/queue/messages
+    public static final String MESSAGE_QUEUE = "/queue/messages";
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_INBOX_SIZE = 20;
+    private static final int MAX_INBOX_SIZE = 100;
+    private static final int PREVIEW_LENGTH = 200;
+
     private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final ConversationRepository conversationRepository;
     private final UserRepository userRepository;
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final MessageBatchWriter batchWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean ackOnFlush;
+    private final long ackTimeoutMs;
+    private final Timer sendTimer;
 
     @Autowired
-    public MessageService(MessageRepository messageRepository, UserRepository userRepository) {
+    public MessageService(MessageRepository messageRepository, MessageStore messageStore,
+                          ConversationRepository conversationRepository,
+                          UserRepository userRepository, SimpMessageSendingOperations messagingTemplate,
+                          MessageBatchWriter batchWriter, TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.messages.batch.ack:enqueue}") String ack,
+                          @Value("${app.messages.batch.ack-timeout-ms:5000}") long ackTimeoutMs) {
         this.messageRepository = messageRepository;
+        this.messageStore = messageStore;
+        this.conversationRepository = conversationRepository;
         this.userRepository = userRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.batchWriter = batchWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.ackOnFlush = "flush".equalsIgnoreCase(ack);
+        this.ackTimeoutMs = ackTimeoutMs;
+        // Tagged by mode so direct and batched latency percentiles can be compared
+        this.sendTimer = Timer.builder("messages.send")
+                .description("Time until sendMessage acknowledges a message")
+                .tag("mode", batchWriter.isEnabled() ? "batched" : "direct")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
     }
 
     private MessageDTO convertToDTO(Message message) {
-        UserDTO senderDTO = new UserDTO(
-                message.getSender().getId(),
-                message.getSender().getUsername(),
-                null, // Don't include password
-                message.getSender().getEmail(),
-                message.getSender().getSurename(),
-                message.getSender().getForename(),
-                message.getSender().getRole(),
-                message.getSender().getDescription(),
-                message.getSender().getRegistrationDate(),
-                null, null, null, null // We don't need these lists for messages
-        );
-
-        UserDTO receiverDTO = new UserDTO(
-                message.getReceiver().getId(),
-                message.getReceiver().getUsername(),
-                null,
-                message.getReceiver().getEmail(),
-                message.getReceiver().getSurename(),
-                message.getReceiver().getForename(),
-                message.getReceiver().getRole(),
-                message.getReceiver().getDescription(),
-                message.getReceiver().getRegistrationDate(),
-                null, null, null, null
-        );
-
         return new MessageDTO(
                 message.getId(),
-                senderDTO,
-                receiverDTO,
+                toParticipant(message.getSender()),
+                toParticipant(message.getReceiver()),
                 message.getContent(),
                 message.getSentAt(),
                 message.isRead()
         );
     }
 
-    @Transactional
+    // Chat only needs to tell participants apart and label them
+    private UserDTO toParticipant(User user) {
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setUsername(user.getUsername());
+        dto.setForename(user.getForename());
+        dto.setSurename(user.getSurename());
+        return dto;
+    }
+
+    // In batched mode with ack-on-enqueue the returned message has no id yet; the
+    // persisted copy reaches both participants through the message queue
     public MessageDTO sendMessage(Integer senderId, Integer receiverId, String content) {
         if (content == null || content.trim().isEmpty()) {
             throw new IllegalArgumentException("Message content cannot be empty");
         }
+        long start = System.nanoTime();
+        try {
+            return batchWriter.isEnabled()
+                    ? sendBatched(senderId, receiverId, content.trim())
+                    : transactionTemplate.execute(status -> sendDirect(senderId, receiverId, content.trim()));
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
+    private MessageDTO sendDirect(Integer senderId, Integer receiverId, String content) {
         User sender = userRepository.findById(senderId)
                 .orElseThrow(() -> new RuntimeException("Sender not found"));
         User receiver = userRepository.findById(receiverId)
@@ -76,18 +127,118 @@ public class MessageService {
         Message message = new Message();
         message.setSender(sender);
         message.setReceiver(receiver);
-        message.setContent(content.trim());
+        message.setContent(content);
         message.setSentAt(LocalDateTime.now());
         message.setRead(false);
 
-        Message savedMessage = messageRepository.save(message);
-        return convertToDTO(savedMessage);
+        Message savedMessage = messageStore.append(List.of(message)).get(0);
+        String preview = preview(savedMessage.getContent());
+        conversationRepository.upsert(senderId, receiverId, savedMessage.getId(), senderId,
+                preview, savedMessage.getSentAt(), 0);
+        conversationRepository.upsert(receiverId, senderId, savedMessage.getId(), senderId,
+                preview, savedMessage.getSentAt(), 1);
+
+        MessageDTO dto = convertToDTO(savedMessage);
+        publish(dto);
+        return dto;
+    }
+
+    private MessageDTO sendBatched(Integer senderId, Integer receiverId, String content) {
+        LocalDateTime sentAt = LocalDateTime.now();
+        CompletableFuture<Message> saved = batchWriter.enqueue(senderId, receiverId, content, sentAt);
+        saved.thenAccept(message -> publish(convertToDTO(message)));
+        if (ackOnFlush) {
+            // A stalled writer must not hold request threads forever; the caller answers 503. The
+            // message stays queued, so it may still be written after the timeout.
+            try {
+                return convertToDTO(saved.get(ackTimeoutMs, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                throw new MessageBatchWriter.UnavailableException(
+                        "Message was not written within " + ackTimeoutMs + " ms", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessageBatchWriter.UnavailableException(
+                        "Interrupted while waiting for the message to be written", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+            }
+        }
+        UserDTO sender = new UserDTO();
+        sender.setId(senderId);
+        UserDTO receiver = new UserDTO();
+        receiver.setId(receiverId);
+        return new MessageDTO(null, sender, receiver, content, sentAt, false);
+    }
+
+    static String preview(String content) {
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
     }
 
-    public List<MessageDTO> getMessagesBetweenUsers(Integer userId1, Integer userId2) {
-        List<Message> messages = messageRepository.findMessagesBetweenUsers(userId1, userId2);
+    // Without afterId/beforeId this returns the latest page; results are always in ascending id order
+    public List<MessageDTO> getMessagesBetweenUsers(Integer userId1, Integer userId2,
+                                                    Integer afterId, Integer beforeId, Integer limit) {
+        if (afterId != null && beforeId != null) {
+            throw new IllegalArgumentException("Use either afterId or beforeId, not both");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        long conversationId = Message.conversationId(userId1, userId2);
+
+        List<Message> messages;
+        if (afterId != null) {
+            messages = messageStore.findAfter(conversationId, afterId, pageSize);
+        } else {
+            messages = new ArrayList<>(beforeId != null
+                    ? messageStore.findBefore(conversationId, beforeId, pageSize)
+                    : messageStore.findLatest(conversationId, pageSize));
+            Collections.reverse(messages);
+        }
         return messages.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    public PageDTO<ConversationDTO> getInbox(Integer userId, Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : Math.max(page, 0);
+        int pageSize = size == null ? DEFAULT_INBOX_SIZE : Math.min(Math.max(size, 1), MAX_INBOX_SIZE);
+        return PageDTO.from(conversationRepository.findInbox(userId, PageRequest.of(pageNumber, pageSize)));
+    }
+
+    // Marks everything peerId sent to userId as read, returns how many messages changed
+    @Transactional
+    public int markConversationRead(Integer userId, Integer peerId) {
+        long conversationId = Message.conversationId(userId, peerId);
+        int updated = messageStore.markRead(userId, conversationId);
+        // Recount rather than zero, so a message that arrives while the conversation
+        // is being marked read keeps its unread state
+        conversationRepository.setUnreadCount(userId, peerId, messageStore.countUnread(userId, conversationId));
+        return updated;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillConversations() {
+        messageRepository.backfillConversationIds();
+        if (conversationRepository.count() == 0) {
+            conversationRepository.rebuildAll();
+        }
+    }
+
+    // Pushes the message to both participants (the sender may have other tabs open),
+    // only once it has actually been committed
+    private void publish(MessageDTO message) {
+        Runnable push = () -> {
+            messagingTemplate.convertAndSendToUser(message.getReceiver().getId().toString(), MESSAGE_QUEUE, message);
+            messagingTemplate.convertAndSendToUser(message.getSender().getId().toString(), MESSAGE_QUEUE, message);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    push.run();
+                }
+            });
+        } else {
+            push.run();
+        }
+    }
+}
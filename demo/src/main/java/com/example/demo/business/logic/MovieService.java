@@ -1,35 +1,159 @@
 package com.example.demo.business.logic;
 
+import com.example.demo.config.CacheConfig;
 import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.MovieSpecifications;
+import com.example.demo.dto.MovieDTO;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.model.Movie;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class MovieService {
     private final MovieRepository movieRepository;
+    private final PosterStorageService posterStorageService;
+    private final PosterThumbnailService posterThumbnailService;
+    private final SearchService searchService;
+    private final SuggestionService suggestionService;
+    private final StartupMigrations startupMigrations;
     private static final int MAX_BASE64_LENGTH = 2_000_000; // 2MB limit for base64 strings
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("title", "releaseYear", "director", "createdAt");
+
+    @Value("${app.movies.recalculate-counters-on-startup:false}")
+    private boolean recalculateCountersOnStartup;
 
     @Autowired
-    public MovieService(MovieRepository movieRepository) {
+    public MovieService(MovieRepository movieRepository,
+                        PosterStorageService posterStorageService,
+                        PosterThumbnailService posterThumbnailService,
+                        SearchService searchService,
+                        SuggestionService suggestionService,
+                        StartupMigrations startupMigrations) {
         this.movieRepository = movieRepository;
+        this.posterStorageService = posterStorageService;
+        this.posterThumbnailService = posterThumbnailService;
+        this.searchService = searchService;
+        this.suggestionService = suggestionService;
+        this.startupMigrations = startupMigrations;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.MOVIES, key = "#result.id"),
+            @CacheEvict(cacheNames = CacheConfig.MOVIE_PAGES, allEntries = true)
+    })
+    @Transactional
     public Movie save(Movie movie) {
+        Movie savedMovie = savePoster(movie);
+        searchService.indexMovie(savedMovie);
+        suggestionService.addMovie(savedMovie);
+        return savedMovie;
+    }
+
+    // A null poster keeps the current one, an empty poster removes it
+    // and a base64 poster replaces it.
+    private Movie savePoster(Movie movie) {
         if (movie.getCreatedAt() == null) {
             movie.setCreatedAt(LocalDate.now());
         }
 
-        // Validate poster if it exists
-        if (movie.getPoster() != null) {
-            validateBase64Image(movie.getPoster());
+        String poster = movie.getPoster();
+        movie.setPoster(null);
+
+        if (poster == null) {
+            return movieRepository.save(movie);
+        }
+
+        if (poster.isEmpty()) {
+            String previousEtag = movie.getPosterEtag();
+            movie.setPosterContentType(null);
+            movie.setPosterEtag(null);
+            Movie savedMovie = movieRepository.save(movie);
+            afterCommit(() -> posterStorageService.delete(savedMovie.getId(), previousEtag));
+            return savedMovie;
+        }
+
+        validateBase64Image(poster);
+        // Decoded before anything is saved, so a rejected poster leaves the movie untouched
+        PosterStorageService.DecodedPoster decoded = posterStorageService.decode(poster);
+
+        // The poster file is keyed by id, so a new movie has to be saved first
+        Movie savedMovie = movie.getId() == null ? movieRepository.save(movie) : movie;
+        Runnable replaced = storePoster(savedMovie, decoded);
+        Movie updatedMovie = movieRepository.save(savedMovie);
+        afterCommit(replaced);
+        return updatedMovie;
+    }
+
+    // Writes the poster as a new version and points the movie at it. Until the movie is saved the
+    // previous version keeps being served, so the returned action, which removes that version and
+    // generates the new variants, must only run once the save has committed.
+    private Runnable storePoster(Movie movie, PosterStorageService.DecodedPoster poster) {
+        String previousEtag = movie.getPosterEtag();
+        PosterStorageService.StoredPoster stored = posterStorageService.store(movie.getId(), poster);
+        movie.setPosterContentType(stored.contentType());
+        movie.setPosterEtag(stored.etag());
+        Integer movieId = movie.getId();
+        return () -> {
+            if (previousEtag != null && !previousEtag.equals(stored.etag())) {
+                posterStorageService.delete(movieId, previousEtag);
+            }
+            posterThumbnailService.generateVariants(movieId, stored.etag());
+        };
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
         }
+    }
 
-        return movieRepository.save(movie);
+    // Move posters that are still stored as base64 in the database to disk
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyPosters() {
+        for (Integer id : movieRepository.findIdsWithLegacyPoster()) {
+            movieRepository.findById(id).ifPresent(movie -> {
+                String poster = movie.getPoster();
+                movie.setPoster(null);
+                Runnable replaced = null;
+                try {
+                    replaced = storePoster(movie, posterStorageService.decode(poster));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Dropping invalid poster for movie " + id + ": " + e.getMessage());
+                }
+                movieRepository.save(movie);
+                if (replaced != null) {
+                    replaced.run();
+                }
+            });
+        }
     }
 
     private void validateBase64Image(String base64String) {
@@ -48,10 +172,68 @@ public class MovieService {
         return movieRepository.findAll();
     }
 
+    @Cacheable(cacheNames = CacheConfig.MOVIE_PAGES,
+            key = "{#query, #genre, #director, #yearFrom, #yearTo, #page, #size, #sort}")
+    public PageDTO<MovieSummaryDTO> findPage(String query, String genre, String director,
+                                             Integer yearFrom, Integer yearTo,
+                                             Integer page, Integer size, String sort) {
+        int pageNumber = page == null ? 0 : Math.max(page, 0);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        Specification<Movie> specification = Specification.allOf(
+                MovieSpecifications.matches(query),
+                MovieSpecifications.hasGenre(genre),
+                MovieSpecifications.hasDirector(director),
+                MovieSpecifications.releasedFrom(yearFrom),
+                MovieSpecifications.releasedUntil(yearTo));
+
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, parseSort(sort));
+        return PageDTO.from(movieRepository.findSummaries(specification, pageRequest));
+    }
+
+    // Accepts "property" or "property,asc|desc"; id is always added as a tie-breaker
+    // so that pages are stable.
+    private Sort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.by("title", "id");
+        }
+        String[] parts = sort.split(",");
+        String property = parts[0].trim();
+        if (!SORTABLE_PROPERTIES.contains(property)) {
+            throw new IllegalArgumentException("Cannot sort movies by " + property);
+        }
+        Sort.Direction direction = parts.length > 1
+                ? Sort.Direction.fromString(parts[1].trim())
+                : Sort.Direction.ASC;
+        return Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
     public Optional<Movie> findById(Integer id) {
         return movieRepository.findById(id);
     }
 
+    // Read-only view for GET /movies/{id}; entities are never put in the application cache
+    // because callers modify and save them
+    @Cacheable(cacheNames = CacheConfig.MOVIES, key = "#id", unless = "#result == null")
+    public Optional<MovieDTO> getMovie(Integer id) {
+        return movieRepository.findById(id).map(this::toDTO);
+    }
+
+    public MovieDTO toDTO(Movie movie) {
+        MovieDTO dto = new MovieDTO();
+        dto.setId(movie.getId());
+        dto.setTitle(movie.getTitle());
+        dto.setPosterUrl(PosterStorageService.posterUrl(movie.getId(), movie.getPosterEtag()));
+        dto.setDescription(movie.getDescription());
+        dto.setReleaseYear(movie.getReleaseYear());
+        dto.setGenres(movie.getGenres());
+        dto.setRuntime(movie.getRuntime());
+        dto.setStars(movie.getStars());
+        dto.setDirector(movie.getDirector());
+        dto.setTrailer(movie.getTrailer());
+        return dto;
+    }
+
     public List<Movie> findByTitle(String title) {
         return movieRepository.findByTitleContaining(title);
     }
@@ -60,6 +242,19 @@ public class MovieService {
         return movieRepository.findByGenresContaining(genre);
     }
 
+    public PageDTO<MovieSummaryDTO> getTopMovies(Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : Math.max(page, 0);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return PageDTO.from(movieRepository.findTopSummaries(PageRequest.of(pageNumber, pageSize)));
+    }
+
+    // The counter column starts at 0 when it is first added, so it is recounted once per database
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void recalculateCounters() {
+        startupMigrations.runOnce("counters.movie", recalculateCountersOnStartup, movieRepository::recalculateCounters);
+    }
+
     public List<Movie> getMostRecommendedMovies() {
         return movieRepository.findMostRecommendedMovies();
     }
@@ -67,4 +262,4 @@ public class MovieService {
     public List<Movie> findByDirector(String director) {
         return movieRepository.findByDirector(director);
     }
-}
\ No newline at end of file
+}
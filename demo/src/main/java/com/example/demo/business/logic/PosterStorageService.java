@@ -0,0 +1,200 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.constant.Constant;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+
+// Stores posters as decoded binary files under Constant.POSTER_DIRECTORY, keyed by movie id and ETag
+// (content hash): the original as "{id}-full-{etag}" and resized variants as "{id}-{size}-{etag}",
+// so a version's files never change once written. The database only keeps the content type and
+// the ETag of the current version. Posters stored before names carried the ETag live at "{id}".
+@Service
+public class PosterStorageService {
+    private final Path posterDirectory = Paths.get(Constant.POSTER_DIRECTORY);
+
+    private static final Set<String> ACCEPTED_TYPES = Set.of(MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE,
+            MediaType.IMAGE_GIF_VALUE, "image/webp");
+
+    public record DecodedPoster(String contentType, byte[] bytes) {
+    }
+
+    public record StoredPoster(String contentType, String etag) {
+    }
+
+    public enum Size {
+        SMALL(160), MEDIUM(480), FULL(0);
+
+        private final int width;
+
+        Size(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public static Size parse(String value) {
+            if (value == null || value.isBlank()) {
+                return FULL;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown poster size: " + value);
+            }
+        }
+    }
+
+    // Decodes a "data:image/...;base64," string. The content type is taken from the image bytes,
+    // not from the data URI, and only formats browsers render inertly are accepted (no SVG).
+    public DecodedPoster decode(String dataUri) {
+        int separator = dataUri.indexOf(";base64,");
+        if (!dataUri.startsWith("data:image") || separator < 0) {
+            throw new IllegalArgumentException("Invalid image format. Must be a base64 image string");
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getMimeDecoder().decode(dataUri.substring(separator + ";base64,".length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid image format. Poster is not valid base64", e);
+        }
+
+        String contentType = sniffContentType(bytes);
+        if (contentType == null) {
+            throw new IllegalArgumentException("Unsupported poster format. Use PNG, JPEG, WebP or GIF");
+        }
+        return new DecodedPoster(contentType, bytes);
+    }
+
+    // Writes the decoded bytes to disk as a new version; the current one is left in place
+    public StoredPoster store(Integer movieId, DecodedPoster poster) {
+        String etag = hash(poster.bytes());
+        try {
+            Files.createDirectories(posterDirectory);
+            // Write to a temp file first so readers never see a half-written poster
+            Path temp = Files.createTempFile(posterDirectory, "upload-" + movieId + "-", ".tmp");
+            Files.write(temp, poster.bytes());
+            Files.move(temp, path(movieId, Size.FULL, etag), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store poster for movie " + movieId, e);
+        }
+
+        return new StoredPoster(poster.contentType(), etag);
+    }
+
+    // Content type to serve a stored poster with; anything outside the accepted formats
+    // (stored before they were enforced) is served as a download rather than rendered
+    public static MediaType servedMediaType(String storedContentType) {
+        if (storedContentType != null && ACCEPTED_TYPES.contains(storedContentType.toLowerCase(Locale.ROOT))) {
+            return MediaType.parseMediaType(storedContentType);
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static String sniffContentType(byte[] bytes) {
+        if (startsWith(bytes, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (startsWith(bytes, 0, 'G', 'I', 'F', '8')) {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (startsWith(bytes, 0, 'R', 'I', 'F', 'F') && startsWith(bytes, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... prefix) {
+        if (bytes.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Removes every file of one version of a movie's poster
+    public void delete(Integer movieId, String etag) {
+        if (etag == null) {
+            return;
+        }
+        try {
+            // A version without a file of its own is the one stored under the unversioned name
+            if (!Files.deleteIfExists(path(movieId, Size.FULL, etag))) {
+                Files.deleteIfExists(posterDirectory.resolve(movieId.toString()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete poster for movie " + movieId, e);
+        }
+        deleteVariants(movieId, etag);
+    }
+
+    // Removes the resized variants of one version of a movie's poster. The names follow from the
+    // ETag, so no directory listing is needed and other versions' variants are never touched.
+    public void deleteVariants(Integer movieId, String etag) {
+        if (etag == null) {
+            return;
+        }
+        for (Size size : Size.values()) {
+            if (size == Size.FULL) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(path(movieId, size, etag));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete poster variants for movie " + movieId, e);
+            }
+        }
+    }
+
+    public Path resolve(Integer movieId, Size size, String etag) {
+        Path path = path(movieId, size, etag);
+        if (size == Size.FULL && !Files.exists(path)) {
+            return posterDirectory.resolve(movieId.toString());
+        }
+        return path;
+    }
+
+    private Path path(Integer movieId, Size size, String etag) {
+        return posterDirectory.resolve(movieId + "-" + size.name().toLowerCase(Locale.ROOT) + "-" + etag);
+    }
+
+    // Versioned URL so clients can cache the poster until its content changes
+    public static String posterUrl(Integer movieId, String etag) {
+        if (etag == null) {
+            return null;
+        }
+        return "/api/v1/movies/" + movieId + "/poster?v=" + etag;
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
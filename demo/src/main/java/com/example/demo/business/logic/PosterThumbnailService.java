@@ -0,0 +1,91 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.MovieRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Generates the downscaled poster variants in the background after an upload,
+// so grid views can download a few kilobytes per tile instead of the original.
+@Service
+public class PosterThumbnailService {
+    private final PosterStorageService posterStorageService;
+    private final MovieRepository movieRepository;
+
+    @Autowired
+    public PosterThumbnailService(PosterStorageService posterStorageService, MovieRepository movieRepository) {
+        this.posterStorageService = posterStorageService;
+        this.movieRepository = movieRepository;
+    }
+
+    // Reads the full poster of the version named by etag, whose file never changes. A newer upload
+    // deletes this version's files when it commits, so variants are only kept while it is current.
+    @Async
+    public void generateVariants(Integer movieId, String etag) {
+        if (!isCurrent(movieId, etag)) {
+            return;
+        }
+        try {
+            BufferedImage original = ImageIO.read(
+                    posterStorageService.resolve(movieId, PosterStorageService.Size.FULL, etag).toFile());
+            if (original != null) {
+                for (PosterStorageService.Size size : PosterStorageService.Size.values()) {
+                    if (size != PosterStorageService.Size.FULL) {
+                        writeVariant(scale(original, size.getWidth()), posterStorageService.resolve(movieId, size, etag));
+                    }
+                }
+            }
+            // Without variants (format not supported by ImageIO) the full poster is served for every size
+            if (!isCurrent(movieId, etag)) {
+                // Replaced while these were being written, after its cleanup had already run
+                posterStorageService.deleteVariants(movieId, etag);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not generate poster variants for movie " + movieId + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isCurrent(Integer movieId, String etag) {
+        return movieRepository.findPosterEtag(movieId).map(etag::equals).orElse(false);
+    }
+
+    private BufferedImage scale(BufferedImage original, int targetWidth) {
+        // Never upscale; small originals are just re-encoded
+        int width = Math.min(targetWidth, original.getWidth());
+        int height = Math.max(1, Math.round((float) original.getHeight() * width / original.getWidth()));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha channel, so transparent areas are flattened onto white
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void writeVariant(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            ImageIO.write(image, "jpg", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.example.demo.business.logic;
 import com.example.demo.data.access.MovieRepository;
 import com.example.demo.data.access.RecommendationRepository;
 import com.example.demo.data.access.UserRepository;
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.KeysetCursor;
 import com.example.demo.dto.MovieDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.dto.RecommendationDTO;
 import com.example.demo.dto.UserDTO;
 import jakarta.transaction.Transactional;
@@ -11,6 +14,11 @@ import com.example.demo.model.Movie;
 import com.example.demo.model.Recommendation;
 import com.example.demo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -23,14 +31,29 @@ public class RecommendationService {
     private final RecommendationRepository recommendationRepository;
     private final UserRepository userRepository;
     private final MovieRepository movieRepository;
+    private final TimelineService timelineService;
+    private final SearchService searchService;
+    private final StartupMigrations startupMigrations;
+    private static final int DEFAULT_FEED_PAGE_SIZE = 20;
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+    private static final int RECONCILE_BATCH_SIZE = 5_000;
+
+    @Value("${app.recommendations.recalculate-counters-on-startup:false}")
+    private boolean recalculateCountersOnStartup;
 
     @Autowired
     public RecommendationService(RecommendationRepository recommendationRepository,
                                  UserRepository userRepository,
-                                 MovieRepository movieRepository) {
+                                 MovieRepository movieRepository,
+                                 TimelineService timelineService,
+                                 SearchService searchService,
+                                 StartupMigrations startupMigrations) {
         this.recommendationRepository = recommendationRepository;
         this.userRepository = userRepository;
         this.movieRepository = movieRepository;
+        this.timelineService = timelineService;
+        this.searchService = searchService;
+        this.startupMigrations = startupMigrations;
     }
 
     @Transactional
@@ -58,33 +81,126 @@ public class RecommendationService {
         recommendation.setContent(content.trim());
         recommendation.setCreatedAt(LocalDate.now());
 
-        return recommendationRepository.save(recommendation);
+        Recommendation savedRecommendation = recommendationRepository.save(recommendation);
+        userRepository.adjustRecommendationCount(userId, 1);
+        movieRepository.adjustRecommendationCount(movieId, 1);
+        timelineService.onRecommendationCreated(savedRecommendation);
+        searchService.indexRecommendation(savedRecommendation);
+        return savedRecommendation;
+    }
+
+    public List<RecommendationDTO> findByUserId(Integer userId) {
+        return convertCards(recommendationRepository.findCardsByUserId(userId));
+    }
+
+    public List<RecommendationDTO> findByMovieId(Integer movieId) {
+        return convertCards(recommendationRepository.findCardsByMovieId(movieId));
     }
 
-    public List<Recommendation> findByUserId(Integer userId) {
-        return recommendationRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    public Optional<RecommendationDTO> findById(Integer id) {
+        return recommendationRepository.findCardById(id).map(this::convertToDTO);
     }
 
-    public List<Recommendation> findByMovieId(Integer movieId) {
-        return recommendationRepository.findByMovieIdOrderByCreatedAtDesc(movieId);
+    public PageDTO<RecommendationDTO> getTopRecommendations(Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : Math.max(page, 0);
+        int pageSize = size == null ? DEFAULT_FEED_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_FEED_PAGE_SIZE);
+        return PageDTO.from(recommendationRepository.findTopByCommentCount(PageRequest.of(pageNumber, pageSize))
+                .map(this::convertToDTO));
     }
 
-    public Optional<Recommendation> findById(Integer id) {
-        return recommendationRepository.findById(id);
+    // The counter column starts at 0 when it is first added, so it is recounted once per database;
+    // after that the scheduled reconciliation keeps it in line
+    @EventListener(ApplicationReadyEvent.class)
+    public void recalculateCounters() {
+        startupMigrations.runOnce("counters.recommendation", recalculateCountersOnStartup, this::reconcileCommentCounts);
     }
 
-    public List<Recommendation> getMostCommentedRecommendations() {
-        return recommendationRepository.findMostCommentedRecommendations();
+    // Sweeps the table in id ranges and fixes comment counts that drifted from the comment table
+    @Scheduled(fixedDelayString = "${app.recommendations.reconcile-interval-ms:21600000}",
+            initialDelayString = "${app.recommendations.reconcile-interval-ms:21600000}")
+    public void reconcileCommentCounts() {
+        Integer maxId = recommendationRepository.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+        int repaired = 0;
+        for (int fromId = 1; fromId <= maxId; fromId += RECONCILE_BATCH_SIZE) {
+            repaired += recommendationRepository.reconcileCommentCounts(fromId, fromId + RECONCILE_BATCH_SIZE - 1);
+        }
+        if (repaired > 0) {
+            System.out.println("Reconciled comment counts of " + repaired + " recommendations");
+        }
+    }
+
+    public List<RecommendationDTO> getMostCommentedRecommendations() {
+        return convertCards(recommendationRepository.findMostCommentedRecommendations());
     }
 
     public List<RecommendationDTO> getRecommendationsFromFollowedUsers(Integer userId) {
-        List<Recommendation> recommendations = recommendationRepository
-                .findRecommendationsFromFollowedUsersOrderByCreatedAtDesc(userId);
-        return recommendations.stream()
+        return convertCards(recommendationRepository.findRecommendationsFromFollowedUsersOrderByCreatedAtDesc(userId));
+    }
+
+    public CursorPageDTO<RecommendationDTO> getFeedFromFollowedUsers(Integer userId, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_FEED_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_FEED_PAGE_SIZE);
+
+        // Fetch one extra row to find out whether another page exists
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<RecommendationRepository.Card> recommendations;
+        if (cursor == null || cursor.isBlank()) {
+            recommendations = timelineService.isEnabled()
+                    ? timelineService.findTimeline(userId, limit)
+                    : recommendationRepository.findFeedFromFollowedUsers(userId, limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            recommendations = timelineService.isEnabled()
+                    ? timelineService.findTimelineAfter(userId, position.createdAt(), position.id(), limit)
+                    : recommendationRepository.findFeedFromFollowedUsersAfter(
+                            userId, position.createdAt(), position.id(), limit);
+        }
+
+        boolean hasMore = recommendations.size() > pageSize;
+        List<RecommendationRepository.Card> page = hasMore ? recommendations.subList(0, pageSize) : recommendations;
+
+        String nextCursor = null;
+        if (hasMore) {
+            RecommendationRepository.Card last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPageDTO<>(convertCards(page), nextCursor);
+    }
+
+    private List<RecommendationDTO> convertCards(List<RecommendationRepository.Card> cards) {
+        return cards.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    // Card rows already hold every field the DTO needs
+    public RecommendationDTO convertToDTO(RecommendationRepository.Card card) {
+        RecommendationDTO dto = new RecommendationDTO();
+        dto.setId(card.getId());
+        dto.setContent(card.getContent());
+        dto.setCreatedAt(card.getCreatedAt());
+        dto.setCommentCount(card.getCommentCount());
+
+        MovieDTO movieDTO = new MovieDTO();
+        movieDTO.setId(card.getMovieId());
+        movieDTO.setTitle(card.getMovieTitle());
+        movieDTO.setPosterUrl(PosterStorageService.posterUrl(card.getMovieId(), card.getMoviePosterEtag()));
+        movieDTO.setDescription(card.getMovieDescription());
+        movieDTO.setGenres(card.getMovieGenres());
+        dto.setMovie(movieDTO);
+
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(card.getUserId());
+        userDTO.setUsername(card.getUsername());
+        userDTO.setForename(card.getForename());
+        userDTO.setSurename(card.getSurename());
+        dto.setUser(userDTO);
+        return dto;
+    }
+
     public RecommendationDTO convertToDTO(Recommendation recommendation) {
         RecommendationDTO dto = new RecommendationDTO();
         dto.setId(recommendation.getId());
@@ -95,7 +211,8 @@ public class RecommendationService {
         MovieDTO movieDTO = new MovieDTO();
         movieDTO.setId(recommendation.getMovie().getId());
         movieDTO.setTitle(recommendation.getMovie().getTitle());
-        movieDTO.setPoster(recommendation.getMovie().getPoster());
+        movieDTO.setPosterUrl(PosterStorageService.posterUrl(
+                recommendation.getMovie().getId(), recommendation.getMovie().getPosterEtag()));
         movieDTO.setDescription(recommendation.getMovie().getDescription());
         movieDTO.setGenres(recommendation.getMovie().getGenres());
         dto.setMovie(movieDTO);
@@ -108,8 +225,8 @@ public class RecommendationService {
         userDTO.setSurename(recommendation.getUser().getSurename());
         dto.setUser(userDTO);
 
-        // Set comment count
-        dto.setCommentCount(recommendation.getComments() != null ? recommendation.getComments().size() : 0);
+        // Maintained counter, so the comments collection is never loaded here
+        dto.setCommentCount(recommendation.getCommentCount());
 
         return dto;
     }
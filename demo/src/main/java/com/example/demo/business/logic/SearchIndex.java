@@ -0,0 +1,219 @@
+package com.example.demo.business.logic;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory inverted index with BM25 ranking. Documents are identified by a
+// (type, id) key and can be replaced or removed at any time. The last query
+// term is matched as a prefix so the index also serves search-as-you-type.
+public class SearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with");
+
+    public record Hit(String type, Integer id, String title, String snippet, double score) {
+    }
+
+    private record Document(String type, Integer id, String title, String snippet,
+                            Map<String, Integer> termFrequencies, int length) {
+    }
+
+    // term -> (document key -> term frequency); sorted so prefixes are a range scan
+    private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    // Index or re-index a document. Title terms are counted twice to weight them.
+    public void put(String type, Integer id, String title, String... fields) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String term : tokenize(title)) {
+            frequencies.merge(term, 2, Integer::sum);
+            length += 2;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            text.append(field).append(' ');
+            for (String term : tokenize(field)) {
+                frequencies.merge(term, 1, Integer::sum);
+                length++;
+            }
+        }
+
+        String key = key(type, id);
+        Document document = new Document(type, id, title, snippet(text.toString()), frequencies, length);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            documents.put(key, document);
+            totalLength += length;
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(key, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key(type, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Title the document was indexed with, null if it is not indexed
+    public String title(String type, Integer id) {
+        lock.readLock().lock();
+        try {
+            Document document = documents.get(key(type, id));
+            return document == null ? null : document.title();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Top `limit` documents by BM25 score, optionally restricted to one type
+    public List<Hit> search(String query, String type, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            Map<String, Double> scores = new HashMap<>();
+            double averageLength = (double) totalLength / documents.size();
+
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                if (i == terms.size() - 1) {
+                    // Last term: every indexed term starting with it matches
+                    postings.subMap(term, true, term + Character.MAX_VALUE, false).forEach((indexed, docs) ->
+                            score(docs, type, averageLength, scores));
+                } else {
+                    Map<String, Integer> docs = postings.get(term);
+                    if (docs != null) {
+                        score(docs, type, averageLength, scores);
+                    }
+                }
+            }
+
+            PriorityQueue<Map.Entry<String, Double>> top =
+                    new PriorityQueue<>(Comparator.comparingDouble(Map.Entry::getValue));
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<String, Double> entry = top.poll();
+                Document document = documents.get(entry.getKey());
+                hits.add(new Hit(document.type(), document.id(), document.title(), document.snippet(), entry.getValue()));
+            }
+            return hits.reversed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void score(Map<String, Integer> docs, String type, double averageLength, Map<String, Double> scores) {
+        double idf = Math.log(1 + (documents.size() - docs.size() + 0.5) / (docs.size() + 0.5));
+        docs.forEach((key, frequency) -> {
+            Document document = documents.get(key);
+            if (type != null && !type.equals(document.type())) {
+                return;
+            }
+            double norm = K1 * (1 - B + B * document.length() / averageLength);
+            scores.merge(key, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+        });
+    }
+
+    private void removeLocked(String key) {
+        Document previous = documents.remove(key);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length();
+        for (String term : previous.termFrequencies().keySet()) {
+            Map<String, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(key);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty() && !STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static String snippet(String text) {
+        String trimmed = text.strip();
+        return trimmed.length() <= 160 ? trimmed : trimmed.substring(0, 157) + "...";
+    }
+
+    private static String key(String type, Integer id) {
+        return type + ":" + id;
+    }
+}
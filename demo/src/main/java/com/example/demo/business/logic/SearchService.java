@@ -0,0 +1,112 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.CommentRepository;
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.RecommendationRepository;
+import com.example.demo.dto.SearchResultDTO;
+import com.example.demo.model.Comment;
+import com.example.demo.model.Movie;
+import com.example.demo.model.Recommendation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Full-text search over movies, recommendations and comments. The index is
+// rebuilt from the database at startup and then kept current by the services'
+// save paths, so queries never touch MySQL.
+@Service
+public class SearchService {
+    public static final String MOVIE = "movie";
+    public static final String RECOMMENDATION = "recommendation";
+    public static final String COMMENT = "comment";
+    private static final Set<String> TYPES = Set.of(MOVIE, RECOMMENDATION, COMMENT);
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+
+    private final SearchIndex index = new SearchIndex();
+    private final MovieRepository movieRepository;
+    private final RecommendationRepository recommendationRepository;
+    private final CommentRepository commentRepository;
+
+    @Autowired
+    public SearchService(MovieRepository movieRepository,
+                         RecommendationRepository recommendationRepository,
+                         CommentRepository commentRepository) {
+        this.movieRepository = movieRepository;
+        this.recommendationRepository = recommendationRepository;
+        this.commentRepository = commentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        index.clear();
+        for (MovieRepository.MovieText movie : movieRepository.findAllText()) {
+            index.put(MOVIE, movie.getId(), movie.getTitle(),
+                    movie.getDirector(), movie.getStars(), movie.getDescription());
+        }
+        for (RecommendationRepository.RecommendationText recommendation : recommendationRepository.findAllText()) {
+            index.put(RECOMMENDATION, recommendation.getId(), recommendation.getTitle(), recommendation.getContent());
+        }
+        for (CommentRepository.CommentText comment : commentRepository.findAllText()) {
+            index.put(COMMENT, comment.getId(), comment.getTitle(), comment.getContent());
+        }
+        System.out.println("Search index rebuilt with " + index.size() + " documents");
+    }
+
+    public void indexMovie(Movie movie) {
+        afterCommit(() -> {
+            String previousTitle = index.title(MOVIE, movie.getId());
+            index.put(MOVIE, movie.getId(), movie.getTitle(),
+                    movie.getDirector(), movie.getStars(), movie.getDescription());
+            // Recommendations are titled by their movie, so a rename re-indexes them too
+            if (previousTitle != null && !previousTitle.equals(movie.getTitle())) {
+                for (RecommendationRepository.RecommendationText recommendation
+                        : recommendationRepository.findTextByMovieId(movie.getId())) {
+                    index.put(RECOMMENDATION, recommendation.getId(), recommendation.getTitle(),
+                            recommendation.getContent());
+                }
+            }
+        });
+    }
+
+    public void indexRecommendation(Recommendation recommendation) {
+        afterCommit(() -> index.put(RECOMMENDATION, recommendation.getId(),
+                recommendation.getMovie().getTitle(), recommendation.getContent()));
+    }
+
+    public void indexComment(Comment comment) {
+        afterCommit(() -> index.put(COMMENT, comment.getId(),
+                comment.getUser().getUsername(), comment.getContent()));
+    }
+
+    public List<SearchResultDTO> search(String query, String type, Integer limit) {
+        if (type != null && !TYPES.contains(type)) {
+            throw new IllegalArgumentException("Unknown search type: " + type);
+        }
+        int maxResults = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+        return index.search(query, type, maxResults).stream()
+                .map(hit -> new SearchResultDTO(hit.type(), hit.id(), hit.title(), hit.snippet(), hit.score()))
+                .collect(Collectors.toList());
+    }
+
+    // Only publish changes that actually reached the database
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.AppStateRepository;
+import com.example.demo.model.AppState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+// Startup work that has to happen once per database rather than on every start, such as filling
+// in counter columns after they were added. Completed migrations are recorded in app_state.
+@Service
+public class StartupMigrations {
+    private final AppStateRepository appStateRepository;
+
+    @Autowired
+    public StartupMigrations(AppStateRepository appStateRepository) {
+        this.appStateRepository = appStateRepository;
+    }
+
+    // Runs the work unless it already completed against this database; force runs it again anyway
+    public void runOnce(String name, boolean force, Runnable work) {
+        if (force || !appStateRepository.existsById(name)) {
+            work.run();
+            appStateRepository.save(new AppState(name, LocalDateTime.now()));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.SuggestionDTO;
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// Type-ahead suggestions for movie titles, directors and usernames, answered
+// from an immutable SuggestionTrie snapshot. Saves since the last snapshot are
+// kept in a small overlay that is scanned per lookup and folded into a new
+// snapshot in the background once it grows past OVERLAY_LIMIT. Saves apply
+// when their transaction commits.
+@Service
+public class SuggestionService {
+    public static final String MOVIE = "movie";
+    public static final String DIRECTOR = "director";
+    public static final String USER = "user";
+    private static final int TOP_K = 10;
+    private static final int OVERLAY_LIMIT = 256;
+
+    private final MovieRepository movieRepository;
+    private final UserRepository userRepository;
+    private final TaskExecutor taskExecutor;
+
+    // Every current entry by key ("movie:12", "user:3", "director:nolan")
+    private final Map<String, SuggestionTrie.Entry> entries = new ConcurrentHashMap<>();
+    // Entries added, changed or removed since the snapshot was built; a removed one is label-less
+    private final Map<String, SuggestionTrie.Entry> overlay = new ConcurrentHashMap<>();
+    // Director entry key per movie, and how many movies share each director entry, so an entry
+    // goes once no movie has that director any more. Guarded by putMovie.
+    private final Map<Integer, String> movieDirectors = new HashMap<>();
+    private final Map<String, Integer> directorMovies = new HashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile SuggestionTrie snapshot = SuggestionTrie.build(List.of(), TOP_K);
+
+    @Autowired
+    public SuggestionService(MovieRepository movieRepository,
+                             UserRepository userRepository,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.movieRepository = movieRepository;
+        this.userRepository = userRepository;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (MovieSummaryDTO movie : movieRepository.findAllSummaries()) {
+            putMovie(movie.getId(), movie.getTitle(), movie.getDirector());
+        }
+        for (UserRepository.Username user : userRepository.findAllUsernames()) {
+            put(USER + ":" + user.getId(), new SuggestionTrie.Entry(USER, user.getId(), user.getUsername(), 2));
+        }
+        rebuild();
+    }
+
+    // Like the search index, saves show up once their transaction commits, so a rolled-back
+    // save is never suggested
+    public void addMovie(Movie movie) {
+        Integer id = movie.getId();
+        String title = movie.getTitle();
+        String director = movie.getDirector();
+        afterCommit(() -> {
+            putMovie(id, title, director);
+            scheduleRebuildIfNeeded();
+        });
+    }
+
+    public void addUser(User user) {
+        SuggestionTrie.Entry entry = new SuggestionTrie.Entry(USER, user.getId(), user.getUsername(), 2);
+        afterCommit(() -> {
+            put(USER + ":" + entry.id(), entry);
+            scheduleRebuildIfNeeded();
+        });
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, Integer limit) {
+        int maxResults = limit == null ? TOP_K : Math.min(Math.max(limit, 1), TOP_K);
+        String normalized = SuggestionTrie.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        // Snapshot hits that were changed since are superseded by their overlay version
+        List<SuggestionTrie.Entry> candidates = new ArrayList<>();
+        for (SuggestionTrie.Entry entry : snapshot.lookup(normalized, TOP_K)) {
+            if (!overlay.containsKey(key(entry))) {
+                candidates.add(entry);
+            }
+        }
+        for (SuggestionTrie.Entry entry : overlay.values()) {
+            if (entry.label() != null && SuggestionTrie.matches(entry, normalized)) {
+                candidates.add(entry);
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        return candidates.stream()
+                .sorted(SuggestionTrie.RANKING)
+                .filter(entry -> seen.add(key(entry)))
+                .limit(maxResults)
+                .map(entry -> new SuggestionDTO(entry.type(), entry.id(), entry.label()))
+                .collect(Collectors.toList());
+    }
+
+    private synchronized void putMovie(Integer id, String title, String director) {
+        if (title != null) {
+            put(MOVIE + ":" + id, new SuggestionTrie.Entry(MOVIE, id, title, 3));
+        }
+        String directorKey = null;
+        if (director != null && !director.isBlank()) {
+            SuggestionTrie.Entry entry = new SuggestionTrie.Entry(DIRECTOR, null, director.trim(), 1);
+            directorKey = key(entry);
+            put(directorKey, entry);
+        }
+
+        String previousKey = directorKey == null ? movieDirectors.remove(id) : movieDirectors.put(id, directorKey);
+        if (Objects.equals(previousKey, directorKey)) {
+            return;
+        }
+        if (directorKey != null) {
+            directorMovies.merge(directorKey, 1, Integer::sum);
+        }
+        if (previousKey != null
+                && directorMovies.computeIfPresent(previousKey, (key, count) -> count > 1 ? count - 1 : null) == null) {
+            remove(previousKey);
+        }
+    }
+
+    private void put(String key, SuggestionTrie.Entry entry) {
+        if (entry.label() == null) {
+            return;
+        }
+        entries.put(key, entry);
+        overlay.put(key, entry);
+    }
+
+    // The label-less overlay entry hides the removed one in the snapshot until the next rebuild
+    private void remove(String key) {
+        entries.remove(key);
+        overlay.put(key, new SuggestionTrie.Entry(null, null, null, 0));
+    }
+
+    private void scheduleRebuildIfNeeded() {
+        if (overlay.size() > OVERLAY_LIMIT && rebuilding.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        // Entries put while building stay in the overlay until the next rebuild; only entries
+        // still equal to the folded version are dropped, so a newer one is never lost
+        Map<String, SuggestionTrie.Entry> folded = Map.copyOf(overlay);
+        snapshot = SuggestionTrie.build(entries.values(), TOP_K);
+        folded.forEach((key, entry) -> overlay.remove(key, entry));
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static String key(SuggestionTrie.Entry entry) {
+        if (entry.id() == null) {
+            return entry.type() + ":" + SuggestionTrie.normalize(entry.label());
+        }
+        return entry.type() + ":" + entry.id();
+    }
+}
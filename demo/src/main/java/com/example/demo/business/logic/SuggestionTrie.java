@@ -0,0 +1,232 @@
+package com.example.demo.business.logic;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Immutable prefix trie stored in parallel primitive arrays. Every node keeps
+// the ids of the k best entries below it, so a lookup is a walk down the
+// prefix followed by a copy of at most k entries, independent of how many
+// keys share the prefix. Each word of a label is indexed, so "god" finds
+// "The Godfather".
+public class SuggestionTrie {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int NONE = -1;
+    // Deeper prefixes are answered from the node at this depth and filtered
+    private static final int MAX_DEPTH = 16;
+
+    public record Entry(String type, Integer id, String label, int weight) {
+    }
+
+    // Best first: higher weight, then shorter label, then alphabetical
+    static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry e) -> -e.weight())
+            .thenComparingInt(e -> e.label().length())
+            .thenComparing(Entry::label);
+
+    private final Entry[] entries;
+    private final int topK;
+    private char[] labels = new char[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private int[] topOffset = new int[64];
+    private byte[] topCount = new byte[64];
+    private int[] top = new int[256];
+    private int nodeCount;
+    private int topSize;
+
+    private SuggestionTrie(Entry[] entries, int topK) {
+        this.entries = entries;
+        this.topK = topK;
+    }
+
+    public static SuggestionTrie build(Collection<Entry> source, int topK) {
+        // Entry index doubles as rank, so merging top lists is a merge of ints
+        Entry[] ranked = source.toArray(new Entry[0]);
+        Arrays.sort(ranked, RANKING);
+
+        List<String> keys = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        for (int i = 0; i < ranked.length; i++) {
+            for (String key : keys(ranked[i].label())) {
+                keys.add(key);
+                owners.add(i);
+            }
+        }
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keys::get));
+        String[] sortedKeys = new String[order.length];
+        int[] sortedOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys.get(order[i]);
+            sortedOwners[i] = owners.get(order[i]);
+        }
+
+        SuggestionTrie trie = new SuggestionTrie(ranked, topK);
+        trie.buildNode('\0', sortedKeys, sortedOwners, 0, sortedKeys.length, 0);
+        return trie;
+    }
+
+    // Best entries whose label has a word starting with the prefix
+    public List<Entry> lookup(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || nodeCount == 0) {
+            return List.of();
+        }
+        int node = 0;
+        for (int i = 0; i < Math.min(key.length(), MAX_DEPTH) && node != NONE; i++) {
+            node = findChild(node, key.charAt(i));
+        }
+        if (node == NONE) {
+            return List.of();
+        }
+        List<Entry> result = new ArrayList<>(Math.min(limit, topCount[node]));
+        for (int i = 0; i < topCount[node] && result.size() < limit; i++) {
+            Entry entry = entries[top[topOffset[node] + i]];
+            if (key.length() <= MAX_DEPTH || matches(entry, key)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    // The whole label plus every suffix that starts at a word boundary
+    static List<String> keys(String label) {
+        String normalized = normalize(label);
+        List<String> keys = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            if (i + 1 < normalized.length()) {
+                keys.add(normalized.substring(i + 1));
+            }
+        }
+        return keys;
+    }
+
+    static boolean matches(Entry entry, String normalizedPrefix) {
+        for (String key : keys(entry.label())) {
+            if (key.startsWith(normalizedPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int findChild(int node, char c) {
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (labels[child] == c) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    // Builds the node for keys[lo, hi), which all share their first `depth` chars
+    private int buildNode(char label, String[] keys, int[] owners, int lo, int hi, int depth) {
+        int node = newNode(label);
+
+        // Keys that end here sort first within the range; at the depth limit every key ends here
+        int i = lo;
+        int[] candidates = new int[0];
+        while (i < hi && (keys[i].length() == depth || depth == MAX_DEPTH)) {
+            candidates = merge(candidates, new int[]{owners[i]});
+            i++;
+        }
+        boolean hasTerminals = i > lo;
+
+        int previousChild = NONE;
+        int childCount = 0;
+        while (i < hi) {
+            char c = keys[i].charAt(depth);
+            int j = i;
+            while (j < hi && keys[j].charAt(depth) == c) {
+                j++;
+            }
+            int child = buildNode(c, keys, owners, i, j, depth + 1);
+            if (previousChild == NONE) {
+                firstChild[node] = child;
+            } else {
+                nextSibling[previousChild] = child;
+            }
+            previousChild = child;
+            childCount++;
+            candidates = merge(candidates, Arrays.copyOfRange(top, topOffset[child], topOffset[child] + topCount[child]));
+            i = j;
+        }
+
+        if (!hasTerminals && childCount == 1) {
+            // Chain node: same entries as its only child, so share its top list
+            topOffset[node] = topOffset[previousChild];
+            topCount[node] = topCount[previousChild];
+            return node;
+        }
+
+        ensureTopCapacity(candidates.length);
+        topOffset[node] = topSize;
+        topCount[node] = (byte) candidates.length;
+        System.arraycopy(candidates, 0, top, topSize, candidates.length);
+        topSize += candidates.length;
+        return node;
+    }
+
+    // Merge two ascending rank lists, dropping duplicates and keeping the first topK
+    private int[] merge(int[] a, int[] b) {
+        int[] merged = new int[Math.min(topK, a.length + b.length)];
+        int i = 0, j = 0, n = 0;
+        while (n < merged.length && (i < a.length || j < b.length)) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    private int newNode(char label) {
+        if (nodeCount == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            topOffset = Arrays.copyOf(topOffset, capacity);
+            topCount = Arrays.copyOf(topCount, capacity);
+        }
+        labels[nodeCount] = label;
+        firstChild[nodeCount] = NONE;
+        nextSibling[nodeCount] = NONE;
+        return nodeCount++;
+    }
+
+    private void ensureTopCapacity(int extra) {
+        if (topSize + extra > top.length) {
+            top = Arrays.copyOf(top, Math.max(top.length * 2, topSize + extra));
+        }
+    }
+}
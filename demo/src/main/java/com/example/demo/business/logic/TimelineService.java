@@ -0,0 +1,105 @@
+package com.example.demo.business.logic;
+
+import com.example.demo.data.access.AppStateRepository;
+import com.example.demo.data.access.RecommendationRepository;
+import com.example.demo.data.access.UserTimelineRepository;
+import com.example.demo.model.AppState;
+import com.example.demo.model.Recommendation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Fan-out-on-write timelines: every recommendation is pushed into its author's
+// followers' timelines when it is created, and feed reads scan only user_timeline.
+// Each timeline keeps the newest `capacity` entries; older ones are trimmed periodically.
+@Service
+public class TimelineService {
+    // Present while the timelines are maintained on write; a start with timelines disabled removes it
+    private static final String TIMELINES_LIVE = "feed.timeline.live";
+
+    private final UserTimelineRepository userTimelineRepository;
+    private final AppStateRepository appStateRepository;
+    private final boolean enabled;
+    private final int capacity;
+
+    @Autowired
+    public TimelineService(UserTimelineRepository userTimelineRepository,
+                           AppStateRepository appStateRepository,
+                           @Value("${app.feed.timeline.enabled:false}") boolean enabled,
+                           @Value("${app.feed.timeline.capacity:500}") int capacity) {
+        this.userTimelineRepository = userTimelineRepository;
+        this.appStateRepository = appStateRepository;
+        this.enabled = enabled;
+        this.capacity = capacity;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void onRecommendationCreated(Recommendation recommendation) {
+        if (!enabled) {
+            return;
+        }
+        userTimelineRepository.fanOut(recommendation.getId(),
+                recommendation.getUser().getId(),
+                recommendation.getCreatedAt());
+    }
+
+    public void onFollow(Integer followerId, Integer followedId) {
+        if (!enabled) {
+            return;
+        }
+        userTimelineRepository.backfill(followerId, followedId, capacity);
+    }
+
+    public void onUnfollow(Integer followerId, Integer followedId) {
+        if (!enabled) {
+            return;
+        }
+        userTimelineRepository.prune(followerId, followedId);
+    }
+
+    public List<RecommendationRepository.Card> findTimeline(Integer userId, Pageable pageable) {
+        return userTimelineRepository.findTimeline(userId, pageable);
+    }
+
+    public List<RecommendationRepository.Card> findTimelineAfter(Integer userId, LocalDate createdAt, Integer id, Pageable pageable) {
+        return userTimelineRepository.findTimelineAfter(userId, createdAt, id, pageable);
+    }
+
+    // While timeline mode is off, recommendations, follows and unfollows are not applied to the
+    // table, so whatever it holds goes stale. Each time the mode is switched on again the table is
+    // cleared and rebuilt from the follow graph.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedTimelines() {
+        if (!enabled) {
+            appStateRepository.deleteById(TIMELINES_LIVE);
+            return;
+        }
+        if (!appStateRepository.existsById(TIMELINES_LIVE)) {
+            userTimelineRepository.deleteAllInBatch();
+            userTimelineRepository.rebuildAll();
+            userTimelineRepository.trim(capacity);
+            appStateRepository.save(new AppState(TIMELINES_LIVE, LocalDateTime.now()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.feed.timeline.trim-interval-ms:3600000}")
+    @Transactional
+    public void trimTimelines() {
+        if (enabled) {
+            userTimelineRepository.trim(capacity);
+        }
+    }
+}
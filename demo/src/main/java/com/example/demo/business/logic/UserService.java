@@ -1,17 +1,33 @@
 package com.example.demo.business.logic;
 
+import com.example.demo.config.CacheConfig;
 import com.example.demo.data.access.FollowedUserRepository;
 import com.example.demo.data.access.UserRepository;
 import com.example.demo.dto.LoginDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.dto.UserDTO;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -19,6 +35,15 @@ import java.util.stream.Collectors;
 public class UserService {
     private final UserRepository userRepository;
     private final FollowedUserRepository followedUserRepository;
+    private final TimelineService timelineService;
+    private final SuggestionService suggestionService;
+    private final FollowGraphService followGraphService;
+    private final StartupMigrations startupMigrations;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Value("${app.users.recalculate-counters-on-startup:false}")
+    private boolean recalculateCountersOnStartup;
 
     @Transactional
     public String save(UserDTO userDTO) {
@@ -51,30 +76,46 @@ public class UserService {
 
         // Save the user
         User savedUser = userRepository.save(user);
+        suggestionService.addUser(savedUser);
 
         // Return the ID of saved user
         return savedUser.getId().toString();
     }
 
-    public UserService(UserRepository userRepository, FollowedUserRepository followedUserRepository) {
+    public UserService(UserRepository userRepository, FollowedUserRepository followedUserRepository,
+                       TimelineService timelineService, SuggestionService suggestionService,
+                       FollowGraphService followGraphService, StartupMigrations startupMigrations) {
         this.userRepository = userRepository;
         this.followedUserRepository = followedUserRepository;
+        this.timelineService = timelineService;
+        this.suggestionService = suggestionService;
+        this.followGraphService = followGraphService;
+        this.startupMigrations = startupMigrations;
     }
 
     public Optional<User> findById(Integer id) {
         return userRepository.findById(id);
     }
 
+    // Read-only profile view; the entity itself is cached by Hibernate, this also saves the relation query
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#id", unless = "#result == null")
+    public Optional<UserDTO> getUser(Integer id) {
+        return userRepository.findById(id).map(this::convertToDTO);
+    }
+
     public Optional<User> findByUsername(String username) {
         System.out.println(username);
         return userRepository.findByUsername(username);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#result.id")
     public User save(User user) {
         if (user.getRegistrationDate() == null) {
             user.setRegistrationDate(LocalDate.now());
         }
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        suggestionService.addUser(savedUser);
+        return savedUser;
     }
 
     public List<User> findMostActiveUsers() {
@@ -82,11 +123,15 @@ public class UserService {
     }
 
     public List<User> getFollowers(Integer userId) {
-        return userRepository.findFollowersByUserId(userId);
+        return userRepository.findAllById(ids(followGraphService.followers(userId)));
     }
 
     public List<User> getFollowing(Integer userId) {
-        return userRepository.findFollowedUsersByUserId(userId);
+        return userRepository.findAllById(ids(followGraphService.following(userId)));
+    }
+
+    public boolean isFollowing(Integer followerId, Integer followedId) {
+        return followGraphService.isFollowing(followerId, followedId);
     }
 
     public LoginResponse loginUser(LoginDTO loginDTO) {
@@ -120,69 +165,180 @@ public class UserService {
     }
 
     public List<UserDTO> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        return users.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(userRepository.findAll());
+    }
+
+    public PageDTO<UserSummaryDTO> getDirectory(String query, Integer viewerId, Integer page, Integer size) {
+        // Backslash is the LIKE escape character, so it is escaped before the wildcards
+        String prefix = query == null || query.isBlank()
+                ? null
+                : query.trim().toLowerCase(Locale.ROOT)
+                        .replace("\\", "\\\\")
+                        .replace("%", "\\%")
+                        .replace("_", "\\_") + "%";
+        Page<UserSummaryDTO> users = userRepository.findSummaries(prefix, pageRequest(page, size, "username"));
+        return withViewer(users, viewerId);
+    }
+
+    // Most active users by number of recommendations
+    public PageDTO<UserSummaryDTO> getTopUsers(Integer viewerId, Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : Math.max(page, 0);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Page<UserSummaryDTO> users = userRepository.findTopSummaries(PageRequest.of(pageNumber, pageSize));
+        return withViewer(users, viewerId);
     }
 
+    // Neighbour pages come from the follow graph in user id order, so only the page's rows are read
+    public PageDTO<UserSummaryDTO> getFollowersPage(Integer userId, Integer viewerId, Integer page, Integer size) {
+        PageRequest request = pageRequest(page, size, "id");
+        return graphPage(followGraphService.followersPage(userId, (int) request.getOffset(), request.getPageSize()),
+                followGraphService.followerCount(userId), request, viewerId);
+    }
+
+    public PageDTO<UserSummaryDTO> getFollowingPage(Integer userId, Integer viewerId, Integer page, Integer size) {
+        PageRequest request = pageRequest(page, size, "id");
+        return graphPage(followGraphService.followingPage(userId, (int) request.getOffset(), request.getPageSize()),
+                followGraphService.followingCount(userId), request, viewerId);
+    }
+
+    // Users the user follows who also follow them back
+    public PageDTO<UserSummaryDTO> getMutualsPage(Integer userId, Integer viewerId, Integer page, Integer size) {
+        PageRequest request = pageRequest(page, size, "id");
+        int[] mutuals = followGraphService.mutuals(userId);
+        int from = (int) Math.min(request.getOffset(), mutuals.length);
+        int to = Math.min(from + request.getPageSize(), mutuals.length);
+        return graphPage(Arrays.copyOfRange(mutuals, from, to), mutuals.length, request, viewerId);
+    }
+
+    private PageDTO<UserSummaryDTO> graphPage(int[] userIds, int total, PageRequest request, Integer viewerId) {
+        Map<Integer, UserSummaryDTO> byId = new HashMap<>();
+        if (userIds.length > 0) {
+            userRepository.findSummariesByIds(ids(userIds)).forEach(user -> byId.put(user.getId(), user));
+        }
+        List<UserSummaryDTO> users = new ArrayList<>();
+        for (int id : userIds) {
+            UserSummaryDTO user = byId.get(id);
+            if (user != null) {
+                if (viewerId != null) {
+                    user.setFollowedByViewer(followGraphService.isFollowing(viewerId, id));
+                }
+                users.add(user);
+            }
+        }
+        int totalPages = (total + request.getPageSize() - 1) / request.getPageSize();
+        return new PageDTO<>(users, request.getPageNumber(), request.getPageSize(), total, totalPages);
+    }
+
+    private static List<Integer> ids(int[] userIds) {
+        return Arrays.stream(userIds).boxed().collect(Collectors.toList());
+    }
+
+    private PageRequest pageRequest(Integer page, Integer size, String sortProperty) {
+        int pageNumber = page == null ? 0 : Math.max(page, 0);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return PageRequest.of(pageNumber, pageSize, Sort.by(sortProperty));
+    }
+
+    // Marks the users on the page that the viewer follows, from the follow graph
+    private PageDTO<UserSummaryDTO> withViewer(Page<UserSummaryDTO> users, Integer viewerId) {
+        if (viewerId != null) {
+            users.getContent().forEach(user ->
+                    user.setFollowedByViewer(followGraphService.isFollowing(viewerId, user.getId())));
+        }
+        return PageDTO.from(users);
+    }
+
+    // Counter columns start at 0 when they are first added, so they are recounted once per database
+    @EventListener(ApplicationReadyEvent.class)
     @Transactional
+    public void recalculateCounters() {
+        startupMigrations.runOnce("counters.user", recalculateCountersOnStartup, userRepository::recalculateCounters);
+    }
+
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#followerId"),
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#followedId")
+    })
     public void followUser(Integer followerId, Integer followedId) {
         if (followerId.equals(followedId)) {
             throw new RuntimeException("Users cannot follow themselves");
         }
 
-        User follower = userRepository.findById(followerId)
-                .orElseThrow(() -> new RuntimeException("Follower user not found"));
-        User followed = userRepository.findById(followedId)
-                .orElseThrow(() -> new RuntimeException("Followed user not found"));
+        userRepository.findById(followerId).orElseThrow(() -> new RuntimeException("Follower user not found"));
+        userRepository.findById(followedId).orElseThrow(() -> new RuntimeException("Followed user not found"));
 
-        if (followedUserRepository.isFollowing(followerId, followedId)) {
+        // The table decides, not the follow graph: it may lag behind other instances or uncommitted writes
+        if (followedUserRepository.insertIfAbsent(followerId, followedId, LocalDate.now()) == 0) {
             throw new RuntimeException("Already following this user");
         }
 
-        FollowedUser followedUser = new FollowedUser();
-        followedUser.setFollower(follower);
-        followedUser.setFollowed(followed);
-        followedUser.setCreatedAt(LocalDate.now());
-
-        followedUserRepository.save(followedUser);
+        userRepository.adjustFollowingCount(followerId, 1);
+        userRepository.adjustFollowerCount(followedId, 1);
+        timelineService.onFollow(followerId, followedId);
+        followGraphService.onFollow(followerId, followedId);
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#followerId"),
+            @CacheEvict(cacheNames = CacheConfig.USERS, key = "#followedId")
+    })
     public void unfollowUser(Integer followerId, Integer followedId) {
         if (followerId.equals(followedId)) {
             throw new RuntimeException("Users cannot unfollow themselves");
         }
 
-        // Create a composite key
-        FollowedUserId id = new FollowedUserId(followerId, followedId);
-
-        if (!followedUserRepository.existsById(id)) {
+        if (followedUserRepository.deleteIfPresent(followerId, followedId) == 0) {
             throw new RuntimeException("Follow relationship does not exist");
         }
 
-        followedUserRepository.deleteById(id);
+        userRepository.adjustFollowingCount(followerId, -1);
+        userRepository.adjustFollowerCount(followedId, -1);
+        timelineService.onUnfollow(followerId, followedId);
+        followGraphService.onUnfollow(followerId, followedId);
     }
 
     public UserDTO convertToDTO(User user) {
-        List<Integer> recommendationIds = user.getRecommendations().stream()
-                .map(Recommendation::getId)
-                .collect(Collectors.toList());
+        return convertToDTOs(List.of(user)).get(0);
+    }
 
-        List<Integer> commentIds = user.getComments().stream()
-                .map(Comment::getId)
-                .collect(Collectors.toList());
+    // Converts a batch of users with a single query for all of their id lists,
+    // instead of four lazy collection loads per user.
+    public List<UserDTO> convertToDTOs(List<User> users) {
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        List<Integer> followingIds = user.getFollowing().stream()
-                .map(fu -> fu.getFollowed().getId())
-                .collect(Collectors.toList());
+        Map<Integer, UserRelations> relations = new HashMap<>();
+        for (User user : users) {
+            relations.put(user.getId(), new UserRelations());
+        }
+        for (UserRepository.UserRelation row : userRepository.findRelationsByUserIds(relations.keySet())) {
+            UserRelations owner = relations.get(row.getOwnerId());
+            switch (row.getKind()) {
+                case "R" -> owner.recommendationIds.add(row.getRelatedId());
+                case "C" -> owner.commentIds.add(row.getRelatedId());
+                case "F" -> owner.followingIds.add(row.getRelatedId());
+                case "B" -> owner.followerIds.add(row.getRelatedId());
+                default -> throw new IllegalStateException("Unknown relation kind " + row.getKind());
+            }
+        }
 
-        List<Integer> followerIds = user.getFollowers().stream()
-                .map(fu -> fu.getFollower().getId())
+        return users.stream()
+                .map(user -> buildDTO(user, relations.get(user.getId())))
                 .collect(Collectors.toList());
+    }
+
+    private static class UserRelations {
+        private final List<Integer> recommendationIds = new ArrayList<>();
+        private final List<Integer> commentIds = new ArrayList<>();
+        private final List<Integer> followingIds = new ArrayList<>();
+        private final List<Integer> followerIds = new ArrayList<>();
+    }
 
-        return new UserDTO(
+    private UserDTO buildDTO(User user, UserRelations relations) {
+        UserDTO dto = new UserDTO(
                 user.getId(),
                 user.getUsername(),
                 null, // Don't send password
@@ -192,14 +348,20 @@ public class UserService {
                 user.getRole(),
                 user.getDescription(),
                 user.getRegistrationDate(),
-                recommendationIds,
-                commentIds,
-                followingIds,
-                followerIds
+                relations.recommendationIds,
+                relations.commentIds,
+                relations.followingIds,
+                relations.followerIds
         );
+        dto.setRecommendationCount(user.getRecommendationCount());
+        dto.setCommentCount(user.getCommentCount());
+        dto.setFollowerCount(user.getFollowerCount());
+        dto.setFollowingCount(user.getFollowingCount());
+        return dto;
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id")
     public UserDTO updateUser(Integer id, UserDTO userDTO) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Application-level caches of assembled DTOs. Entity rows are cached separately by
+// Hibernate's second-level cache (regions configured in application.conf).
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String MOVIES = "movies";
+    public static final String MOVIE_PAGES = "moviePages";
+    public static final String USERS = "users";
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Explicit invalidation covers edits; the TTL bounds staleness from writes that don't evict
+        cacheManager.registerCustomCache(MOVIES, Caffeine.newBuilder()
+                .maximumSize(5_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(MOVIE_PAGES, Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .recordStats()
+                .build());
+        // User DTOs carry follower/recommendation ids that other services change, so keep them short-lived
+        cacheManager.registerCustomCache(USERS, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(30))
+                .recordStats()
+                .build());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
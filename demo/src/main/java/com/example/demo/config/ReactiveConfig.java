@@ -0,0 +1,110 @@
+package com.example.demo.config;
+
+import com.example.demo.presentation.ReactiveReadHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+
+// Reactive read stack (profile "reactive"): WebFlux functional routes over R2DBC, served by a
+// Reactor Netty server on app.reactive.port next to the MVC application on server.port.
+//
+// The R2DBC connection pool is deliberately not a bean: a ConnectionFactory bean would switch
+// off Spring Boot's DataSource auto-configuration, which JPA still needs. For the same reason
+// Boot's R2DBC auto-configuration is excluded in application.properties.
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(@Value("${app.reactive.r2dbc.url}") String url,
+                                                 @Value("${app.reactive.r2dbc.username}") String username,
+                                                 @Value("${app.reactive.r2dbc.password}") String password,
+                                                 @Value("${app.reactive.r2dbc.pool.max-size:20}") int maxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(maxSize)
+                .maxAcquireTime(Duration.ofSeconds(5))
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void closeConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactiveReadHandler handler) {
+        return RouterFunctions.route()
+                .GET("/api/v1/recommendations/followed/{userId}/feed", handler::feed)
+                .GET("/api/v1/recommendations/movie/{movieId}", handler::movieRecommendations)
+                .GET("/api/v1/recommendations/top", handler::topRecommendations)
+                .GET("/api/v1/movies", handler::movies)
+                .GET("/api/v1/movies/top", handler::topMovies)
+                .GET("/api/v1/comments/recommendation/{recommendationId}/thread", handler::commentThread)
+                // Handlers parse parameters eagerly, so defer them to turn bad input into a 400
+                .filter((request, next) -> Mono.defer(() -> next.handle(request))
+                        .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest().build()))
+                .build();
+    }
+
+    // Same JSON settings as the MVC endpoints and the same open CORS policy as CorsConfig
+    public static HttpHandler httpHandler(RouterFunction<ServerResponse> routes, ObjectMapper objectMapper) {
+        CorsConfiguration cors = new CorsConfiguration();
+        cors.addAllowedOriginPattern("*");
+        cors.addAllowedMethod("*");
+        cors.addAllowedHeader("*");
+        UrlBasedCorsConfigurationSource corsSource = new UrlBasedCorsConfigurationSource();
+        corsSource.registerCorsConfiguration("/api/**", cors);
+
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .webFilter(new CorsWebFilter(corsSource))
+                .build();
+        return RouterFunctions.toHttpHandler(routes, strategies);
+    }
+
+    @Bean(destroyMethod = "disposeNow")
+    public DisposableServer reactiveServer(RouterFunction<ServerResponse> reactiveRoutes, ObjectMapper objectMapper,
+                                           @Value("${app.reactive.port:8081}") int port) {
+        DisposableServer server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler(reactiveRoutes, objectMapper)))
+                .bindNow();
+        System.out.println("Reactive read endpoints listening on port " + server.port());
+        return server;
+    }
+}
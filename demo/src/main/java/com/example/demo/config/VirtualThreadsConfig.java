@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+// Active with spring.threads.virtual.enabled=true (the "virtual" profile). Spring Boot then runs
+// Tomcat requests, @Async methods and @Scheduled tasks on virtual threads.
+//
+// A virtual thread blocked inside a synchronized block pins its carrier thread (until JDK 24),
+// so a JDBC driver that does socket I/O under synchronized would cap throughput at the number
+// of carriers. MySQL Connector/J replaced those monitors with ReentrantLocks in 9.0 and
+// HikariCP did the same in 5.1; this warns at startup when an older driver is in use.
+// Run with the virtual-threads Maven profile to trace any remaining pinning.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+    private static final int MIN_MYSQL_DRIVER_MAJOR_VERSION = 9;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkJdbcDriver(ApplicationReadyEvent event) throws SQLException {
+        DataSource dataSource = event.getApplicationContext().getBean(DataSource.class);
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (metaData.getDriverName().contains("MySQL")
+                    && metaData.getDriverMajorVersion() < MIN_MYSQL_DRIVER_MAJOR_VERSION) {
+                System.out.println("WARNING: virtual threads are enabled but " + metaData.getDriverName() + " "
+                        + metaData.getDriverVersion() + " synchronizes its socket I/O and will pin carrier "
+                        + "threads; upgrade to mysql-connector-j " + MIN_MYSQL_DRIVER_MAJOR_VERSION + " or later");
+            }
+        }
+    }
+}
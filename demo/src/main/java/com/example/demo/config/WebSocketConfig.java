@@ -0,0 +1,78 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.security.Principal;
+import java.util.Map;
+
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    private final String broker;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+
+    public WebSocketConfig(@Value("${app.messaging.broker:simple}") String broker,
+                           @Value("${app.messaging.relay.host:localhost}") String relayHost,
+                           @Value("${app.messaging.relay.port:61613}") int relayPort,
+                           @Value("${app.messaging.relay.login:guest}") String relayLogin,
+                           @Value("${app.messaging.relay.passcode:guest}") String relayPasscode) {
+        this.broker = broker;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new UserIdHandshakeHandler());
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+        if ("relay".equalsIgnoreCase(broker)) {
+            // External STOMP broker (RabbitMQ, ActiveMQ) so several app instances share sessions;
+            // needs reactor-netty on the classpath
+            registry.enableStompBrokerRelay("/queue", "/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+        } else {
+            registry.enableSimpleBroker("/queue", "/topic");
+        }
+    }
+
+    // Binds the session to the user id passed on the handshake (/ws?userId=..) so
+    // /user/queue/** destinations resolve; the app has no server-side login session to use instead
+    static class UserIdHandshakeHandler extends DefaultHandshakeHandler {
+        @Override
+        protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                          Map<String, Object> attributes) {
+            String userId = UriComponentsBuilder.fromUri(request.getURI()).build()
+                    .getQueryParams().getFirst("userId");
+            if (userId == null || userId.isBlank()) {
+                return super.determineUser(request, wsHandler, attributes);
+            }
+            return () -> userId;
+        }
+    }
+}
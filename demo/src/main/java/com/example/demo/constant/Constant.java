@@ -2,5 +2,6 @@ package com.example.demo.constant;
 
 public class Constant {
     public static final String PHOTO_DIRECTORY = System.getProperty("user.home") + "/Downloads/Uploads/";
+    public static final String POSTER_DIRECTORY = PHOTO_DIRECTORY + "posters/";
     public static final String X_REQUESTED_WITH = "X-Requested-With";
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.AppState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AppStateRepository extends JpaRepository<AppState, String> {
+}
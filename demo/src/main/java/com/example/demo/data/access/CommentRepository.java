@@ -1,6 +1,7 @@
 package com.example.demo.data.access;
 
 import com.example.demo.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,9 +21,40 @@ public interface CommentRepository extends JpaRepository<Comment, Integer> {
             "ORDER BY c.createdAt DESC")
     List<Comment> findByRecommendationIdOrderByCreatedAtDesc(@Param("recommendationId") Integer recommendationId);
 
+    // One row of a comment thread with just enough of its author to label it
+    interface ThreadComment {
+        Integer getId();
+        String getContent();
+        LocalDate getCreatedAt();
+        Integer getAuthorId();
+        String getAuthorUsername();
+        String getAuthorForename();
+        String getAuthorSurename();
+    }
+
+    // First page of a recommendation's thread, read in order from idx_comment_recommendation_created_id
+    @Query("SELECT c.id AS id, c.content AS content, c.createdAt AS createdAt, " +
+            "u.id AS authorId, u.username AS authorUsername, u.forename AS authorForename, u.surename AS authorSurename " +
+            "FROM Comment c JOIN c.user u " +
+            "WHERE c.recommendation.id = :recommendationId " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ThreadComment> findThread(@Param("recommendationId") Integer recommendationId, Pageable pageable);
+
+    // Next page of the thread, strictly after the (createdAt, id) cursor
+    @Query("SELECT c.id AS id, c.content AS content, c.createdAt AS createdAt, " +
+            "u.id AS authorId, u.username AS authorUsername, u.forename AS authorForename, u.surename AS authorSurename " +
+            "FROM Comment c JOIN c.user u " +
+            "WHERE c.recommendation.id = :recommendationId " +
+            "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ThreadComment> findThreadAfter(@Param("recommendationId") Integer recommendationId,
+                                        @Param("createdAt") LocalDate createdAt,
+                                        @Param("id") Integer id,
+                                        Pageable pageable);
+
     // Find comments by user ID, ordered by creation date
     @Query("SELECT c FROM Comment c " +
-            "LEFT JOIN FETCH c.recommendation " +
+            "JOIN FETCH c.user " +
             "WHERE c.user.id = :userId " +
             "ORDER BY c.createdAt DESC")
     List<Comment> findByUserId(@Param("userId") Integer userId);
@@ -55,6 +87,16 @@ public interface CommentRepository extends JpaRepository<Comment, Integer> {
             "ORDER BY c.createdAt DESC")
     List<Comment> searchByContent(@Param("searchTerm") String searchTerm);
 
+    // Searchable text of every comment, titled by its author
+    interface CommentText {
+        Integer getId();
+        String getTitle();
+        String getContent();
+    }
+
+    @Query("SELECT c.id AS id, c.user.username AS title, c.content AS content FROM Comment c")
+    List<CommentText> findAllText();
+
     // Get comment count by user
     @Query("SELECT COUNT(c) FROM Comment c WHERE c.user.id = :userId")
     Integer countByUserId(@Param("userId") Integer userId);
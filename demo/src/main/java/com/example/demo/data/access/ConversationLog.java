@@ -0,0 +1,622 @@
+package com.example.demo.data.access;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// One conversation's messages as a directory of append-only segment files, used by MessageLogStore.
+// Records are only appended to the newest (active) segment; older segments are sealed and only
+// rewritten by compact(). Reads decode sealed segments straight from a mapping of the file and read
+// the active one through its channel, using a sparse in-memory index (every indexInterval-th
+// message) to find where a page starts.
+//
+// Record: payload length (int) | CRC32 of payload (int) | payload
+//   message:   1 (byte) | id | senderId | receiverId | sentAt epoch second (long) | nanos | UTF-8 content
+//   read mark: 2 (byte) | receiverId | upToId
+// A read mark says that everything sent to receiverId up to upToId has been read. Only the newest
+// mark per receiver matters, so compaction drops the older ones.
+class ConversationLog implements Closeable {
+    private static final byte MESSAGE = 1;
+    private static final byte READ_MARK = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MESSAGE_FIXED_BYTES = 1 + 4 + 4 + 4 + 8 + 4;
+    private static final int READ_MARK_BYTES = 1 + 4 + 4;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    record Draft(int senderId, int receiverId, LocalDateTime sentAt, String content) {
+    }
+
+    // Thrown when the log was closed (evicted) between lookup and use; the caller reopens it
+    static class ClosedException extends IllegalStateException {
+        ClosedException() {
+            super("Conversation log is closed");
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexInterval;
+    private final boolean syncOnAppend;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Integer, Integer> readMarks = new HashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private int lastId;
+    private boolean closed;
+    private volatile long lastUsed = System.nanoTime();
+
+    private ConversationLog(Path directory, int segmentBytes, int indexInterval, boolean syncOnAppend) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    // Opens the segments in the directory (creating it if needed), rebuilding the index and read marks
+    static ConversationLog open(Path directory, int segmentBytes, int indexInterval, boolean syncOnAppend)
+            throws IOException {
+        Files.createDirectories(directory);
+        ConversationLog log = new ConversationLog(directory, segmentBytes, indexInterval, syncOnAppend);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted().toList();
+        }
+        try {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(COMPACTING_SUFFIX)) {
+                    // Unfinished compaction output; its inputs are still in place
+                    Files.delete(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    int previousLastId = log.lastId;
+                    long sequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    Segment segment = log.load(file, sequence);
+                    // Ids only grow, so messages at or below what earlier segments hold were already
+                    // copied into a merged segment by a compaction that did not get to delete its inputs
+                    if (segment.messageCount > 0 && segment.firstId <= previousLastId) {
+                        segment.channel.close();
+                        Files.delete(file);
+                    } else {
+                        log.segments.add(segment);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        for (int i = 0; i < log.segments.size() - 1; i++) {
+            log.segments.get(i).sealed = true;
+        }
+        return log;
+    }
+
+    long lastUsed() {
+        return lastUsed;
+    }
+
+    // Appends the messages in order with ids from the supplier, so ids only grow within the log
+    List<StoredMessage> append(List<Draft> drafts, IntSupplier ids) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<StoredMessage> entries = new ArrayList<>(drafts.size());
+            List<ByteBuffer> records = new ArrayList<>(drafts.size());
+            for (Draft draft : drafts) {
+                int id = ids.getAsInt();
+                records.add(messageRecord(id, draft));
+                entries.add(new StoredMessage(id, draft.senderId(), draft.receiverId(), draft.sentAt(),
+                        draft.content(), false));
+            }
+            write(records);
+            return entries;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Newest first
+    List<StoredMessage> latest(int limit) throws IOException {
+        return before(Integer.MAX_VALUE, limit);
+    }
+
+    // Newest first, ids below beforeId
+    List<StoredMessage> before(int beforeId, int limit) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<StoredMessage> page = new ArrayList<>(limit);
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                Segment segment = segments.get(i);
+                if (segment.messageCount == 0 || segment.firstId >= beforeId) {
+                    continue;
+                }
+                for (int chunk = segment.floorChunk(beforeId - 1); chunk >= 0; chunk--) {
+                    List<StoredMessage> entries = decodeChunk(segment, chunk);
+                    for (int k = entries.size() - 1; k >= 0; k--) {
+                        if (entries.get(k).id() < beforeId) {
+                            page.add(entries.get(k));
+                            if (page.size() == limit) {
+                                return page;
+                            }
+                        }
+                    }
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Oldest first, ids above afterId
+    List<StoredMessage> after(int afterId, int limit) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return afterLocked(afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<StoredMessage> afterLocked(int afterId, int limit) throws IOException {
+        List<StoredMessage> page = new ArrayList<>(Math.min(limit, 256));
+        for (Segment segment : segments) {
+            if (segment.messageCount == 0 || segment.lastId <= afterId) {
+                continue;
+            }
+            for (int chunk = Math.max(segment.floorChunk(afterId), 0); chunk < segment.indexSize; chunk++) {
+                for (StoredMessage entry : decodeChunk(segment, chunk)) {
+                    if (entry.id() > afterId) {
+                        page.add(entry);
+                        if (page.size() == limit) {
+                            return page;
+                        }
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    // Appends a read mark covering everything received so far, returns how many messages it marked read
+    int markRead(int receiverId) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            int unread = countUnreadLocked(receiverId);
+            if (unread > 0) {
+                ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + READ_MARK_BYTES);
+                record.position(HEADER_BYTES);
+                record.put(READ_MARK).putInt(receiverId).putInt(lastId);
+                write(List.of(seal(record)));
+            }
+            return unread;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int countUnread(int receiverId) throws IOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return countUnreadLocked(receiverId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int countUnreadLocked(int receiverId) throws IOException {
+        int unread = 0;
+        for (StoredMessage entry : afterLocked(readMarks.getOrDefault(receiverId, 0), Integer.MAX_VALUE)) {
+            if (entry.receiverId() == receiverId) {
+                unread++;
+            }
+        }
+        return unread;
+    }
+
+    // Forces appended records to disk if anything was written since the last call
+    void force() throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!closed && dirty.getAndSet(false)) {
+                active().channel.force(false);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rewrites sealed segments without superseded read marks, merging neighbours whose live records
+    // fit into one segment. Returns the number of segments rewritten.
+    int compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            int rewritten = 0;
+            // The active segment is never compacted
+            for (int i = 0; i < segments.size() - 1; i++) {
+                int end = i;
+                long live = 0;
+                boolean garbage = false;
+                while (end < segments.size() - 1) {
+                    Segment segment = segments.get(end);
+                    long segmentLive = segment.size - deadBytes(segment);
+                    if (end > i && live + segmentLive > segmentBytes) {
+                        break;
+                    }
+                    live += segmentLive;
+                    garbage |= segmentLive < segment.size;
+                    end++;
+                }
+                if (end - i > 1 || garbage) {
+                    rewrite(i, end);
+                    rewritten += end - i;
+                }
+            }
+            return rewritten;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            IOException failure = null;
+            for (Segment segment : segments) {
+                try {
+                    if (segment == segments.get(segments.size() - 1) && dirty.getAndSet(false)) {
+                        segment.channel.force(false);
+                    }
+                    segment.channel.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new ClosedException();
+        }
+        lastUsed = System.nanoTime();
+    }
+
+    private Segment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    // Writes the records to the active segment, rolling to a new one whenever it would outgrow segmentBytes
+    private void write(List<ByteBuffer> records) throws IOException {
+        if (segments.isEmpty()) {
+            segments.add(Segment.create(segmentPath(0), 0));
+        }
+        List<ByteBuffer> group = new ArrayList<>();
+        long groupBytes = 0;
+        for (ByteBuffer record : records) {
+            Segment segment = active();
+            if (segment.size + groupBytes > 0 && segment.size + groupBytes + record.remaining() > segmentBytes) {
+                writeGroup(segment, group);
+                group.clear();
+                groupBytes = 0;
+                // Sealed segments never change again, so make them durable now
+                segment.channel.force(false);
+                segment.sealed = true;
+                segments.add(Segment.create(segmentPath(segment.sequence + 1), segment.sequence + 1));
+            }
+            group.add(record);
+            groupBytes += record.remaining();
+        }
+        writeGroup(active(), group);
+        if (syncOnAppend) {
+            active().channel.force(false);
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    private void writeGroup(Segment segment, List<ByteBuffer> group) throws IOException {
+        if (group.isEmpty()) {
+            return;
+        }
+        int start = segment.size;
+        ByteBuffer[] buffers = group.toArray(ByteBuffer[]::new);
+        try {
+            segment.channel.position(start);
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                segment.channel.write(buffers);
+            }
+        } catch (IOException e) {
+            // Drop the partial write so the segment still ends on a record boundary
+            segment.channel.truncate(start);
+            throw e;
+        }
+        int position = start;
+        for (ByteBuffer record : group) {
+            register(segment, record, 0, position);
+            position += record.limit();
+        }
+        segment.size = position;
+    }
+
+    private void register(Segment segment, ByteBuffer buffer, int offset, int position) {
+        int payload = offset + HEADER_BYTES;
+        if (buffer.get(payload) == MESSAGE) {
+            int id = buffer.getInt(payload + 1);
+            if (segment.messageCount % indexInterval == 0) {
+                segment.addIndexEntry(id, position);
+            }
+            if (segment.messageCount == 0) {
+                segment.firstId = id;
+            }
+            segment.lastId = id;
+            segment.messageCount++;
+            lastId = Math.max(lastId, id);
+        } else {
+            readMarks.merge(buffer.getInt(payload + 1), buffer.getInt(payload + 5), Math::max);
+            segment.markCount++;
+        }
+    }
+
+    // Scans a segment file, indexing valid records and truncating at the first torn or corrupt one
+    private Segment load(Path path, long sequence) throws IOException {
+        Segment segment = Segment.open(path, sequence);
+        long fileSize = segment.channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            segment.channel.close();
+            throw new IOException("Segment too large: " + path);
+        }
+        ByteBuffer view = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + HEADER_BYTES <= fileSize) {
+            int length = view.getInt(position);
+            if (length < READ_MARK_BYTES || length > fileSize - position - HEADER_BYTES) {
+                break;
+            }
+            byte type = view.get(position + HEADER_BYTES);
+            if (type != READ_MARK && (type != MESSAGE || length < MESSAGE_FIXED_BYTES)) {
+                break;
+            }
+            crc.reset();
+            crc.update(view.slice(position + HEADER_BYTES, length));
+            if ((int) crc.getValue() != view.getInt(position + 4)) {
+                break;
+            }
+            register(segment, view, position, position);
+            position += HEADER_BYTES + length;
+        }
+        if (position < fileSize) {
+            System.out.println("WARNING: truncating " + (fileSize - position) + " bytes of incomplete records in " + path);
+            segment.channel.truncate(position);
+            segment.channel.force(false);
+        }
+        segment.size = position;
+        return segment;
+    }
+
+    private List<StoredMessage> decodeChunk(Segment segment, int chunk) throws IOException {
+        int start = segment.indexPositions[chunk];
+        int end = chunk + 1 < segment.indexSize ? segment.indexPositions[chunk + 1] : segment.size;
+        ByteBuffer view = segment.read(start, end);
+        List<StoredMessage> entries = new ArrayList<>(indexInterval);
+        for (int position = 0; position < end - start; ) {
+            int length = view.getInt(position);
+            int payload = position + HEADER_BYTES;
+            if (view.get(payload) == MESSAGE) {
+                int id = view.getInt(payload + 1);
+                int senderId = view.getInt(payload + 5);
+                int receiverId = view.getInt(payload + 9);
+                LocalDateTime sentAt = LocalDateTime.ofEpochSecond(view.getLong(payload + 13),
+                        view.getInt(payload + 21), ZoneOffset.UTC);
+                byte[] content = new byte[length - MESSAGE_FIXED_BYTES];
+                view.get(payload + MESSAGE_FIXED_BYTES, content);
+                entries.add(new StoredMessage(id, senderId, receiverId, sentAt,
+                        new String(content, StandardCharsets.UTF_8), id <= readMarks.getOrDefault(receiverId, 0)));
+            }
+            position = payload + length;
+        }
+        return entries;
+    }
+
+    private int deadBytes(Segment segment) throws IOException {
+        if (segment.markCount == 0) {
+            return 0;
+        }
+        ByteBuffer view = segment.read(0, segment.size);
+        int dead = 0;
+        for (int position = 0; position < segment.size; ) {
+            int length = view.getInt(position);
+            if (isSupersededMark(view, position)) {
+                dead += HEADER_BYTES + length;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return dead;
+    }
+
+    private boolean isSupersededMark(ByteBuffer view, int position) {
+        int payload = position + HEADER_BYTES;
+        return view.get(payload) == READ_MARK
+                && view.getInt(payload + 5) < readMarks.getOrDefault(view.getInt(payload + 1), 0);
+    }
+
+    // Copies the live records of segments [from, to) into one file that replaces the first of them
+    private void rewrite(int from, int to) throws IOException {
+        List<Segment> inputs = new ArrayList<>(segments.subList(from, to));
+        Segment first = inputs.get(0);
+        Path temporary = directory.resolve(first.path.getFileName() + COMPACTING_SUFFIX);
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Segment segment : inputs) {
+                ByteBuffer view = segment.read(0, segment.size);
+                for (int position = 0; position < segment.size; ) {
+                    int recordBytes = HEADER_BYTES + view.getInt(position);
+                    if (!isSupersededMark(view, position)) {
+                        ByteBuffer record = view.slice(position, recordBytes);
+                        while (record.hasRemaining()) {
+                            out.write(record);
+                        }
+                    }
+                    position += recordBytes;
+                }
+            }
+            out.force(false);
+        }
+        for (Segment segment : inputs) {
+            segment.channel.close();
+        }
+        // The merged file replaces the first input before the others are deleted; if that is
+        // interrupted, open() recognises the leftovers by their ids and removes them
+        Files.move(temporary, first.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Segment segment : inputs.subList(1, inputs.size())) {
+            Files.delete(segment.path);
+        }
+        segments.subList(from + 1, to).clear();
+        Segment merged = load(first.path, first.sequence);
+        merged.sealed = true;
+        segments.set(from, merged);
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%016d%s", sequence, SEGMENT_SUFFIX));
+    }
+
+    private static ByteBuffer messageRecord(int id, Draft draft) {
+        byte[] content = draft.content().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + MESSAGE_FIXED_BYTES + content.length);
+        record.position(HEADER_BYTES);
+        record.put(MESSAGE)
+                .putInt(id)
+                .putInt(draft.senderId())
+                .putInt(draft.receiverId())
+                .putLong(draft.sentAt().toEpochSecond(ZoneOffset.UTC))
+                .putInt(draft.sentAt().getNano())
+                .put(content);
+        return seal(record);
+    }
+
+    // Fills in the header of a record whose payload has been written after it
+    private static ByteBuffer seal(ByteBuffer record) {
+        int length = record.position() - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long sequence;
+        private final FileChannel channel;
+        private volatile MappedByteBuffer mapped;
+        // Set once a newer segment takes the appends; only then is the file mapped
+        private boolean sealed;
+        private int size;
+        private int firstId;
+        private int lastId;
+        private int messageCount;
+        private int markCount;
+        // Id and file position of every indexInterval-th message
+        private int[] indexIds = new int[8];
+        private int[] indexPositions = new int[8];
+        private int indexSize;
+
+        private Segment(Path path, long sequence, FileChannel channel) {
+            this.path = path;
+            this.sequence = sequence;
+            this.channel = channel;
+        }
+
+        static Segment open(Path path, long sequence) throws IOException {
+            return new Segment(path, sequence, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        static Segment create(Path path, long sequence) throws IOException {
+            return new Segment(path, sequence, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        // Bytes [start, end) of the segment, at positions relative to start. A sealed segment is
+        // mapped once; the active one is still growing, so it is read through the channel instead
+        // of being remapped after every append.
+        ByteBuffer read(int start, int end) throws IOException {
+            if (sealed) {
+                MappedByteBuffer current = mapped;
+                if (current == null) {
+                    current = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    mapped = current;
+                }
+                return current.slice(start, end - start);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(end - start);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException("Segment ends before position " + end + ": " + path);
+                }
+            }
+            return buffer.flip();
+        }
+
+        void addIndexEntry(int id, int position) {
+            if (indexSize == indexIds.length) {
+                indexIds = Arrays.copyOf(indexIds, indexSize * 2);
+                indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+            }
+            indexIds[indexSize] = id;
+            indexPositions[indexSize] = position;
+            indexSize++;
+        }
+
+        // The last index entry at or below id, -1 if the segment starts above it
+        int floorChunk(int id) {
+            int low = 0;
+            int high = indexSize - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (indexIds[middle] <= id) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.data.access;
+
+import com.example.demo.dto.ConversationDTO;
+import com.example.demo.model.Conversation;
+import com.example.demo.model.ConversationId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, ConversationId> {
+    // Most recently active conversations first, a range scan over idx_conversation_user_last_message
+    @Query(value = """
+        SELECT new com.example.demo.dto.ConversationDTO(c.peerId, u.username, u.forename, u.surename,
+            c.lastMessageId, c.lastSenderId, c.lastMessagePreview, c.lastMessageAt, c.unreadCount)
+        FROM Conversation c
+        JOIN User u ON u.id = c.peerId
+        WHERE c.userId = :userId
+        ORDER BY c.lastMessageId DESC
+    """, countQuery = "SELECT COUNT(c) FROM Conversation c WHERE c.userId = :userId")
+    Page<ConversationDTO> findInbox(@Param("userId") Integer userId, Pageable pageable);
+
+    // Record a message on one side of a conversation. Assignments run left to right,
+    // so last_message_id has to be updated last for the comparisons to see the old value.
+    // Native writes name the tables they touch; otherwise Hibernate drops every second-level cache region.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "conversation"))
+    @Modifying
+    @Query(value = """
+        INSERT INTO conversation (user_id, peer_id, last_message_id, last_sender_id,
+                                  last_message_preview, last_message_at, unread_count)
+        VALUES (:userId, :peerId, :messageId, :senderId, :preview, :sentAt, :unreadDelta) AS n
+        ON DUPLICATE KEY UPDATE
+            last_sender_id = IF(n.last_message_id > conversation.last_message_id, n.last_sender_id, conversation.last_sender_id),
+            last_message_preview = IF(n.last_message_id > conversation.last_message_id, n.last_message_preview, conversation.last_message_preview),
+            last_message_at = IF(n.last_message_id > conversation.last_message_id, n.last_message_at, conversation.last_message_at),
+            unread_count = conversation.unread_count + n.unread_count,
+            last_message_id = GREATEST(conversation.last_message_id, n.last_message_id)
+    """, nativeQuery = true)
+    void upsert(@Param("userId") Integer userId,
+                @Param("peerId") Integer peerId,
+                @Param("messageId") Integer messageId,
+                @Param("senderId") Integer senderId,
+                @Param("preview") String preview,
+                @Param("sentAt") LocalDateTime sentAt,
+                @Param("unreadDelta") int unreadDelta);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.unreadCount = :unreadCount WHERE c.userId = :userId AND c.peerId = :peerId")
+    void setUnreadCount(@Param("userId") Integer userId,
+                        @Param("peerId") Integer peerId,
+                        @Param("unreadCount") int unreadCount);
+
+    // Build the table from the message history, used the first time it is created
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "conversation"))
+    @Modifying
+    @Query(value = """
+        INSERT INTO conversation (user_id, peer_id, last_message_id, last_sender_id,
+                                  last_message_preview, last_message_at, unread_count)
+        SELECT c.user_id, c.peer_id, m.id, m.sender_id, LEFT(m.content, 200), m.sent_at, c.unread
+        FROM (
+            SELECT x.user_id, x.peer_id, MAX(x.id) AS last_id, SUM(x.unread) AS unread
+            FROM (
+                SELECT sender_id AS user_id, receiver_id AS peer_id, id, 0 AS unread FROM message
+                UNION ALL
+                SELECT receiver_id, sender_id, id, IF(is_read, 0, 1) FROM message
+            ) x
+            GROUP BY x.user_id, x.peer_id
+        ) c
+        JOIN message m ON m.id = c.last_id
+    """, nativeQuery = true)
+    int rebuildAll();
+}
@@ -0,0 +1,42 @@
+package com.example.demo.data.access;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Counter columns on second-level cached entities. A JPQL bulk update, or a native one declaring
+// the entity's table, makes Hibernate empty the entity's whole cache region; these run on every
+// follow, comment and recommendation. The update is declared against a query space no entity
+// maps to, and only the changed row is evicted: now, and again after commit so a read that
+// cached the old row in between does not keep it.
+final class CounterUpdates {
+    private static final String COUNTER_SPACE = "entity_counters";
+
+    private CounterUpdates() {
+    }
+
+    // The statement takes :id and :delta
+    static int adjust(EntityManager entityManager, Class<?> entityType, Integer id, String sql, int delta) {
+        int updated = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(COUNTER_SPACE)
+                .setParameter("id", id)
+                .setParameter("delta", delta)
+                .executeUpdate();
+        evict(entityManager, entityType, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(entityManager, entityType, id);
+                }
+            });
+        }
+        return updated;
+    }
+
+    private static void evict(EntityManager entityManager, Class<?> entityType, Integer id) {
+        entityManager.getEntityManagerFactory().getCache().evict(entityType, id);
+    }
+}
@@ -3,11 +3,17 @@ package com.example.demo.data.access;
 import com.example.demo.model.FollowedUser;
 import com.example.demo.model.FollowedUserId;
 import com.example.demo.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
@@ -21,4 +27,35 @@ public interface FollowedUserRepository extends JpaRepository<FollowedUser, Foll
 
     // Find all users following a specific user
     List<FollowedUser> findByFollowedId(Integer followedId);
+
+    // Adds the follow unless it exists; returns 1 when it was added
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "followed_user"))
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO followed_user (follower_id, followed_id, created_at) " +
+            "VALUES (:followerId, :followedId, :createdAt)", nativeQuery = true)
+    int insertIfAbsent(@Param("followerId") Integer followerId, @Param("followedId") Integer followedId,
+                       @Param("createdAt") LocalDate createdAt);
+
+    // Returns 1 when the follow existed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "followed_user"))
+    @Modifying
+    @Query(value = "DELETE FROM followed_user WHERE follower_id = :followerId AND followed_id = :followedId",
+            nativeQuery = true)
+    int deleteIfPresent(@Param("followerId") Integer followerId, @Param("followedId") Integer followedId);
+
+    interface FollowEdge {
+        Integer getFollowerId();
+        Integer getFollowedId();
+    }
+
+    // Follow edges in key order, read in chunks when loading the follow graph
+    @Query("SELECT fu.follower.id AS followerId, fu.followed.id AS followedId FROM FollowedUser fu " +
+            "ORDER BY fu.follower.id, fu.followed.id")
+    List<FollowEdge> findEdges(Pageable pageable);
+
+    @Query("SELECT fu.follower.id AS followerId, fu.followed.id AS followedId FROM FollowedUser fu " +
+            "WHERE fu.follower.id > :followerId OR (fu.follower.id = :followerId AND fu.followed.id > :followedId) " +
+            "ORDER BY fu.follower.id, fu.followed.id")
+    List<FollowEdge> findEdgesAfter(@Param("followerId") Integer followerId, @Param("followedId") Integer followedId,
+                                    Pageable pageable);
 }
@@ -0,0 +1,92 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.Message;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Messages in the MySQL message table; the default store. Once MessageArchiver has moved old
+// messages to the MessageArchive, pages that reach past the table continue from the archive.
+// Archived ids are all below the ids left in the table, so the two simply line up.
+@Component
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaMessageStore implements MessageStore {
+    private final MessageRepository messageRepository;
+    private final MessageArchive archive;
+    private final UserRepository userRepository;
+
+    public JpaMessageStore(MessageRepository messageRepository, MessageArchive archive, UserRepository userRepository) {
+        this.messageRepository = messageRepository;
+        this.archive = archive;
+        this.userRepository = userRepository;
+    }
+
+    // The message id generator must sit above existing ids before the first insert,
+    // so this runs before the web server starts accepting requests
+    @PostConstruct
+    public void seedIdGenerator() {
+        messageRepository.seedIdGenerator(Message.ID_ALLOCATION_SIZE);
+    }
+
+    @Override
+    public List<Message> append(List<Message> messages) {
+        List<Message> saved = messageRepository.saveAll(messages);
+        messageRepository.flush();
+        return saved;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public List<Message> findLatest(long conversationId, int limit) {
+        return continueInArchive(conversationId, Integer.MAX_VALUE, limit,
+                messageRepository.findLatestInConversation(conversationId, PageRequest.of(0, limit)));
+    }
+
+    @Override
+    public List<Message> findBefore(long conversationId, int beforeId, int limit) {
+        return continueInArchive(conversationId, beforeId, limit,
+                messageRepository.findInConversationBefore(conversationId, beforeId, PageRequest.of(0, limit)));
+    }
+
+    @Override
+    public List<Message> findAfter(long conversationId, int afterId, int limit) {
+        List<Message> page = new ArrayList<>(StoredMessage.toMessages(
+                archive.findAfter(conversationId, afterId, limit), userRepository));
+        if (page.size() < limit) {
+            int after = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+            page.addAll(messageRepository.findInConversationAfter(conversationId, after,
+                    PageRequest.of(0, limit - page.size())));
+        }
+        return page;
+    }
+
+    // Tops up a newest-first page from the table with older messages from the archive
+    private List<Message> continueInArchive(long conversationId, int beforeId, int limit, List<Message> hot) {
+        if (hot.size() == limit) {
+            return hot;
+        }
+        int before = hot.isEmpty() ? beforeId : hot.get(hot.size() - 1).getId();
+        List<Message> page = new ArrayList<>(hot);
+        page.addAll(StoredMessage.toMessages(
+                archive.findBefore(conversationId, before, limit - hot.size()), userRepository));
+        return page;
+    }
+
+    @Override
+    public int markRead(int receiverId, long conversationId) {
+        return messageRepository.markRead(receiverId, conversationId);
+    }
+
+    @Override
+    public int countUnread(int receiverId, long conversationId) {
+        return messageRepository.countUnread(receiverId, conversationId);
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.demo.data.access;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Cold storage for chat messages that MessageArchiver moved out of the message table: immutable,
+// Deflate-compressed files per month under app.messages.archive.dir. A file holds blocks of up to
+// BLOCK_MESSAGES messages of one conversation followed by an index of its blocks. The indexes of all
+// files are kept in memory, so reading an archived page inflates only the blocks that hold it.
+//
+// File:  magic | blocks | block count, then per block: conversationId (long) | firstId | lastId |
+//        message count | offset (long) | compressed length | index offset (long) | magic
+// Block: per message: id | senderId | receiverId | sentAt epoch second (long) | nanos (-1 without
+//        sentAt) | UTF-8 content length | content
+//
+// A run's files are written as .tmp, then the archived-through watermark is advanced, then they are
+// renamed into place. Once the watermark has moved the .tmp files are never deleted: a failed rename is
+// retried by completePublish(), and on startup .tmp files at or below the watermark are completed and
+// others removed.
+@Component
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "jpa", matchIfMissing = true)
+public class MessageArchive {
+    static final int BLOCK_MESSAGES = 256;
+    private static final int MAGIC = 0x4D534741;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String WATERMARK_FILE = "archived-through";
+
+    private record Block(FileChannel file, long offset, int length, int firstId, int lastId, int count) {
+    }
+
+    private record IndexEntry(long conversationId, Block block) {
+    }
+
+    private final Path directory;
+    // Per conversation, sorted by id; lists are replaced rather than modified
+    private final Map<Long, List<Block>> blocks = new ConcurrentHashMap<>();
+    private final List<FileChannel> files = new CopyOnWriteArrayList<>();
+    // Segments covered by the watermark that are not renamed and registered yet
+    private final List<Path> unpublished = new ArrayList<>();
+    private volatile int archivedThrough;
+
+    public MessageArchive(@Value("${app.messages.archive.dir:data/archive}") String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        Files.createDirectories(directory);
+        Path watermark = directory.resolve(WATERMARK_FILE);
+        archivedThrough = Files.exists(watermark) ? ByteBuffer.wrap(Files.readAllBytes(watermark)).getInt() : 0;
+        for (Path path : list(SEGMENT_SUFFIX + TEMPORARY_SUFFIX)) {
+            recoverTemporary(path);
+        }
+        for (Path path : list(SEGMENT_SUFFIX)) {
+            register(path);
+        }
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(path -> path.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (FileChannel file : files) {
+            file.close();
+        }
+        files.clear();
+        blocks.clear();
+    }
+
+    // Every message id up to this one has been archived (and may be removed from the message table)
+    public int archivedThrough() {
+        return archivedThrough;
+    }
+
+    // Newest first, ids below beforeId
+    List<StoredMessage> findBefore(long conversationId, int beforeId, int limit) {
+        List<StoredMessage> page = new ArrayList<>();
+        List<Block> conversation = blocks.getOrDefault(conversationId, List.of());
+        for (int i = conversation.size() - 1; i >= 0 && page.size() < limit; i--) {
+            Block block = conversation.get(i);
+            if (block.firstId() >= beforeId) {
+                continue;
+            }
+            List<StoredMessage> messages = inflate(block);
+            for (int k = messages.size() - 1; k >= 0 && page.size() < limit; k--) {
+                if (messages.get(k).id() < beforeId) {
+                    page.add(messages.get(k));
+                }
+            }
+        }
+        return page;
+    }
+
+    // Oldest first, ids above afterId
+    List<StoredMessage> findAfter(long conversationId, int afterId, int limit) {
+        List<StoredMessage> page = new ArrayList<>();
+        for (Block block : blocks.getOrDefault(conversationId, List.of())) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (block.lastId() <= afterId) {
+                continue;
+            }
+            for (StoredMessage message : inflate(block)) {
+                if (message.id() > afterId && page.size() < limit) {
+                    page.add(message);
+                }
+            }
+        }
+        return page;
+    }
+
+    // Starts a file for messages sent in the given month; messages must be added in id order
+    public SegmentWriter newSegment(YearMonth month) throws IOException {
+        Path path = directory.resolve(month + SEGMENT_SUFFIX);
+        for (int part = 2; Files.exists(path) || Files.exists(temporary(path)); part++) {
+            path = directory.resolve(month + "." + part + SEGMENT_SUFFIX);
+        }
+        return new SegmentWriter(path);
+    }
+
+    // Makes finished segments readable and records that everything up to throughId is archived
+    public synchronized void publish(List<SegmentWriter> segments, int throughId) throws IOException {
+        Path watermark = directory.resolve(WATERMARK_FILE);
+        Path watermarkTemporary = temporary(watermark);
+        try (FileChannel channel = FileChannel.open(watermarkTemporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, throughId));
+            channel.force(false);
+        }
+        Files.move(watermarkTemporary, watermark, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        archivedThrough = throughId;
+        // The watermark covers these files now, so their writers must not delete them on close
+        for (SegmentWriter segment : segments) {
+            segment.published = true;
+            unpublished.add(segment.path);
+        }
+        completePublish();
+    }
+
+    // Renames and registers segments a failed publish left behind. Throws while any remain, and
+    // must succeed before rows up to archivedThrough() are removed from the message table.
+    public synchronized void completePublish() throws IOException {
+        while (!unpublished.isEmpty()) {
+            Path path = unpublished.get(0);
+            if (Files.exists(temporary(path))) {
+                Files.move(temporary(path), path, StandardCopyOption.ATOMIC_MOVE);
+            }
+            register(path);
+            unpublished.remove(0);
+        }
+    }
+
+    private void recoverTemporary(Path path) throws IOException {
+        int lastId;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            lastId = readIndex(channel).stream().mapToInt(entry -> entry.block().lastId()).max().orElse(0);
+        } catch (IOException e) {
+            // Not finished writing
+            lastId = Integer.MAX_VALUE;
+        }
+        String name = path.getFileName().toString();
+        if (lastId <= archivedThrough) {
+            Files.move(path, path.resolveSibling(name.substring(0, name.length() - TEMPORARY_SUFFIX.length())),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.delete(path);
+        }
+    }
+
+    private void register(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        List<IndexEntry> index;
+        try {
+            index = readIndex(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw new IOException("Corrupt message archive file " + path, e);
+        }
+        files.add(channel);
+        Map<Long, List<Block>> added = new HashMap<>();
+        for (IndexEntry entry : index) {
+            added.computeIfAbsent(entry.conversationId(), key -> new ArrayList<>()).add(entry.block());
+        }
+        added.forEach((conversationId, newBlocks) -> blocks.compute(conversationId, (key, existing) -> {
+            List<Block> merged = new ArrayList<>(existing == null ? List.of() : existing);
+            merged.addAll(newBlocks);
+            merged.sort(Comparator.comparingInt(Block::firstId));
+            return List.copyOf(merged);
+        }));
+    }
+
+    private static List<IndexEntry> readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 16) {
+            throw new EOFException("Missing footer");
+        }
+        ByteBuffer footer = read(channel, size - 12, 12);
+        long indexOffset = footer.getLong();
+        if (footer.getInt() != MAGIC || indexOffset < 4 || indexOffset > size - 16) {
+            throw new IOException("Bad footer");
+        }
+        ByteBuffer index = read(channel, indexOffset, (int) (size - 12 - indexOffset));
+        int count = index.getInt();
+        List<IndexEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long conversationId = index.getLong();
+            int firstId = index.getInt();
+            int lastId = index.getInt();
+            int messages = index.getInt();
+            long offset = index.getLong();
+            int length = index.getInt();
+            entries.add(new IndexEntry(conversationId, new Block(channel, offset, length, firstId, lastId, messages)));
+        }
+        return entries;
+    }
+
+    private static List<StoredMessage> inflate(Block block) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(read(block.file(), block.offset(), block.length()).array())))) {
+            List<StoredMessage> messages = new ArrayList<>(block.count());
+            for (int i = 0; i < block.count(); i++) {
+                int id = in.readInt();
+                int senderId = in.readInt();
+                int receiverId = in.readInt();
+                long epochSecond = in.readLong();
+                int nanos = in.readInt();
+                byte[] content = in.readNBytes(in.readInt());
+                LocalDateTime sentAt = nanos < 0 ? null : LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC);
+                // Archived messages count as read
+                messages.add(new StoredMessage(id, senderId, receiverId, sentAt,
+                        new String(content, StandardCharsets.UTF_8), true));
+            }
+            return messages;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable message archive block", e);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static Path temporary(Path path) {
+        return path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+    }
+
+    // Buffers each conversation's messages and writes them out a block at a time. finish() completes
+    // the .tmp file and publish() makes it visible; closing a writer that was not published deletes it.
+    public static class SegmentWriter implements Closeable {
+        private final Path path;
+        private final FileChannel channel;
+        private final Map<Long, List<StoredMessage>> pending = new LinkedHashMap<>();
+        private final List<IndexEntry> index = new ArrayList<>();
+        private boolean published;
+
+        private SegmentWriter(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(temporary(path), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.allocate(4).putInt(0, MAGIC));
+        }
+
+        public void add(long conversationId, int id, int senderId, int receiverId, LocalDateTime sentAt,
+                        String content) throws IOException {
+            List<StoredMessage> conversation = pending.computeIfAbsent(conversationId,
+                    key -> new ArrayList<>(BLOCK_MESSAGES));
+            conversation.add(new StoredMessage(id, senderId, receiverId, sentAt, content, true));
+            if (conversation.size() == BLOCK_MESSAGES) {
+                writeBlock(conversationId, conversation);
+                pending.remove(conversationId);
+            }
+        }
+
+        public void finish() throws IOException {
+            for (Map.Entry<Long, List<StoredMessage>> conversation : pending.entrySet()) {
+                writeBlock(conversation.getKey(), conversation.getValue());
+            }
+            pending.clear();
+            long indexOffset = channel.position();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + index.size() * 32 + 12);
+            buffer.putInt(index.size());
+            for (IndexEntry entry : index) {
+                Block block = entry.block();
+                buffer.putLong(entry.conversationId()).putInt(block.firstId()).putInt(block.lastId())
+                        .putInt(block.count()).putLong(block.offset()).putInt(block.length());
+            }
+            buffer.putLong(indexOffset).putInt(MAGIC);
+            write(buffer.flip());
+            channel.force(false);
+            channel.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            if (!published) {
+                Files.deleteIfExists(temporary(path));
+            }
+        }
+
+        private void writeBlock(long conversationId, List<StoredMessage> messages) throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(compressed, deflater))) {
+                for (StoredMessage message : messages) {
+                    out.writeInt(message.id());
+                    out.writeInt(message.senderId());
+                    out.writeInt(message.receiverId());
+                    out.writeLong(message.sentAt() == null ? 0 : message.sentAt().toEpochSecond(ZoneOffset.UTC));
+                    out.writeInt(message.sentAt() == null ? -1 : message.sentAt().getNano());
+                    byte[] content = message.content().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(content.length);
+                    out.write(content);
+                }
+            } finally {
+                deflater.end();
+            }
+            long offset = channel.position();
+            write(ByteBuffer.wrap(compressed.toByteArray()));
+            index.add(new IndexEntry(conversationId, new Block(null, offset, compressed.size(),
+                    messages.get(0).id(), messages.get(messages.size() - 1).id(), messages.size())));
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Messages in append-only segment files on local disk, one ConversationLog per conversation under
+// app.messages.log.dir, so sending is a sequential append and a page is read straight from the segment files.
+// Conversations (the inbox) stay in MySQL. The files belong to this instance: run a single
+// instance, and rows already in the message table are not visible through this store.
+@Component
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "log")
+public class MessageLogStore implements MessageStore {
+    // Ids are reserved on disk in blocks so a restart never hands out an id twice
+    private static final int ID_BLOCK = 1000;
+
+    private final Path conversationsDirectory;
+    private final Path idCeilingFile;
+    private final int segmentBytes;
+    private final int indexInterval;
+    private final boolean syncOnAppend;
+    private final int maxOpen;
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+    private final Map<Long, ConversationLog> logs = new ConcurrentHashMap<>();
+    private final ReentrantLock idLock = new ReentrantLock();
+    private int nextId;
+    private int idCeiling;
+
+    public MessageLogStore(@Value("${app.messages.log.dir:data/messages}") String directory,
+                           @Value("${app.messages.log.segment-bytes:1048576}") int segmentBytes,
+                           @Value("${app.messages.log.index-interval:32}") int indexInterval,
+                           @Value("${app.messages.log.fsync:interval}") String fsync,
+                           @Value("${app.messages.log.max-open:1024}") int maxOpen,
+                           MessageRepository messageRepository,
+                           UserRepository userRepository) {
+        if (segmentBytes < 4096 || indexInterval < 1) {
+            throw new IllegalArgumentException("segment-bytes must be at least 4096 and index-interval at least 1");
+        }
+        this.conversationsDirectory = Path.of(directory, "conversations");
+        this.idCeilingFile = Path.of(directory, "id-ceiling");
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        this.syncOnAppend = "always".equalsIgnoreCase(fsync);
+        this.maxOpen = maxOpen;
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+    }
+
+    // Continue above both the reserved ids and the message table, so ids stay
+    // globally increasing and inbox ordering by last message id keeps working
+    @PostConstruct
+    public void seedIds() throws IOException {
+        Files.createDirectories(conversationsDirectory);
+        int ceiling = Files.exists(idCeilingFile)
+                ? ByteBuffer.wrap(Files.readAllBytes(idCeilingFile)).getInt()
+                : 0;
+        Integer tableMax = messageRepository.findMaxId();
+        nextId = Math.max(ceiling, tableMax == null ? 0 : tableMax) + 1;
+        idCeiling = nextId - 1;
+    }
+
+    @Override
+    public List<Message> append(List<Message> messages) {
+        // A batch can span conversations; each conversation's messages keep their order
+        Map<Long, List<Message>> byConversation = new LinkedHashMap<>();
+        for (Message message : messages) {
+            byConversation.computeIfAbsent(Message.conversationId(message.getSender().getId(),
+                    message.getReceiver().getId()), key -> new ArrayList<>()).add(message);
+        }
+        byConversation.forEach((conversationId, group) -> {
+            List<ConversationLog.Draft> drafts = group.stream()
+                    .map(message -> new ConversationLog.Draft(message.getSender().getId(),
+                            message.getReceiver().getId(), message.getSentAt(), message.getContent()))
+                    .toList();
+            List<StoredMessage> entries = withLog(conversationId, true,
+                    log -> log.append(drafts, this::nextId), List.of());
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).setId(entries.get(i).id());
+                group.get(i).setRead(false);
+            }
+        });
+        return messages;
+    }
+
+    // Appends are on disk as soon as append returns, a rollback of the caller's transaction keeps them
+    @Override
+    public boolean isTransactional() {
+        return false;
+    }
+
+    @Override
+    public List<Message> findLatest(long conversationId, int limit) {
+        return StoredMessage.toMessages(
+                withLog(conversationId, false, log -> log.latest(limit), List.of()), userRepository);
+    }
+
+    @Override
+    public List<Message> findBefore(long conversationId, int beforeId, int limit) {
+        return StoredMessage.toMessages(
+                withLog(conversationId, false, log -> log.before(beforeId, limit), List.of()), userRepository);
+    }
+
+    @Override
+    public List<Message> findAfter(long conversationId, int afterId, int limit) {
+        return StoredMessage.toMessages(
+                withLog(conversationId, false, log -> log.after(afterId, limit), List.of()), userRepository);
+    }
+
+    @Override
+    public int markRead(int receiverId, long conversationId) {
+        return withLog(conversationId, false, log -> log.markRead(receiverId), 0);
+    }
+
+    @Override
+    public int countUnread(int receiverId, long conversationId) {
+        return withLog(conversationId, false, log -> log.countUnread(receiverId), 0);
+    }
+
+    // With app.messages.log.fsync=interval, appends reach the disk here; also closes the least
+    // recently used logs once more than max-open are open
+    @Scheduled(fixedDelayString = "${app.messages.log.fsync-interval-ms:1000}")
+    public void forceAndEvict() {
+        for (ConversationLog log : logs.values()) {
+            try {
+                log.force();
+            } catch (IOException e) {
+                System.out.println("Failed to sync message log: " + e.getMessage());
+            }
+        }
+        int excess = logs.size() - maxOpen;
+        if (excess > 0) {
+            logs.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastUsed()))
+                    .limit(excess)
+                    .toList()
+                    .forEach(entry -> close(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    // Drops superseded read marks and merges small segments of the open conversations
+    @Scheduled(fixedDelayString = "${app.messages.log.compaction-interval-ms:3600000}",
+            initialDelayString = "${app.messages.log.compaction-interval-ms:3600000}")
+    public void compact() {
+        int rewritten = 0;
+        for (ConversationLog log : logs.values()) {
+            try {
+                rewritten += log.compact();
+            } catch (ConversationLog.ClosedException e) {
+                // Evicted meanwhile, compacted the next time it is open
+            } catch (IOException e) {
+                System.out.println("Failed to compact message log: " + e.getMessage());
+            }
+        }
+        if (rewritten > 0) {
+            System.out.println("Compacted " + rewritten + " message log segments");
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        logs.forEach(this::close);
+    }
+
+    private interface LogAction<T> {
+        T apply(ConversationLog log) throws IOException;
+    }
+
+    // Runs the action on the conversation's log, opening it if needed. Without create, a conversation
+    // that has no log yet yields the fallback instead of an empty directory.
+    private <T> T withLog(long conversationId, boolean create, LogAction<T> action, T fallback) {
+        while (true) {
+            ConversationLog log = logs.computeIfAbsent(conversationId, id -> open(id, create));
+            if (log == null) {
+                return fallback;
+            }
+            try {
+                return action.apply(log);
+            } catch (ConversationLog.ClosedException e) {
+                // Evicted between lookup and use, open it again
+                logs.remove(conversationId, log);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ConversationLog open(long conversationId, boolean create) {
+        Path directory = conversationsDirectory.resolve(String.format("%016x", conversationId));
+        if (!create && !Files.isDirectory(directory)) {
+            return null;
+        }
+        try {
+            return ConversationLog.open(directory, segmentBytes, indexInterval, syncOnAppend);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Closed before it leaves the map, so a reopened copy never reads files that are still being written
+    private void close(long conversationId, ConversationLog log) {
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Failed to close message log: " + e.getMessage());
+        }
+        logs.remove(conversationId, log);
+    }
+
+    private int nextId() {
+        idLock.lock();
+        try {
+            if (nextId > idCeiling) {
+                reserveIds(nextId + ID_BLOCK - 1);
+            }
+            return nextId++;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private void reserveIds(int ceiling) {
+        try (FileChannel channel = FileChannel.open(idCeilingFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, ceiling));
+            channel.force(false);
+            idCeiling = ceiling;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
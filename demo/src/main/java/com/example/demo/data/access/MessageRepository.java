@@ -1,23 +1,120 @@
 package com.example.demo.data.access;
 
 import com.example.demo.model.Message;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Integer> {
+    // Conversation reads walk idx_message_conversation_id, so they cost O(limit) whatever the thread length
+    @Query("""
+        SELECT m FROM Message m
+        JOIN FETCH m.sender
+        JOIN FETCH m.receiver
+        WHERE m.conversationId = :conversationId
+        ORDER BY m.id DESC
+        """)
+    List<Message> findLatestInConversation(Long conversationId, Pageable pageable);
+
+    @Query("""
+        SELECT m FROM Message m
+        JOIN FETCH m.sender
+        JOIN FETCH m.receiver
+        WHERE m.conversationId = :conversationId AND m.id < :beforeId
+        ORDER BY m.id DESC
+        """)
+    List<Message> findInConversationBefore(Long conversationId, Integer beforeId, Pageable pageable);
+
+    @Query("""
+        SELECT m FROM Message m
+        JOIN FETCH m.sender
+        JOIN FETCH m.receiver
+        WHERE m.conversationId = :conversationId AND m.id > :afterId
+        ORDER BY m.id ASC
+        """)
+    List<Message> findInConversationAfter(Long conversationId, Integer afterId, Pageable pageable);
+
+    @Modifying
+    @Query("""
+        UPDATE Message m SET m.isRead = true
+        WHERE m.receiver.id = :receiverId AND m.isRead = false AND m.conversationId = :conversationId
+        """)
+    int markRead(Integer receiverId, Long conversationId);
+
+    // Served by idx_message_receiver_unread
     @Query("""
-        SELECT DISTINCT m FROM Message m
-    LEFT JOIN FETCH m.sender s
-    LEFT JOIN FETCH m.receiver r
-    WHERE (m.sender.id = :userId1 AND m.receiver.id = :userId2)
-    OR (m.sender.id = :userId2 AND m.receiver.id = :userId1)
-    ORDER BY m.sentAt ASC
-    """)
-    List<Message> findMessagesBetweenUsers(Integer userId1, Integer userId2);
+        SELECT COUNT(m) FROM Message m
+        WHERE m.receiver.id = :receiverId AND m.isRead = false AND m.conversationId = :conversationId
+        """)
+    int countUnread(Integer receiverId, Long conversationId);
+
+    @Query("SELECT MAX(m.id) FROM Message m")
+    Integer findMaxId();
+
+    // Archiving reads plain columns, so no users are loaded
+    interface ArchivableMessage {
+        Integer getId();
+        Long getConversationId();
+        Integer getSenderId();
+        Integer getReceiverId();
+        LocalDateTime getSentAt();
+        String getContent();
+        boolean getIsRead();
+    }
+
+    @Query("""
+        SELECT m.id AS id, m.conversationId AS conversationId, m.sender.id AS senderId,
+               m.receiver.id AS receiverId, m.sentAt AS sentAt, m.content AS content, m.isRead AS isRead
+        FROM Message m
+        WHERE m.id > :afterId AND m.id < :beforeId
+        ORDER BY m.id ASC
+        """)
+    List<ArchivableMessage> findArchivable(Integer afterId, Integer beforeId, Pageable pageable);
+
+    @Query("SELECT MIN(m.id) FROM Message m WHERE m.sentAt >= :sentAt")
+    Integer findFirstIdSentFrom(LocalDateTime sentAt);
+
+    @Query("SELECT MIN(m.id) FROM Message m")
+    Integer findMinId();
+
+    // Archiving deletes in id windows, so each transaction stays short on the hot table
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id > :afterId AND m.id <= :upToId")
+    int deleteRange(Integer afterId, Integer upToId);
+
+    // Hibernate's pooled optimizer hands out (next_val - allocationSize, next_val], so keep
+    // next_val at least a full block above the highest existing id
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "id_generator"))
+    @Modifying
+    @Query(value = """
+        INSERT INTO id_generator (sequence_name, next_val)
+        SELECT * FROM (SELECT 'message' AS sequence_name,
+                              COALESCE(MAX(id), 0) + :allocationSize + 1 AS next_val FROM message) AS n
+        ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, n.next_val)
+        """, nativeQuery = true)
+    void seedIdGenerator(int allocationSize);
 
+    // Rows written before the column existed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "message"))
+    @Modifying
+    @Query(value = """
+        UPDATE message
+        SET conversation_id = (LEAST(sender_id, receiver_id) << 32) | GREATEST(sender_id, receiver_id)
+        WHERE conversation_id IS NULL
+        """, nativeQuery = true)
+    int backfillConversationIds();
 
     List<Message> findBySenderIdOrderBySentAtDesc(Integer senderId);
     List<Message> findByReceiverIdOrderBySentAtDesc(Integer receiverId);
@@ -0,0 +1,28 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.Message;
+
+import java.util.List;
+
+// Storage engine for chat messages, chosen with app.messages.store: "jpa" keeps them in the
+// message table (JpaMessageStore), "log" in append-only files on local disk (MessageLogStore).
+// Pages come back newest first, except findAfter which returns the oldest first.
+public interface MessageStore {
+
+    // Assigns ids in order and persists the messages, returns them
+    List<Message> append(List<Message> messages);
+
+    // Whether append takes part in the surrounding transaction, so that a rollback undoes it
+    boolean isTransactional();
+
+    List<Message> findLatest(long conversationId, int limit);
+
+    List<Message> findBefore(long conversationId, int beforeId, int limit);
+
+    List<Message> findAfter(long conversationId, int afterId, int limit);
+
+    // Marks everything sent to receiverId in the conversation as read, returns how many messages changed
+    int markRead(int receiverId, long conversationId);
+
+    int countUnread(int receiverId, long conversationId);
+}
@@ -1,15 +1,26 @@
 package com.example.demo.data.access;
 
+import com.example.demo.dto.MovieSummaryDTO;
 import com.example.demo.model.Movie;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Integer> {
+public interface MovieRepository extends JpaRepository<Movie, Integer>, JpaSpecificationExecutor<Movie>,
+        MovieRepositoryCustom {
     // Find movies by title (partial match)
     List<Movie> findByTitleContaining(String title);
 
@@ -23,9 +34,51 @@ public interface MovieRepository extends JpaRepository<Movie, Integer> {
     List<Movie> findByDirector(String director);
 
     // Custom query to find most recommended movies
-    @Query("SELECT m FROM Movie m ORDER BY SIZE(m.recommendations) DESC")
+    @Query("SELECT m FROM Movie m ORDER BY m.recommendationCount DESC, m.id DESC")
     List<Movie> findMostRecommendedMovies();
 
+    // Leaderboard page, read in order from idx_movie_recommendation_count
+    @Query(value = "SELECT new com.example.demo.dto.MovieSummaryDTO(m.id, m.title, m.releaseYear, m.genres, " +
+            "m.director, m.posterEtag, m.recommendationCount) FROM Movie m " +
+            "ORDER BY m.recommendationCount DESC, m.id DESC",
+            countQuery = "SELECT COUNT(m) FROM Movie m")
+    Page<MovieSummaryDTO> findTopSummaries(Pageable pageable);
+
+    // Recompute every counter from the source table
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie"))
+    @Modifying
+    @Query(value = """
+        UPDATE movie m SET
+            m.recommendation_count = (SELECT COUNT(*) FROM recommendation r WHERE r.movie_id = m.id)
+    """, nativeQuery = true)
+    int recalculateCounters();
+
     // Find movies created after a specific date
     List<Movie> findByCreatedAtAfter(LocalDate date);
+
+    // Catalogue summaries, selecting only the columns the list view needs
+    @Query("SELECT new com.example.demo.dto.MovieSummaryDTO(m.id, m.title, m.releaseYear, m.genres, m.director, m.posterEtag) " +
+            "FROM Movie m ORDER BY m.title")
+    List<MovieSummaryDTO> findAllSummaries();
+
+    // Searchable text of every movie, without loading posters or associations
+    interface MovieText {
+        Integer getId();
+        String getTitle();
+        String getDescription();
+        String getStars();
+        String getDirector();
+    }
+
+    @Query("SELECT m.id AS id, m.title AS title, m.description AS description, " +
+            "m.stars AS stars, m.director AS director FROM Movie m")
+    List<MovieText> findAllText();
+
+    // ETag of the movie's current poster, empty without one
+    @Query("SELECT m.posterEtag FROM Movie m WHERE m.id = :id")
+    Optional<String> findPosterEtag(@Param("id") Integer id);
+
+    // Find movies whose poster is still stored as base64 in the database
+    @Query("SELECT m.id FROM Movie m WHERE m.poster IS NOT NULL")
+    List<Integer> findIdsWithLegacyPoster();
 }
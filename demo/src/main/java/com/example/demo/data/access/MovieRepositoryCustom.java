@@ -0,0 +1,15 @@
+package com.example.demo.data.access;
+
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.model.Movie;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface MovieRepositoryCustom {
+    // Page of catalogue summaries matching the specification, projected at the SQL level
+    Page<MovieSummaryDTO> findSummaries(Specification<Movie> specification, Pageable pageable);
+
+    // Atomic counter update; evicts only that movie from the entity cache
+    int adjustRecommendationCount(Integer movieId, int delta);
+}
@@ -0,0 +1,65 @@
+package com.example.demo.data.access;
+
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.model.Movie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+public class MovieRepositoryCustomImpl implements MovieRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<MovieSummaryDTO> findSummaries(Specification<Movie> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<MovieSummaryDTO> query = cb.createQuery(MovieSummaryDTO.class);
+        Root<Movie> movie = query.from(Movie.class);
+        query.select(cb.construct(MovieSummaryDTO.class,
+                movie.get("id"),
+                movie.get("title"),
+                movie.get("releaseYear"),
+                movie.get("genres"),
+                movie.get("director"),
+                movie.get("posterEtag")));
+        Predicate predicate = specification.toPredicate(movie, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), movie, cb));
+
+        TypedQuery<MovieSummaryDTO> typedQuery = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+        List<MovieSummaryDTO> content = typedQuery.getResultList();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Movie> countRoot = countQuery.from(Movie.class);
+        countQuery.select(cb.count(countRoot));
+        Predicate countPredicate = specification.toPredicate(countRoot, countQuery, cb);
+        if (countPredicate != null) {
+            countQuery.where(countPredicate);
+        }
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public int adjustRecommendationCount(Integer movieId, int delta) {
+        return CounterUpdates.adjust(entityManager, Movie.class, movieId,
+                "UPDATE movie SET recommendation_count = recommendation_count + :delta WHERE id = :id", delta);
+    }
+}
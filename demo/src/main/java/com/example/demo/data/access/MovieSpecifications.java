@@ -0,0 +1,74 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.Movie;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+// Composable catalogue filters; a null argument means "no filter"
+public final class MovieSpecifications {
+    private static final int MIN_YEAR = 1000;
+    private static final int MAX_YEAR = 9999;
+
+    private MovieSpecifications() {
+    }
+
+    // Free-text match on title, genres or director
+    public static Specification<Movie> matches(String term) {
+        if (term == null || term.isBlank()) {
+            return null;
+        }
+        String pattern = likePattern(term);
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("title")), pattern),
+                cb.like(cb.lower(root.get("genres")), pattern),
+                cb.like(cb.lower(root.get("director")), pattern));
+    }
+
+    public static Specification<Movie> hasGenre(String genre) {
+        if (genre == null || genre.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(cb.lower(root.get("genres")), likePattern(genre));
+    }
+
+    public static Specification<Movie> hasDirector(String director) {
+        if (director == null || director.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("director"), director.trim());
+    }
+
+    public static Specification<Movie> releasedFrom(Integer year) {
+        if (year == null) {
+            return null;
+        }
+        LocalDate from = LocalDate.of(checkYear(year), 1, 1);
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("releaseYear"), from);
+    }
+
+    public static Specification<Movie> releasedUntil(Integer year) {
+        if (year == null) {
+            return null;
+        }
+        LocalDate until = LocalDate.of(checkYear(year), 12, 31);
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("releaseYear"), until);
+    }
+
+    // The range of a MySQL DATE; checked up front so a bad filter is a client error, not a failed query
+    private static int checkYear(int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw new IllegalArgumentException("Year must be between " + MIN_YEAR + " and " + MAX_YEAR);
+        }
+        return year;
+    }
+
+    private static String likePattern(String term) {
+        String escaped = term.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.data.access;
+
+import com.example.demo.dto.CommentDTO;
+import com.example.demo.dto.UserDTO;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+// R2DBC mirror of the CommentRepository thread reads, served by idx_comment_recommendation_created_id
+@Repository
+@Profile("reactive")
+public class ReactiveCommentRepository {
+    private static final String THREAD_COLUMNS = """
+        SELECT c.id, c.content, c.created_at, c.recommendation_id,
+               u.id AS user_id, u.username, u.forename, u.surename
+        FROM comment c
+        JOIN user u ON u.id = c.user_id
+        WHERE c.recommendation_id = :recommendationId
+        """;
+    private static final String NEWEST_FIRST = "ORDER BY c.created_at DESC, c.id DESC\n";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveCommentRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // See CommentRepository.findThread
+    public Flux<CommentDTO> findThread(Integer recommendationId, int limit) {
+        return databaseClient.sql(THREAD_COLUMNS + NEWEST_FIRST + "LIMIT :limit")
+                .bind("recommendationId", recommendationId)
+                .bind("limit", limit)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    // Next page of the thread, strictly after the (createdAt, id) cursor
+    public Flux<CommentDTO> findThreadAfter(Integer recommendationId, LocalDate createdAt, Integer id, int limit) {
+        return databaseClient.sql(THREAD_COLUMNS
+                        + "AND (c.created_at < :createdAt OR (c.created_at = :createdAt AND c.id < :id))\n"
+                        + NEWEST_FIRST + "LIMIT :limit")
+                .bind("recommendationId", recommendationId)
+                .bind("createdAt", createdAt)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    private static CommentDTO toDTO(Row row) {
+        UserDTO author = new UserDTO();
+        author.setId(row.get("user_id", Integer.class));
+        author.setUsername(row.get("username", String.class));
+        author.setForename(row.get("forename", String.class));
+        author.setSurename(row.get("surename", String.class));
+
+        CommentDTO dto = new CommentDTO();
+        dto.setId(row.get("id", Integer.class));
+        dto.setContent(row.get("content", String.class));
+        dto.setCreatedAt(row.get("created_at", LocalDate.class));
+        dto.setRecommendationId(row.get("recommendation_id", Integer.class));
+        dto.setUser(author);
+        return dto;
+    }
+}
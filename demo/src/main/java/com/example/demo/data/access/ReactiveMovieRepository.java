@@ -0,0 +1,53 @@
+package com.example.demo.data.access;
+
+import com.example.demo.dto.MovieSummaryDTO;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+// R2DBC mirror of the MovieRepository summary reads
+@Repository
+@Profile("reactive")
+public class ReactiveMovieRepository {
+    private static final String SUMMARY_COLUMNS =
+            "SELECT m.id, m.title, m.release_year, m.genres, m.director, m.poster_etag, m.recommendation_count\n"
+                    + "FROM movie m\n";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveMovieRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // See MovieRepository.findAllSummaries
+    public Flux<MovieSummaryDTO> findAllSummaries() {
+        return databaseClient.sql(SUMMARY_COLUMNS + "ORDER BY m.title")
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    // Leaderboard page, read in order from idx_movie_recommendation_count
+    public Flux<MovieSummaryDTO> findTopSummaries(int offset, int limit) {
+        return databaseClient.sql(SUMMARY_COLUMNS + "ORDER BY m.recommendation_count DESC, m.id DESC\n"
+                        + "LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    private static MovieSummaryDTO toDTO(Row row) {
+        return new MovieSummaryDTO(
+                row.get("id", Integer.class),
+                row.get("title", String.class),
+                row.get("release_year", LocalDate.class),
+                row.get("genres", String.class),
+                row.get("director", String.class),
+                row.get("poster_etag", String.class),
+                row.get("recommendation_count", Integer.class));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.data.access;
+
+import com.example.demo.business.logic.PosterStorageService;
+import com.example.demo.dto.MovieDTO;
+import com.example.demo.dto.RecommendationDTO;
+import com.example.demo.dto.UserDTO;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+// R2DBC mirror of the RecommendationRepository reads behind recommendation cards. Each query
+// joins the author and movie and selects only the columns RecommendationDTO carries.
+@Repository
+@Profile("reactive")
+public class ReactiveRecommendationRepository {
+    private static final String CARD_COLUMNS = """
+        SELECT r.id, r.content, r.created_at, r.comment_count,
+               m.id AS movie_id, m.title, m.poster_etag, m.description, m.genres,
+               u.id AS user_id, u.username, u.forename, u.surename
+        FROM recommendation r
+        JOIN movie m ON m.id = r.movie_id
+        JOIN user u ON u.id = r.user_id
+        """;
+    private static final String FROM_FOLLOWED = """
+        WHERE r.user_id IN (
+            SELECT fu.followed_id FROM followed_user fu WHERE fu.follower_id = :userId
+        )
+        """;
+    private static final String BEFORE_CURSOR =
+            "AND (r.created_at < :createdAt OR (r.created_at = :createdAt AND r.id < :id))\n";
+    private static final String NEWEST_FIRST = "ORDER BY r.created_at DESC, r.id DESC\n";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveRecommendationRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // First page of the followed-users feed, see RecommendationRepository.findFeedFromFollowedUsers
+    public Flux<RecommendationDTO> findFeedFromFollowedUsers(Integer userId, int limit) {
+        return databaseClient.sql(CARD_COLUMNS + FROM_FOLLOWED + NEWEST_FIRST + "LIMIT :limit")
+                .bind("userId", userId)
+                .bind("limit", limit)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    // Next page of the feed, strictly after the (createdAt, id) cursor
+    public Flux<RecommendationDTO> findFeedFromFollowedUsersAfter(Integer userId, LocalDate createdAt,
+                                                                  Integer id, int limit) {
+        return databaseClient.sql(CARD_COLUMNS + FROM_FOLLOWED + BEFORE_CURSOR + NEWEST_FIRST + "LIMIT :limit")
+                .bind("userId", userId)
+                .bind("createdAt", createdAt)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    public Flux<RecommendationDTO> findByMovieId(Integer movieId) {
+        return databaseClient.sql(CARD_COLUMNS + "WHERE r.movie_id = :movieId\n" + NEWEST_FIRST)
+                .bind("movieId", movieId)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    // Leaderboard page, read in order from idx_recommendation_comment_count
+    public Flux<RecommendationDTO> findTopByCommentCount(int offset, int limit) {
+        return databaseClient.sql(CARD_COLUMNS + "ORDER BY r.comment_count DESC, r.id DESC\n"
+                        + "LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map((row, metadata) -> toDTO(row))
+                .all();
+    }
+
+    private static RecommendationDTO toDTO(Row row) {
+        RecommendationDTO dto = new RecommendationDTO();
+        dto.setId(row.get("id", Integer.class));
+        dto.setContent(row.get("content", String.class));
+        dto.setCreatedAt(row.get("created_at", LocalDate.class));
+        dto.setCommentCount(row.get("comment_count", Integer.class));
+
+        MovieDTO movie = new MovieDTO();
+        movie.setId(row.get("movie_id", Integer.class));
+        movie.setTitle(row.get("title", String.class));
+        movie.setPosterUrl(PosterStorageService.posterUrl(movie.getId(), row.get("poster_etag", String.class)));
+        movie.setDescription(row.get("description", String.class));
+        movie.setGenres(row.get("genres", String.class));
+        dto.setMovie(movie);
+
+        UserDTO user = new UserDTO();
+        user.setId(row.get("user_id", Integer.class));
+        user.setUsername(row.get("username", String.class));
+        user.setForename(row.get("forename", String.class));
+        user.setSurename(row.get("surename", String.class));
+        dto.setUser(user);
+        return dto;
+    }
+}
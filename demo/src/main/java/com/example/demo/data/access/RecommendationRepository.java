@@ -1,21 +1,59 @@
 package com.example.demo.data.access;
 
 import com.example.demo.model.Recommendation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RecommendationRepository extends JpaRepository<Recommendation, Integer> {
-    // Find recommendations by user with ordering
-    List<Recommendation> findByUserIdOrderByCreatedAtDesc(Integer userId);
+    // What a recommendation card shows (feed, leaderboard, movie and user pages): the recommendation
+    // plus only the author and movie columns RecommendationDTO carries, so neither entity is loaded
+    interface Card {
+        Integer getId();
+        String getContent();
+        LocalDate getCreatedAt();
+        int getCommentCount();
+        Integer getMovieId();
+        String getMovieTitle();
+        String getMoviePosterEtag();
+        String getMovieDescription();
+        String getMovieGenres();
+        Integer getUserId();
+        String getUsername();
+        String getForename();
+        String getSurename();
+    }
 
-    // Find recommendations for a specific movie with ordering
-    List<Recommendation> findByMovieIdOrderByCreatedAtDesc(Integer movieId);
+    String CARD_SELECT = "SELECT r.id AS id, r.content AS content, r.createdAt AS createdAt, " +
+            "r.commentCount AS commentCount, m.id AS movieId, m.title AS movieTitle, " +
+            "m.posterEtag AS moviePosterEtag, m.description AS movieDescription, m.genres AS movieGenres, " +
+            "u.id AS userId, u.username AS username, u.forename AS forename, u.surename AS surename ";
+    String CARD_FROM = "FROM Recommendation r JOIN r.user u JOIN r.movie m ";
+
+    // Cards of a user's recommendations, newest first
+    @Query(CARD_SELECT + CARD_FROM + "WHERE u.id = :userId ORDER BY r.createdAt DESC, r.id DESC")
+    List<Card> findCardsByUserId(@Param("userId") Integer userId);
+
+    // Cards of a movie's recommendations, newest first
+    @Query(CARD_SELECT + CARD_FROM + "WHERE m.id = :movieId ORDER BY r.createdAt DESC, r.id DESC")
+    List<Card> findCardsByMovieId(@Param("movieId") Integer movieId);
+
+    // A single recommendation card
+    @Query(CARD_SELECT + CARD_FROM + "WHERE r.id = :id")
+    Optional<Card> findCardById(@Param("id") Integer id);
 
     // Find recommendations created after a specific date
     List<Recommendation> findByCreatedAtAfterOrderByCreatedAtDesc(LocalDate date);
@@ -24,20 +62,76 @@ public interface RecommendationRepository extends JpaRepository<Recommendation,
     List<Recommendation> findByUserIdAndMovieIdAndCreatedAt(Integer userId, Integer movieId, LocalDate createdAt);
 
     // Custom query to find most commented recommendations
-    @Query("SELECT r FROM Recommendation r ORDER BY SIZE(r.comments) DESC")
-    List<Recommendation> findMostCommentedRecommendations();
+    @Query(CARD_SELECT + CARD_FROM + "ORDER BY r.commentCount DESC, r.id DESC")
+    List<Card> findMostCommentedRecommendations();
+
+    // Leaderboard page, read in order from idx_recommendation_comment_count
+    @Query(value = CARD_SELECT + CARD_FROM + "ORDER BY r.commentCount DESC, r.id DESC",
+            countQuery = "SELECT COUNT(r) FROM Recommendation r")
+    Page<Card> findTopByCommentCount(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Recommendation r SET r.commentCount = r.commentCount + :delta WHERE r.id = :recommendationId")
+    int adjustCommentCount(@Param("recommendationId") Integer recommendationId, @Param("delta") int delta);
+
+    @Query("SELECT r.commentCount FROM Recommendation r WHERE r.id = :id")
+    Optional<Integer> findCommentCountById(@Param("id") Integer id);
+
+    @Query("SELECT MAX(r.id) FROM Recommendation r")
+    Integer findMaxId();
+
+    // Repair comment_count for one id range, touching only rows that drifted. Run in its
+    // own transaction per range so the whole table is never locked at once.
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "recommendation"))
+    @Modifying
+    @Query(value = """
+        UPDATE recommendation r
+        LEFT JOIN (
+            SELECT c.recommendation_id, COUNT(*) AS comments
+            FROM comment c
+            WHERE c.recommendation_id BETWEEN :fromId AND :toId
+            GROUP BY c.recommendation_id
+        ) counted ON counted.recommendation_id = r.id
+        SET r.comment_count = COALESCE(counted.comments, 0)
+        WHERE r.id BETWEEN :fromId AND :toId
+        AND r.comment_count <> COALESCE(counted.comments, 0)
+    """, nativeQuery = true)
+    int reconcileCommentCounts(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    String FROM_FOLLOWED = "WHERE u.id IN (" +
+            "SELECT fu.followed.id FROM FollowedUser fu WHERE fu.follower.id = :userId) ";
 
     // Find recommendations from followed users with ordering
-    @Query("""
-        SELECT r FROM Recommendation r 
-        WHERE r.user.id IN (
-            SELECT fu.followed.id 
-            FROM FollowedUser fu 
-            WHERE fu.follower.id = :userId
-        )
-        ORDER BY r.createdAt DESC
-    """)
-    List<Recommendation> findRecommendationsFromFollowedUsersOrderByCreatedAtDesc(@Param("userId") Integer userId);
+    @Query(CARD_SELECT + CARD_FROM + FROM_FOLLOWED + "ORDER BY r.createdAt DESC")
+    List<Card> findRecommendationsFromFollowedUsersOrderByCreatedAtDesc(@Param("userId") Integer userId);
+
+    // First page of the followed-users feed, ordered by the (createdAt, id) keyset
+    @Query(CARD_SELECT + CARD_FROM + FROM_FOLLOWED + "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Card> findFeedFromFollowedUsers(@Param("userId") Integer userId, Pageable pageable);
+
+    // Next page of the followed-users feed, strictly after the (createdAt, id) cursor
+    @Query(CARD_SELECT + CARD_FROM + FROM_FOLLOWED +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Card> findFeedFromFollowedUsersAfter(@Param("userId") Integer userId,
+                                              @Param("createdAt") LocalDate createdAt,
+                                              @Param("id") Integer id,
+                                              Pageable pageable);
+
+    // Searchable text of every recommendation, titled by its movie
+    interface RecommendationText {
+        Integer getId();
+        String getTitle();
+        String getContent();
+    }
+
+    @Query("SELECT r.id AS id, r.movie.title AS title, r.content AS content FROM Recommendation r")
+    List<RecommendationText> findAllText();
+
+    @Query("SELECT r.id AS id, r.movie.title AS title, r.content AS content FROM Recommendation r " +
+            "WHERE r.movie.id = :movieId")
+    List<RecommendationText> findTextByMovieId(@Param("movieId") Integer movieId);
 
     // Get recommendation count for a movie
     Long countByMovieId(Integer movieId);
@@ -0,0 +1,43 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// A message as read from a ConversationLog or MessageArchive file, before its users are resolved
+record StoredMessage(int id, int senderId, int receiverId, LocalDateTime sentAt, String content, boolean read) {
+
+    // One user lookup per page
+    static List<Message> toMessages(List<StoredMessage> stored, UserRepository userRepository) {
+        if (stored.isEmpty()) {
+            return List.of();
+        }
+        Set<Integer> userIds = new HashSet<>();
+        for (StoredMessage message : stored) {
+            userIds.add(message.senderId());
+            userIds.add(message.receiverId());
+        }
+        Map<Integer, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<Message> messages = new ArrayList<>(stored.size());
+        for (StoredMessage message : stored) {
+            Message result = new Message();
+            result.setId(message.id());
+            result.setSender(users.get(message.senderId()));
+            result.setReceiver(users.get(message.receiverId()));
+            result.setSentAt(message.sentAt());
+            result.setContent(message.content());
+            result.setRead(message.read());
+            messages.add(result);
+        }
+        return messages;
+    }
+}
@@ -1,18 +1,27 @@
 package com.example.demo.data.access;
 
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Integer> {
-    // Find user by username
+public interface UserRepository extends JpaRepository<User, Integer>, UserRepositoryCustom {
+    // Find user by username; cached as an id in the query cache, the row itself comes from the entity cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
 
     // Find user by email
@@ -25,9 +34,70 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     List<User> findByRegistrationDateAfter(LocalDate date);
 
     // Custom query to find users with most recommendations
-    @Query("SELECT u FROM User u ORDER BY SIZE(u.recommendations) DESC")
+    @Query("SELECT u FROM User u ORDER BY u.recommendationCount DESC, u.id DESC")
     List<User> findMostActiveUsers();
 
+    // Leaderboard page, read in order from idx_user_recommendation_count
+    @Query(value = "SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username, u.forename, u.surename, " +
+            "u.recommendationCount, u.commentCount, u.followerCount, u.followingCount) FROM User u " +
+            "ORDER BY u.recommendationCount DESC, u.id DESC",
+            countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserSummaryDTO> findTopSummaries(Pageable pageable);
+
+    // Id and username of every user, for the autocomplete index
+    interface Username {
+        Integer getId();
+        String getUsername();
+    }
+
+    @Query("SELECT u.id AS id, u.username AS username FROM User u")
+    List<Username> findAllUsernames();
+
+    // Recommendation, comment, following and follower ids of a set of users in one round-trip.
+    // kind is R (recommendation), C (comment), F (user follows relatedId) or B (followed by relatedId).
+    interface UserRelation {
+        String getKind();
+        Integer getOwnerId();
+        Integer getRelatedId();
+    }
+
+    @Query(value = """
+        SELECT 'R' AS kind, r.user_id AS ownerId, r.id AS relatedId FROM recommendation r WHERE r.user_id IN (:userIds)
+        UNION ALL
+        SELECT 'C', c.user_id, c.id FROM comment c WHERE c.user_id IN (:userIds)
+        UNION ALL
+        SELECT 'F', fu.follower_id, fu.followed_id FROM followed_user fu WHERE fu.follower_id IN (:userIds)
+        UNION ALL
+        SELECT 'B', fu.followed_id, fu.follower_id FROM followed_user fu WHERE fu.followed_id IN (:userIds)
+    """, nativeQuery = true)
+    List<UserRelation> findRelationsByUserIds(@Param("userIds") Collection<Integer> userIds);
+
+    // Paged user directory, optionally filtered by a username or name prefix
+    @Query(value = "SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username, u.forename, u.surename, " +
+            "u.recommendationCount, u.commentCount, u.followerCount, u.followingCount) FROM User u " +
+            "WHERE :prefix IS NULL OR LOWER(u.username) LIKE :prefix " +
+            "OR LOWER(u.forename) LIKE :prefix OR LOWER(u.surename) LIKE :prefix",
+            countQuery = "SELECT COUNT(u) FROM User u WHERE :prefix IS NULL OR LOWER(u.username) LIKE :prefix " +
+                    "OR LOWER(u.forename) LIKE :prefix OR LOWER(u.surename) LIKE :prefix")
+    Page<UserSummaryDTO> findSummaries(@Param("prefix") String prefix, Pageable pageable);
+
+    // Summaries of the given users, in no particular order
+    @Query("SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username, u.forename, u.surename, " +
+            "u.recommendationCount, u.commentCount, u.followerCount, u.followingCount) FROM User u WHERE u.id IN :ids")
+    List<UserSummaryDTO> findSummariesByIds(@Param("ids") Collection<Integer> ids);
+
+    // Recompute every counter from the source tables
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user"))
+    @Modifying
+    @Query(value = """
+        UPDATE user u SET
+            u.recommendation_count = (SELECT COUNT(*) FROM recommendation r WHERE r.user_id = u.id),
+            u.comment_count = (SELECT COUNT(*) FROM comment c WHERE c.user_id = u.id),
+            u.follower_count = (SELECT COUNT(*) FROM followed_user fu WHERE fu.followed_id = u.id),
+            u.following_count = (SELECT COUNT(*) FROM followed_user fu WHERE fu.follower_id = u.id)
+    """, nativeQuery = true)
+    int recalculateCounters();
+
     // Find followers of a specific user
     @Query("SELECT fu.follower FROM FollowedUser fu WHERE fu.followed.id = :userId")
     List<User> findFollowersByUserId(@Param("userId") Integer userId);
@@ -0,0 +1,12 @@
+package com.example.demo.data.access;
+
+public interface UserRepositoryCustom {
+    // Atomic counter updates; each evicts only that user from the entity cache
+    int adjustRecommendationCount(Integer userId, int delta);
+
+    int adjustCommentCount(Integer userId, int delta);
+
+    int adjustFollowerCount(Integer userId, int delta);
+
+    int adjustFollowingCount(Integer userId, int delta);
+}
@@ -0,0 +1,34 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int adjustRecommendationCount(Integer userId, int delta) {
+        return adjust(userId, "UPDATE user SET recommendation_count = recommendation_count + :delta WHERE id = :id", delta);
+    }
+
+    @Override
+    public int adjustCommentCount(Integer userId, int delta) {
+        return adjust(userId, "UPDATE user SET comment_count = comment_count + :delta WHERE id = :id", delta);
+    }
+
+    @Override
+    public int adjustFollowerCount(Integer userId, int delta) {
+        return adjust(userId, "UPDATE user SET follower_count = follower_count + :delta WHERE id = :id", delta);
+    }
+
+    @Override
+    public int adjustFollowingCount(Integer userId, int delta) {
+        return adjust(userId, "UPDATE user SET following_count = following_count + :delta WHERE id = :id", delta);
+    }
+
+    private int adjust(Integer userId, String sql, int delta) {
+        return CounterUpdates.adjust(entityManager, User.class, userId, sql, delta);
+    }
+}
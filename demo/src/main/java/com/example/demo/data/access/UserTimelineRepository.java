@@ -0,0 +1,94 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.UserTimeline;
+import com.example.demo.model.UserTimelineId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface UserTimelineRepository extends JpaRepository<UserTimeline, UserTimelineId> {
+    String TIMELINE_CARDS = RecommendationRepository.CARD_SELECT +
+            "FROM UserTimeline t JOIN Recommendation r ON r.id = t.recommendationId JOIN r.user u JOIN r.movie m " +
+            "WHERE t.userId = :userId ";
+
+    // First page of a user's materialized timeline
+    @Query(TIMELINE_CARDS + "ORDER BY t.createdAt DESC, t.recommendationId DESC")
+    List<RecommendationRepository.Card> findTimeline(@Param("userId") Integer userId, Pageable pageable);
+
+    // Next page of a user's materialized timeline, strictly after the (createdAt, id) cursor
+    @Query(TIMELINE_CARDS +
+            "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.recommendationId < :id)) " +
+            "ORDER BY t.createdAt DESC, t.recommendationId DESC")
+    List<RecommendationRepository.Card> findTimelineAfter(@Param("userId") Integer userId,
+                                                          @Param("createdAt") LocalDate createdAt,
+                                                          @Param("id") Integer id,
+                                                          Pageable pageable);
+
+    // Push a new recommendation into the timeline of every follower of its author
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_timeline"))
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO user_timeline (user_id, recommendation_id, author_id, created_at)
+        SELECT fu.follower_id, :recommendationId, :authorId, :createdAt
+        FROM followed_user fu
+        WHERE fu.followed_id = :authorId
+    """, nativeQuery = true)
+    int fanOut(@Param("recommendationId") Integer recommendationId,
+               @Param("authorId") Integer authorId,
+               @Param("createdAt") LocalDate createdAt);
+
+    // Copy the latest recommendations of a newly followed user into the follower's timeline
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_timeline"))
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO user_timeline (user_id, recommendation_id, author_id, created_at)
+        SELECT :followerId, r.id, r.user_id, r.created_at
+        FROM recommendation r
+        WHERE r.user_id = :followedId
+        ORDER BY r.created_at DESC, r.id DESC
+        LIMIT :capacity
+    """, nativeQuery = true)
+    int backfill(@Param("followerId") Integer followerId,
+                 @Param("followedId") Integer followedId,
+                 @Param("capacity") int capacity);
+
+    // Rebuild every timeline from the follow graph (used to seed an empty table)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_timeline"))
+    @Modifying
+    @Query(value = """
+        INSERT IGNORE INTO user_timeline (user_id, recommendation_id, author_id, created_at)
+        SELECT fu.follower_id, r.id, r.user_id, r.created_at
+        FROM followed_user fu
+        JOIN recommendation r ON r.user_id = fu.followed_id
+    """, nativeQuery = true)
+    int rebuildAll();
+
+    // Drop an unfollowed user's recommendations from the follower's timeline
+    @Modifying
+    @Query("DELETE FROM UserTimeline t WHERE t.userId = :followerId AND t.authorId = :followedId")
+    int prune(@Param("followerId") Integer followerId, @Param("followedId") Integer followedId);
+
+    // Keep only the newest :capacity entries of every timeline
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_timeline"))
+    @Modifying
+    @Query(value = """
+        DELETE t FROM user_timeline t
+        JOIN (
+            SELECT user_id, recommendation_id,
+                   ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY created_at DESC, recommendation_id DESC) AS position
+            FROM user_timeline
+        ) ranked ON ranked.user_id = t.user_id AND ranked.recommendation_id = t.recommendation_id
+        WHERE ranked.position > :capacity
+    """, nativeQuery = true)
+    int trim(@Param("capacity") int capacity);
+}
@@ -0,0 +1,105 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+// One inbox entry as seen by the owning user
+public class ConversationDTO {
+    private Integer peerId;
+    private String peerUsername;
+    private String peerForename;
+    private String peerSurename;
+    private Integer lastMessageId;
+    private Integer lastSenderId;
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+
+    public ConversationDTO() {
+    }
+
+    public ConversationDTO(Integer peerId, String peerUsername, String peerForename, String peerSurename,
+                           Integer lastMessageId, Integer lastSenderId, String lastMessagePreview,
+                           LocalDateTime lastMessageAt, int unreadCount) {
+        this.peerId = peerId;
+        this.peerUsername = peerUsername;
+        this.peerForename = peerForename;
+        this.peerSurename = peerSurename;
+        this.lastMessageId = lastMessageId;
+        this.lastSenderId = lastSenderId;
+        this.lastMessagePreview = lastMessagePreview;
+        this.lastMessageAt = lastMessageAt;
+        this.unreadCount = unreadCount;
+    }
+
+    public Integer getPeerId() {
+        return peerId;
+    }
+
+    public void setPeerId(Integer peerId) {
+        this.peerId = peerId;
+    }
+
+    public String getPeerUsername() {
+        return peerUsername;
+    }
+
+    public void setPeerUsername(String peerUsername) {
+        this.peerUsername = peerUsername;
+    }
+
+    public String getPeerForename() {
+        return peerForename;
+    }
+
+    public void setPeerForename(String peerForename) {
+        this.peerForename = peerForename;
+    }
+
+    public String getPeerSurename() {
+        return peerSurename;
+    }
+
+    public void setPeerSurename(String peerSurename) {
+        this.peerSurename = peerSurename;
+    }
+
+    public Integer getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Integer lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public Integer getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public void setLastSenderId(Integer lastSenderId) {
+        this.lastSenderId = lastSenderId;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
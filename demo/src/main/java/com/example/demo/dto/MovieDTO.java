@@ -7,6 +7,7 @@ public class MovieDTO {
     private Integer id;
     private String title;
     private String poster;
+    private String posterUrl;
     private String description;
     private LocalDate releaseYear;
     private String genres;
@@ -55,6 +56,15 @@ public class MovieDTO {
         this.poster = poster;
     }
 
+    // Poster is only used to upload a base64 image; responses carry posterUrl instead
+    public String getPosterUrl() {
+        return posterUrl;
+    }
+
+    public void setPosterUrl(String posterUrl) {
+        this.posterUrl = posterUrl;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -0,0 +1,95 @@
+package com.example.demo.dto;
+
+import com.example.demo.business.logic.PosterStorageService;
+
+import java.time.LocalDate;
+
+// Catalogue view of a movie, selected column-by-column so list endpoints
+// never read the description, trailer or recommendations.
+public class MovieSummaryDTO {
+    private Integer id;
+    private String title;
+    private LocalDate releaseYear;
+    private String genres;
+    private String director;
+    private String posterUrl;
+    private Integer recommendationCount;
+
+    public MovieSummaryDTO() {
+    }
+
+    // Used by JPQL constructor expressions; the poster URL is derived from the poster ETag
+    public MovieSummaryDTO(Integer id, String title, LocalDate releaseYear, String genres,
+                           String director, String posterEtag) {
+        this.id = id;
+        this.title = title;
+        this.releaseYear = releaseYear;
+        this.genres = genres;
+        this.director = director;
+        this.posterUrl = PosterStorageService.posterUrl(id, posterEtag);
+    }
+
+    // Leaderboard variant, also carries the number of recommendations
+    public MovieSummaryDTO(Integer id, String title, LocalDate releaseYear, String genres,
+                           String director, String posterEtag, int recommendationCount) {
+        this(id, title, releaseYear, genres, director, posterEtag);
+        this.recommendationCount = recommendationCount;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public LocalDate getReleaseYear() {
+        return releaseYear;
+    }
+
+    public void setReleaseYear(LocalDate releaseYear) {
+        this.releaseYear = releaseYear;
+    }
+
+    public String getGenres() {
+        return genres;
+    }
+
+    public void setGenres(String genres) {
+        this.genres = genres;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public void setDirector(String director) {
+        this.director = director;
+    }
+
+    public String getPosterUrl() {
+        return posterUrl;
+    }
+
+    public void setPosterUrl(String posterUrl) {
+        this.posterUrl = posterUrl;
+    }
+
+    // Null outside the leaderboard
+    public Integer getRecommendationCount() {
+        return recommendationCount;
+    }
+
+    public void setRecommendationCount(Integer recommendationCount) {
+        this.recommendationCount = recommendationCount;
+    }
+}
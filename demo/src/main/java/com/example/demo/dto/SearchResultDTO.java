@@ -0,0 +1,61 @@
+package com.example.demo.dto;
+
+public class SearchResultDTO {
+    private String type;
+    private Integer id;
+    private String title;
+    private String snippet;
+    private double score;
+
+    public SearchResultDTO() {
+    }
+
+    public SearchResultDTO(String type, Integer id, String title, String snippet, double score) {
+        this.type = type;
+        this.id = id;
+        this.title = title;
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    // One of "movie", "recommendation" or "comment"
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+public class SuggestionDTO {
+    private String type;
+    private Integer id;
+    private String label;
+
+    public SuggestionDTO() {
+    }
+
+    public SuggestionDTO(String type, Integer id, String label) {
+        this.type = type;
+        this.id = id;
+        this.label = label;
+    }
+
+    // One of "movie", "director" or "user"; directors have no id
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+}
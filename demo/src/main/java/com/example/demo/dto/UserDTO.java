@@ -17,6 +17,10 @@ public class UserDTO {
     private List<Integer> commentIds;
     private List<Integer> followingIds;
     private List<Integer> followerIds;
+    private int recommendationCount;
+    private int commentCount;
+    private int followerCount;
+    private int followingCount;
 
     public UserDTO() {
     }
@@ -146,6 +150,38 @@ public class UserDTO {
         this.followerIds = followerIds;
     }
 
+    public int getRecommendationCount() {
+        return recommendationCount;
+    }
+
+    public void setRecommendationCount(int recommendationCount) {
+        this.recommendationCount = recommendationCount;
+    }
+
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
+
+    public int getFollowerCount() {
+        return followerCount;
+    }
+
+    public void setFollowerCount(int followerCount) {
+        this.followerCount = followerCount;
+    }
+
+    public int getFollowingCount() {
+        return followingCount;
+    }
+
+    public void setFollowingCount(int followingCount) {
+        this.followingCount = followingCount;
+    }
+
     @Override
     public String toString() {
         return "UserDTO{" +
@@ -0,0 +1,102 @@
+package com.example.demo.dto;
+
+// Directory entry for a user: profile basics plus activity counters, without id lists
+public class UserSummaryDTO {
+    private Integer id;
+    private String username;
+    private String forename;
+    private String surename;
+    private int recommendationCount;
+    private int commentCount;
+    private int followerCount;
+    private int followingCount;
+    private Boolean followedByViewer;
+
+    public UserSummaryDTO() {
+    }
+
+    public UserSummaryDTO(Integer id, String username, String forename, String surename,
+                          int recommendationCount, int commentCount, int followerCount, int followingCount) {
+        this.id = id;
+        this.username = username;
+        this.forename = forename;
+        this.surename = surename;
+        this.recommendationCount = recommendationCount;
+        this.commentCount = commentCount;
+        this.followerCount = followerCount;
+        this.followingCount = followingCount;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getForename() {
+        return forename;
+    }
+
+    public void setForename(String forename) {
+        this.forename = forename;
+    }
+
+    public String getSurename() {
+        return surename;
+    }
+
+    public void setSurename(String surename) {
+        this.surename = surename;
+    }
+
+    public int getRecommendationCount() {
+        return recommendationCount;
+    }
+
+    public void setRecommendationCount(int recommendationCount) {
+        this.recommendationCount = recommendationCount;
+    }
+
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
+
+    public int getFollowerCount() {
+        return followerCount;
+    }
+
+    public void setFollowerCount(int followerCount) {
+        this.followerCount = followerCount;
+    }
+
+    public int getFollowingCount() {
+        return followingCount;
+    }
+
+    public void setFollowingCount(int followingCount) {
+        this.followingCount = followingCount;
+    }
+
+    // Only set when the request names a viewer
+    public Boolean getFollowedByViewer() {
+        return followedByViewer;
+    }
+
+    public void setFollowedByViewer(Boolean followedByViewer) {
+        this.followedByViewer = followedByViewer;
+    }
+}
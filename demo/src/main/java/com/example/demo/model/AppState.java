@@ -0,0 +1,29 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Named markers for work the application does once per database rather than once per startup,
+// such as whether the feed timelines were kept up to date since they were last seeded
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "app_state")
+public class AppState {
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -7,19 +7,22 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "comment")
+@Table(name = "comment", indexes = {
+        // Serves the keyset-paginated thread of one recommendation in (created_at, id) order
+        @Index(name = "idx_comment_recommendation_created_id", columnList = "recommendation_id, created_at, id")
+})
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)  // Changed to EAGER loading
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnoreProperties({"password", "email", "recommendations", "comments", "following", "followers"})
     private User user;
 
-    @ManyToOne(fetch = FetchType.EAGER)  // Changed to EAGER loading
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "recommendation_id", nullable = false)
     @JsonIgnoreProperties({"user", "comments"})
     private Recommendation recommendation;
@@ -0,0 +1,68 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Inbox row per (user, peer), upserted on every message so the inbox and unread
+// counts are read from here instead of aggregating the message table.
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(ConversationId.class)
+@Table(name = "conversation", indexes = {
+        @Index(name = "idx_conversation_user_last_message", columnList = "user_id, last_message_id")
+})
+public class Conversation {
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Id
+    @Column(name = "peer_id", nullable = false)
+    private Integer peerId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Integer lastMessageId;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private Integer lastSenderId;
+
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Integer getPeerId() {
+        return peerId;
+    }
+
+    public Integer getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public Integer getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+}
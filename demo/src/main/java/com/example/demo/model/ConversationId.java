@@ -0,0 +1,31 @@
+package com.example.demo.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class ConversationId implements Serializable {
+    private Integer userId;
+    private Integer peerId;
+
+    public ConversationId() {
+    }
+
+    public ConversationId(Integer userId, Integer peerId) {
+        this.userId = userId;
+        this.peerId = peerId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ConversationId that = (ConversationId) o;
+        return Objects.equals(userId, that.userId) &&
+                Objects.equals(peerId, that.peerId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, peerId);
+    }
+}
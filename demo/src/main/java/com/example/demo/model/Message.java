@@ -4,20 +4,28 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = {
+        @Index(name = "idx_message_conversation_id", columnList = "conversation_id, id"),
+        @Index(name = "idx_message_receiver_unread", columnList = "receiver_id, is_read, conversation_id")
+})
 public class Message {
+    // Ids come from a table generator in blocks so inserts can be JDBC-batched (IDENTITY disables batching)
+    public static final int ID_ALLOCATION_SIZE = 100;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "message_id")
+    @TableGenerator(name = "message_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "message", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Column(name = "content", length = 1000, nullable = false)
     private String content;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
@@ -27,6 +35,19 @@ public class Message {
     @Column(name = "is_read")
     private boolean isRead;
 
+    // Same value for both directions of a conversation, see conversationId(int, int)
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    public static long conversationId(int userId1, int userId2) {
+        return ((long) Math.min(userId1, userId2) << 32) | Math.max(userId1, userId2);
+    }
+
+    @PrePersist
+    void assignConversationId() {
+        conversationId = conversationId(sender.getId(), receiver.getId());
+    }
+
     // Standard getters and setters
     public Integer getId() { return id; }
     public void setId(Integer id) { this.id = id; }
@@ -46,6 +67,8 @@ public class Message {
     public boolean isRead() { return isRead; }
     public void setRead(boolean isRead) { this.isRead = isRead; }
 
+    public Long getConversationId() { return conversationId; }
+
     @Override
     public String toString() {
         return "Message{" +
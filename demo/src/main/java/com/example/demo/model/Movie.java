@@ -2,6 +2,8 @@ package com.example.demo.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -10,17 +12,31 @@ import java.util.List;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "movie")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movie")
+@Table(name = "movie", indexes = {
+        @Index(name = "idx_movie_title", columnList = "title"),
+        @Index(name = "idx_movie_release_year", columnList = "release_year"),
+        @Index(name = "idx_movie_director", columnList = "director"),
+        @Index(name = "idx_movie_recommendation_count", columnList = "recommendation_count, id")
+})
 public class Movie {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Integer id;
 
+    // Legacy base64 poster; only holds an upload until it is moved to disk by MovieService
     @Column(name = "poster", columnDefinition = "LONGTEXT")
     @Lob // Adding LOB annotation for large objects
     private String poster;
 
+    @Column(name = "poster_content_type", length = 50)
+    private String posterContentType;
+
+    @Column(name = "poster_etag", length = 64)
+    private String posterEtag;
+
     @Column(name = "trailer", columnDefinition = "TEXT")
     private String trailer;
 
@@ -48,6 +64,11 @@ public class Movie {
     @Column(name = "created_at")
     private LocalDate createdAt;
 
+    // Maintained with atomic UPDATEs by RecommendationService, never written from the entity
+    @Column(name = "recommendation_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int recommendationCount;
+
     @OneToMany(mappedBy = "movie", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Recommendation> recommendations;
 
@@ -63,6 +84,22 @@ public class Movie {
         this.poster = poster;
     }
 
+    public String getPosterContentType() {
+        return posterContentType;
+    }
+
+    public void setPosterContentType(String posterContentType) {
+        this.posterContentType = posterContentType;
+    }
+
+    public String getPosterEtag() {
+        return posterEtag;
+    }
+
+    public void setPosterEtag(String posterEtag) {
+        this.posterEtag = posterEtag;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -127,6 +164,10 @@ public class Movie {
         this.createdAt = createdAt;
     }
 
+    public int getRecommendationCount() {
+        return recommendationCount;
+    }
+
     public List<Recommendation> getRecommendations() {
         return recommendations;
     }
@@ -8,18 +8,22 @@ import java.util.List;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "recommendation")
+@Table(name = "recommendation", indexes = {
+        // Keyset index for the followed-users feed: WHERE user_id IN (...) ORDER BY created_at, id
+        @Index(name = "idx_recommendation_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_recommendation_comment_count", columnList = "comment_count, id")
+})
 public class Recommendation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "movie_id", nullable = false)
     private Movie movie;
 
@@ -29,6 +33,11 @@ public class Recommendation {
     @Column(name = "created_at", nullable = false)
     private LocalDate createdAt;
 
+    // Maintained with atomic UPDATEs by CommentService, never written from the entity
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int commentCount;
+
     @OneToMany(mappedBy = "recommendation", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Comment> comments;
 
@@ -47,6 +56,8 @@ public class Recommendation {
     public LocalDate getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDate createdAt) { this.createdAt = createdAt; }
 
+    public int getCommentCount() { return commentCount; }
+
     public List<Comment> getComments() { return comments; }
     public void setComments(List<Comment> comments) { this.comments = comments; }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.example.demo.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -9,7 +11,11 @@ import java.util.List;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@Table(name = "user", indexes = {
+        @Index(name = "idx_user_recommendation_count", columnList = "recommendation_count, id")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -40,6 +46,20 @@ public class User {
     @Column(name = "registration_date")
     private LocalDate registrationDate;
 
+    // Denormalized counters, maintained by the services that create the related rows through
+    // atomic UPDATEs only; saving the entity never writes them, so edits can't undo concurrent increments
+    @Column(name = "recommendation_count", nullable = false, insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int recommendationCount;
+
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int commentCount;
+
+    @Column(name = "follower_count", nullable = false, insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int followerCount;
+
+    @Column(name = "following_count", nullable = false, insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int followingCount;
+
     // One-to-Many relationships
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Recommendation> recommendations;
@@ -123,6 +143,22 @@ public class User {
         this.registrationDate = registrationDate;
     }
 
+    public int getRecommendationCount() {
+        return recommendationCount;
+    }
+
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    public int getFollowerCount() {
+        return followerCount;
+    }
+
+    public int getFollowingCount() {
+        return followingCount;
+    }
+
     public List<Recommendation> getRecommendations() {
         return recommendations;
     }
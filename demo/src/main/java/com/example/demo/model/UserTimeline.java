@@ -0,0 +1,49 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// One row per (follower, recommendation) pushed at write time, so feed reads
+// are a single range scan over idx_user_timeline_user_created instead of a
+// subquery over followed_user.
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(UserTimelineId.class)
+@Table(name = "user_timeline", indexes = {
+        @Index(name = "idx_user_timeline_user_created", columnList = "user_id, created_at, recommendation_id"),
+        @Index(name = "idx_user_timeline_user_author", columnList = "user_id, author_id")
+})
+public class UserTimeline {
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Id
+    @Column(name = "recommendation_id", nullable = false)
+    private Integer recommendationId;
+
+    @Column(name = "author_id", nullable = false)
+    private Integer authorId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDate createdAt;
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Integer getRecommendationId() {
+        return recommendationId;
+    }
+
+    public Integer getAuthorId() {
+        return authorId;
+    }
+
+    public LocalDate getCreatedAt() {
+        return createdAt;
+    }
+}
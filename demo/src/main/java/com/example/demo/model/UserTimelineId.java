@@ -0,0 +1,31 @@
+package com.example.demo.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class UserTimelineId implements Serializable {
+    private Integer userId;
+    private Integer recommendationId;
+
+    public UserTimelineId() {
+    }
+
+    public UserTimelineId(Integer userId, Integer recommendationId) {
+        this.userId = userId;
+        this.recommendationId = recommendationId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserTimelineId that = (UserTimelineId) o;
+        return Objects.equals(userId, that.userId) &&
+                Objects.equals(recommendationId, that.recommendationId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, recommendationId);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.presentation;
 
 import com.example.demo.business.logic.CommentService;
 import com.example.demo.dto.CommentDTO;
+import com.example.demo.dto.CursorPageDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +30,18 @@ public class CommentController {
         }
     }
 
+    @GetMapping("/recommendation/{recommendationId}/thread")
+    public ResponseEntity<CursorPageDTO<CommentDTO>> getCommentThread(
+            @PathVariable Integer recommendationId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(commentService.getThread(recommendationId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/create")
     public ResponseEntity<CommentDTO> createComment(@RequestBody Map<String, Object> request) {
         try {
@@ -2,15 +2,15 @@ package com.example.demo.presentation;
 
 import com.example.demo.business.logic.UserService;
 import com.example.demo.dto.LoginDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.dto.UserDTO;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.LoginResponse;
-import com.example.demo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @CrossOrigin
@@ -37,6 +37,58 @@ public class LoginController {
         return ResponseEntity.ok(users);
     }
 
+    // Paged directory with activity counters; viewerId marks the users the viewer follows
+    @GetMapping
+    public ResponseEntity<PageDTO<UserSummaryDTO>> getUserDirectory(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer viewerId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(userService.getDirectory(q, viewerId, page, size));
+    }
+
+    // Most active users first (by recommendations written)
+    @GetMapping("/top")
+    public ResponseEntity<PageDTO<UserSummaryDTO>> getTopUsers(
+            @RequestParam(required = false) Integer viewerId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(userService.getTopUsers(viewerId, page, size));
+    }
+
+    @GetMapping("/{id}/followers")
+    public ResponseEntity<PageDTO<UserSummaryDTO>> getFollowers(
+            @PathVariable Integer id,
+            @RequestParam(required = false) Integer viewerId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(userService.getFollowersPage(id, viewerId, page, size));
+    }
+
+    @GetMapping("/{id}/following")
+    public ResponseEntity<PageDTO<UserSummaryDTO>> getFollowing(
+            @PathVariable Integer id,
+            @RequestParam(required = false) Integer viewerId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(userService.getFollowingPage(id, viewerId, page, size));
+    }
+
+    // Users who follow {id} and whom {id} follows back
+    @GetMapping("/{id}/mutuals")
+    public ResponseEntity<PageDTO<UserSummaryDTO>> getMutuals(
+            @PathVariable Integer id,
+            @RequestParam(required = false) Integer viewerId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(userService.getMutualsPage(id, viewerId, page, size));
+    }
+
+    @GetMapping("/{followerId}/follows/{followedId}")
+    public ResponseEntity<Boolean> isFollowing(@PathVariable Integer followerId, @PathVariable Integer followedId) {
+        return ResponseEntity.ok(userService.isFollowing(followerId, followedId));
+    }
+
     @PostMapping("/follow")
     public ResponseEntity<?> followUser(@RequestParam Integer followerId, @RequestParam Integer followedId) {
         userService.followUser(followerId, followedId);
@@ -51,12 +103,9 @@ public class LoginController {
 
     @GetMapping("/{id}")
     public ResponseEntity<UserDTO> getUserById(@PathVariable Integer id) {
-        Optional<User> userOptional = userService.findById(id);
-        if (userOptional.isPresent()) {
-            UserDTO userDTO = userService.convertToDTO(userOptional.get());
-            return ResponseEntity.ok(userDTO);
-        }
-        return ResponseEntity.notFound().build();
+        return userService.getUser(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
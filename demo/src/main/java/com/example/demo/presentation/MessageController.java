@@ -1,8 +1,12 @@
 package com.example.demo.presentation;
 
+import com.example.demo.business.logic.MessageBatchWriter;
 import com.example.demo.business.logic.MessageService;
+import com.example.demo.dto.ConversationDTO;
 import com.example.demo.dto.MessageDTO;
+import com.example.demo.dto.PageDTO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,15 +26,48 @@ public class MessageController {
         Integer receiverId = (Integer) request.get("receiverId");
         String content = (String) request.get("content");
 
-        MessageDTO message = messageService.sendMessage(senderId, receiverId, content);
-        return ResponseEntity.ok(message);
+        try {
+            MessageDTO message = messageService.sendMessage(senderId, receiverId, content);
+            // Queued but not yet written (batched mode acknowledging on enqueue)
+            if (message.getId() == null) {
+                return ResponseEntity.accepted().body(message);
+            }
+            return ResponseEntity.ok(message);
+        } catch (MessageBatchWriter.UnavailableException e) {
+            // Queue full or write not acknowledged in time; any other failure is a real error
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 
     @GetMapping("/between")
     public ResponseEntity<List<MessageDTO>> getMessagesBetweenUsers(
             @RequestParam Integer userId1,
-            @RequestParam Integer userId2) {
-        List<MessageDTO> messages = messageService.getMessagesBetweenUsers(userId1, userId2);
-        return ResponseEntity.ok(messages);
+            @RequestParam Integer userId2,
+            @RequestParam(required = false) Integer afterId,
+            @RequestParam(required = false) Integer beforeId,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(messageService.getMessagesBetweenUsers(userId1, userId2, afterId, beforeId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/inbox/{userId}")
+    public ResponseEntity<PageDTO<ConversationDTO>> getInbox(
+            @PathVariable Integer userId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(messageService.getInbox(userId, page, size));
+    }
+
+    @PostMapping("/read")
+    public ResponseEntity<Map<String, Integer>> markConversationRead(@RequestBody Map<String, Integer> request) {
+        Integer userId = request.get("userId");
+        Integer peerId = request.get("peerId");
+        if (userId == null || peerId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of("updated", messageService.markConversationRead(userId, peerId)));
+    }
+}
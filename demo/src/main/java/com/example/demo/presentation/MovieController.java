@@ -1,15 +1,25 @@
 package com.example.demo.presentation;
 
 import com.example.demo.business.logic.MovieService;
+import com.example.demo.business.logic.PosterStorageService;
 import com.example.demo.dto.MovieDTO;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.model.Movie;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @CrossOrigin(origins = "*", allowedHeaders = "*")
@@ -18,38 +28,99 @@ public class MovieController {
     @Autowired
     private MovieService movieService;
 
+    @Autowired
+    private PosterStorageService posterStorageService;
+
+    // Paged catalogue of lightweight summaries; the full movie is only loaded by /{id}
     @GetMapping
-    public ResponseEntity<List<MovieDTO>> getAllMovies() {
-        List<Movie> movies = movieService.findAll();
-        List<MovieDTO> movieDTOs = movies.stream()
-                .map(this::convertToFullDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(movieDTOs);
+    public ResponseEntity<PageDTO<MovieSummaryDTO>> getMovies(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) String director,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) String q) {
+        try {
+            PageDTO<MovieSummaryDTO> movies =
+                    movieService.findPage(q, genre, director, yearFrom, yearTo, page, size, sort);
+            return ResponseEntity.ok(movies);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Most recommended movies first
+    @GetMapping("/top")
+    public ResponseEntity<PageDTO<MovieSummaryDTO>> getTopMovies(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(movieService.getTopMovies(page, size));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<MovieDTO> getMovieById(@PathVariable Integer id) {
-        Optional<Movie> movieOptional = movieService.findById(id);
-        return movieOptional
-                .map(movie -> ResponseEntity.ok(convertToFullDTO(movie)))
+        return movieService.getMovie(id)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    private MovieDTO convertToFullDTO(Movie movie) {
-        MovieDTO dto = new MovieDTO();
-        dto.setId(movie.getId());
-        dto.setTitle(movie.getTitle());
-        dto.setPoster(movie.getPoster());
-        dto.setDescription(movie.getDescription());
-        dto.setReleaseYear(movie.getReleaseYear());
-        dto.setGenres(movie.getGenres());
-        dto.setRuntime(movie.getRuntime());
-        dto.setStars(movie.getStars());
-        dto.setDirector(movie.getDirector());
-        dto.setTrailer(movie.getTrailer());
-        return dto;
+    // Streams the poster file. A URL versioned by ETag (?v=, as posterUrl builds it) names content
+    // that never changes and can be cached long-term; without it, or with an outdated version,
+    // clients have to revalidate. size=small|medium picks a precomputed variant and falls back
+    // to the full poster while the variants are still being generated.
+    @GetMapping("/{id}/poster")
+    public ResponseEntity<Resource> getPoster(@PathVariable Integer id,
+                                              @RequestParam(required = false) String size,
+                                              @RequestParam(required = false) String v,
+                                              WebRequest request) {
+        PosterStorageService.Size requestedSize;
+        try {
+            requestedSize = PosterStorageService.Size.parse(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<Movie> movieOptional = movieService.findById(id);
+        if (movieOptional.isEmpty() || movieOptional.get().getPosterEtag() == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Movie movie = movieOptional.get();
+        Path file = posterStorageService.resolve(id, requestedSize, movie.getPosterEtag());
+        MediaType contentType = MediaType.IMAGE_JPEG;
+        CacheControl cacheControl = movie.getPosterEtag().equals(v)
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                : CacheControl.noCache();
+        if (requestedSize == PosterStorageService.Size.FULL || !Files.exists(file)) {
+            if (requestedSize != PosterStorageService.Size.FULL) {
+                // Variant not generated yet: make the client come back for it later
+                cacheControl = CacheControl.noCache();
+            }
+            requestedSize = PosterStorageService.Size.FULL;
+            file = posterStorageService.resolve(id, requestedSize, movie.getPosterEtag());
+            contentType = PosterStorageService.servedMediaType(movie.getPosterContentType());
+        }
+
+        String etag = "\"" + movie.getPosterEtag() + "-" + requestedSize.name().toLowerCase() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        if (!Files.exists(file)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header("X-Content-Type-Options", "nosniff")
+                .contentType(contentType)
+                .body(new FileSystemResource(file));
     }
 
+
     @PostMapping("/create")
     public ResponseEntity<MovieDTO> createMovie(@RequestBody MovieDTO movieDTO) {
         try {
@@ -69,7 +140,7 @@ public class MovieController {
             Movie savedMovie = movieService.save(movie);
 
             // Convert back to DTO and return
-            return ResponseEntity.ok(convertToFullDTO(savedMovie));
+            return ResponseEntity.ok(movieService.toDTO(savedMovie));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
@@ -95,10 +166,10 @@ public class MovieController {
             movie.setStars(movieDTO.getStars());
             movie.setDirector(movieDTO.getDirector());
             movie.setTrailer(movieDTO.getTrailer());
-            movie.setPoster(movieDTO.getPoster());
+            movie.setPoster(movieDTO.getPoster()); // null keeps the current poster
 
             Movie updatedMovie = movieService.save(movie);
-            return ResponseEntity.ok(convertToFullDTO(updatedMovie));
+            return ResponseEntity.ok(movieService.toDTO(updatedMovie));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
@@ -0,0 +1,115 @@
+package com.example.demo.presentation;
+
+import com.example.demo.data.access.ReactiveCommentRepository;
+import com.example.demo.data.access.ReactiveMovieRepository;
+import com.example.demo.data.access.ReactiveRecommendationRepository;
+import com.example.demo.dto.CommentDTO;
+import com.example.demo.dto.KeysetCursor;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.RecommendationDTO;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+// Reactive read endpoints, routed in ReactiveConfig. Results stream as newline-delimited JSON,
+// one object per row as it arrives from the database. Keyset pages continue from the last item
+// received: pass its createdAt and id as beforeCreatedAt and beforeId.
+@Component
+@Profile("reactive")
+public class ReactiveReadHandler {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ReactiveRecommendationRepository recommendationRepository;
+    private final ReactiveMovieRepository movieRepository;
+    private final ReactiveCommentRepository commentRepository;
+
+    public ReactiveReadHandler(ReactiveRecommendationRepository recommendationRepository,
+                               ReactiveMovieRepository movieRepository,
+                               ReactiveCommentRepository commentRepository) {
+        this.recommendationRepository = recommendationRepository;
+        this.movieRepository = movieRepository;
+        this.commentRepository = commentRepository;
+    }
+
+    public Mono<ServerResponse> feed(ServerRequest request) {
+        Integer userId = Integer.valueOf(request.pathVariable("userId"));
+        int size = size(request);
+        Flux<RecommendationDTO> feed = before(request)
+                .map(position -> recommendationRepository.findFeedFromFollowedUsersAfter(
+                        userId, position.createdAt(), position.id(), size))
+                .orElseGet(() -> recommendationRepository.findFeedFromFollowedUsers(userId, size));
+        return stream(feed, RecommendationDTO.class);
+    }
+
+    public Mono<ServerResponse> movieRecommendations(ServerRequest request) {
+        Integer movieId = Integer.valueOf(request.pathVariable("movieId"));
+        return stream(recommendationRepository.findByMovieId(movieId), RecommendationDTO.class);
+    }
+
+    // Most commented recommendations first
+    public Mono<ServerResponse> topRecommendations(ServerRequest request) {
+        int size = size(request);
+        return stream(recommendationRepository.findTopByCommentCount(page(request) * size, size),
+                RecommendationDTO.class);
+    }
+
+    public Mono<ServerResponse> movies(ServerRequest request) {
+        return stream(movieRepository.findAllSummaries(), MovieSummaryDTO.class);
+    }
+
+    // Most recommended movies first
+    public Mono<ServerResponse> topMovies(ServerRequest request) {
+        int size = size(request);
+        return stream(movieRepository.findTopSummaries(page(request) * size, size), MovieSummaryDTO.class);
+    }
+
+    public Mono<ServerResponse> commentThread(ServerRequest request) {
+        Integer recommendationId = Integer.valueOf(request.pathVariable("recommendationId"));
+        int size = size(request);
+        Flux<CommentDTO> thread = before(request)
+                .map(position -> commentRepository.findThreadAfter(
+                        recommendationId, position.createdAt(), position.id(), size))
+                .orElseGet(() -> commentRepository.findThread(recommendationId, size));
+        return stream(thread, CommentDTO.class);
+    }
+
+    private static <T> Mono<ServerResponse> stream(Flux<T> items, Class<T> type) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(items, type);
+    }
+
+    private static int size(ServerRequest request) {
+        return request.queryParam("size")
+                .map(size -> Math.min(Math.max(Integer.parseInt(size), 1), MAX_PAGE_SIZE))
+                .orElse(DEFAULT_PAGE_SIZE);
+    }
+
+    private static int page(ServerRequest request) {
+        return request.queryParam("page").map(page -> Math.max(Integer.parseInt(page), 0)).orElse(0);
+    }
+
+    // Both keyset parameters or neither
+    private static Optional<KeysetCursor> before(ServerRequest request) {
+        Optional<String> createdAt = request.queryParam("beforeCreatedAt");
+        Optional<String> id = request.queryParam("beforeId");
+        if (createdAt.isEmpty() && id.isEmpty()) {
+            return Optional.empty();
+        }
+        if (createdAt.isEmpty() || id.isEmpty()) {
+            throw new IllegalArgumentException("beforeCreatedAt and beforeId must be given together");
+        }
+        try {
+            return Optional.of(new KeysetCursor(LocalDate.parse(createdAt.get()), Integer.valueOf(id.get())));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid beforeCreatedAt", e);
+        }
+    }
+}
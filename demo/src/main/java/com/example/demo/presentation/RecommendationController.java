@@ -2,7 +2,8 @@ package com.example.demo.presentation;
 
 import com.example.demo.business.logic.MovieService;
 import com.example.demo.business.logic.RecommendationService;
-import com.example.demo.data.access.RecommendationRepository;
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.PageDTO;
 import com.example.demo.dto.RecommendationDTO;
 import com.example.demo.model.Recommendation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +13,6 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @CrossOrigin
@@ -29,23 +29,41 @@ public class RecommendationController {
         return ResponseEntity.ok(recommendations);
     }
 
+    @GetMapping("/followed/{userId}/feed")
+    public ResponseEntity<CursorPageDTO<RecommendationDTO>> getFeedFromFollowedUsers(
+            @PathVariable Integer userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            CursorPageDTO<RecommendationDTO> feed =
+                    recommendationService.getFeedFromFollowedUsers(userId, cursor, size);
+            return ResponseEntity.ok(feed);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Most commented recommendations first
+    @GetMapping("/top")
+    public ResponseEntity<PageDTO<RecommendationDTO>> getTopRecommendations(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(recommendationService.getTopRecommendations(page, size));
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<RecommendationDTO>> getUserRecommendations(@PathVariable Integer userId) {
-        List<Recommendation> recommendations = recommendationService.findByUserId(userId);
-        List<RecommendationDTO> recommendationDTOs = recommendations.stream()
-                .map(recommendationService::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(recommendationDTOs);
+        return ResponseEntity.ok(recommendationService.findByUserId(userId));
     }
 
     @PostMapping("/create")
-    public ResponseEntity<Recommendation> createRecommendation(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<RecommendationDTO> createRecommendation(@RequestBody Map<String, Object> request) {
         Integer userId = (Integer) request.get("userId");
         Integer movieId = (Integer) request.get("movieId");
         String content = (String) request.get("content");
 
         Recommendation recommendation = recommendationService.createRecommendation(userId, movieId, content);
-        return ResponseEntity.ok(recommendation);
+        return ResponseEntity.ok(recommendationService.convertToDTO(recommendation));
     }
 
     // Add this new endpoint to RecommendationController.java
@@ -53,11 +71,9 @@ public class RecommendationController {
     @GetMapping("/{id}")
     public ResponseEntity<RecommendationDTO> getRecommendationById(@PathVariable Integer id) {
         try {
-            RecommendationRepository recommendationRepository;
-            Optional<Recommendation> recommendationOptional = recommendationService.findById(id);
-            if (recommendationOptional.isPresent()) {
-                RecommendationDTO dto = recommendationService.convertToDTO(recommendationOptional.get());
-                return ResponseEntity.ok(dto);
+            Optional<RecommendationDTO> recommendation = recommendationService.findById(id);
+            if (recommendation.isPresent()) {
+                return ResponseEntity.ok(recommendation.get());
             }
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -67,10 +83,6 @@ public class RecommendationController {
 
     @GetMapping("/movie/{movieId}")
     public ResponseEntity<List<RecommendationDTO>> getMovieRecommendations(@PathVariable Integer movieId) {
-        List<Recommendation> recommendations = recommendationService.findByMovieId(movieId);
-        List<RecommendationDTO> recommendationDTOs = recommendations.stream()
-                .map(recommendationService::convertToDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(recommendationDTOs);
+        return ResponseEntity.ok(recommendationService.findByMovieId(movieId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.demo.presentation;
+
+import com.example.demo.business.logic.SearchService;
+import com.example.demo.dto.SearchResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@RequestMapping("/api/v1/search")
+public class SearchController {
+    @Autowired
+    private SearchService searchService;
+
+    @GetMapping
+    public ResponseEntity<List<SearchResultDTO>> search(@RequestParam String q,
+                                                        @RequestParam(required = false) String type,
+                                                        @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(searchService.search(q, type, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
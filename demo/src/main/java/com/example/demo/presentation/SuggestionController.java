@@ -0,0 +1,23 @@
+package com.example.demo.presentation;
+
+import com.example.demo.business.logic.SuggestionService;
+import com.example.demo.dto.SuggestionDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@RequestMapping("/api/v1/suggest")
+public class SuggestionController {
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @GetMapping
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String prefix,
+                                                       @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(suggestionService.suggest(prefix, limit));
+    }
+}
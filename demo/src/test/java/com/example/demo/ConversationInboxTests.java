@@ -0,0 +1,132 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.MessageBatchWriter;
+import com.example.demo.business.logic.MessageService;
+import com.example.demo.data.access.ConversationRepository;
+import com.example.demo.data.access.MessageLogStore;
+import com.example.demo.data.access.MessageRepository;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.dto.MessageDTO;
+import com.example.demo.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Unread counts through a send and mark-read cycle, over a real message log. The conversation upsert
+// is MySQL-only SQL, so the conversation table is an in-memory map that applies the same deltas.
+class ConversationInboxTests {
+
+	private static final int READER = 1;
+	private static final int PEER = 2;
+
+	@TempDir
+	Path directory;
+
+	private final Map<Integer, User> users = List.of(user(READER), user(PEER)).stream()
+			.collect(Collectors.toMap(User::getId, Function.identity()));
+	// (user, peer) to unread count, as kept in the conversation table
+	private final Map<List<Integer>, Integer> unread = new ConcurrentHashMap<>();
+	private MessageLogStore messageStore;
+	private MessageService messageService;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findById(anyInt())).thenAnswer(invocation -> Optional.ofNullable(users.get(invocation.getArgument(0))));
+		when(userRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			Iterable<Integer> ids = invocation.getArgument(0);
+			return StreamSupport.stream(ids.spliterator(), false).map(users::get).toList();
+		});
+		ConversationRepository conversationRepository = mock(ConversationRepository.class);
+		doAnswer(invocation -> unread.merge(List.of(invocation.getArgument(0), invocation.getArgument(1)),
+				invocation.<Integer>getArgument(6), Integer::sum))
+				.when(conversationRepository).upsert(anyInt(), anyInt(), anyInt(), anyInt(), anyString(), any(), anyInt());
+		doAnswer(invocation -> unread.put(List.of(invocation.getArgument(0), invocation.getArgument(1)),
+				invocation.getArgument(2)))
+				.when(conversationRepository).setUnreadCount(anyInt(), anyInt(), anyInt());
+
+		messageStore = new MessageLogStore(directory.toString(), 4096, 4, "interval", 16,
+				mock(MessageRepository.class), userRepository);
+		messageStore.seedIds();
+		MessageBatchWriter batchWriter = mock(MessageBatchWriter.class);
+		messageService = new MessageService(mock(MessageRepository.class), messageStore, conversationRepository,
+				userRepository, mock(SimpMessageSendingOperations.class), batchWriter,
+				new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(), "enqueue", 5000);
+	}
+
+	@AfterEach
+	void close() {
+		messageStore.closeAll();
+	}
+
+	@Test
+	void messagesCountAsUnreadForTheReceiverOnly() {
+		messageService.sendMessage(PEER, READER, "one");
+		messageService.sendMessage(PEER, READER, "two");
+		messageService.sendMessage(READER, PEER, "three");
+
+		assertThat(unread.get(List.of(READER, PEER))).isEqualTo(2);
+		assertThat(unread.get(List.of(PEER, READER))).isEqualTo(1);
+	}
+
+	@Test
+	void markReadClearsOneSideAndLaterMessagesCountAgain() {
+		messageService.sendMessage(PEER, READER, "one");
+		messageService.sendMessage(PEER, READER, "two");
+		messageService.sendMessage(READER, PEER, "three");
+
+		assertThat(messageService.markConversationRead(READER, PEER)).isEqualTo(2);
+		assertThat(unread.get(List.of(READER, PEER))).isZero();
+		assertThat(unread.get(List.of(PEER, READER))).isEqualTo(1);
+		assertThat(messageService.markConversationRead(READER, PEER)).isZero();
+
+		messageService.sendMessage(PEER, READER, "four");
+		assertThat(unread.get(List.of(READER, PEER))).isEqualTo(1);
+		assertThat(messageService.getMessagesBetweenUsers(READER, PEER, null, null, null))
+				.extracting(MessageDTO::isRead).containsExactly(true, true, false, false);
+	}
+
+	// Recounting from the store repairs a count that drifted, where zeroing it would hide a message
+	@Test
+	void markReadRecountsFromTheStore() {
+		messageService.sendMessage(PEER, READER, "one");
+		unread.put(List.of(PEER, READER), 5);
+
+		messageService.markConversationRead(PEER, READER);
+
+		assertThat(unread.get(List.of(PEER, READER))).isZero();
+		assertThat(unread.get(List.of(READER, PEER))).isEqualTo(1);
+	}
+
+	private static User user(int id) {
+		User user = new User();
+		ReflectionTestUtils.setField(user, "id", id);
+		user.setUsername("user" + id);
+		return user;
+	}
+}
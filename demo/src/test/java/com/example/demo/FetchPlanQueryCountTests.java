@@ -0,0 +1,272 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.CommentService;
+import com.example.demo.business.logic.MessageBatchWriter;
+import com.example.demo.business.logic.MessageService;
+import com.example.demo.business.logic.RecommendationService;
+import com.example.demo.business.logic.SearchService;
+import com.example.demo.business.logic.StartupMigrations;
+import com.example.demo.business.logic.TimelineService;
+import com.example.demo.business.logic.UserService;
+import com.example.demo.data.access.AppStateRepository;
+import com.example.demo.data.access.CommentRepository;
+import com.example.demo.data.access.ConversationRepository;
+import com.example.demo.data.access.JpaMessageStore;
+import com.example.demo.data.access.MessageArchive;
+import com.example.demo.data.access.MessageRepository;
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.RecommendationRepository;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.data.access.UserTimelineRepository;
+import com.example.demo.dto.CommentDTO;
+import com.example.demo.dto.CursorPageDTO;
+import com.example.demo.dto.MessageDTO;
+import com.example.demo.dto.RecommendationDTO;
+import com.example.demo.model.Comment;
+import com.example.demo.model.FollowedUser;
+import com.example.demo.model.Message;
+import com.example.demo.model.Movie;
+import com.example.demo.model.Recommendation;
+import com.example.demo.model.User;
+import com.example.demo.model.UserTimeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Every read endpoint must cost a fixed number of statements however many rows it returns.
+// A lazy association touched outside its fetch plan shows up here as one extra query per row.
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:fetchplans;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FetchPlanQueryCountTests {
+
+	private static final int ROWS = 5;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private RecommendationRepository recommendationRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	@Autowired
+	private ConversationRepository conversationRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MovieRepository movieRepository;
+
+	@Autowired
+	private UserTimelineRepository userTimelineRepository;
+
+	private Statistics statistics;
+	private User reader;
+	private User peer;
+	private Movie movie;
+	private Recommendation commented;
+
+	@BeforeEach
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		reader = persistUser("reader");
+		peer = persistUser("peer");
+		entityManager.persist(new FollowedUser(reader, peer, LocalDate.now()));
+
+		// Distinct authors and movies, so a missing fetch plan would cost one query per row
+		for (int i = 0; i < ROWS; i++) {
+			User author = persistUser("author" + i);
+			entityManager.persist(new FollowedUser(reader, author, LocalDate.now()));
+			Movie recommended = persistMovie("Movie " + i);
+			Recommendation recommendation = persistRecommendation(author, recommended, LocalDate.now().minusDays(i));
+			entityManager.persist(new UserTimeline(reader.getId(), recommendation.getId(), author.getId(),
+					recommendation.getCreatedAt()));
+			if (i == 0) {
+				movie = recommended;
+				commented = recommendation;
+			}
+		}
+		for (int i = 1; i < ROWS; i++) {
+			persistRecommendation(persistUser("fan" + i), movie, LocalDate.now().minusDays(i));
+		}
+		for (int i = 0; i < ROWS; i++) {
+			Comment comment = new Comment();
+			comment.setUser(persistUser("commenter" + i));
+			comment.setRecommendation(commented);
+			comment.setContent("Comment " + i);
+			comment.setCreatedAt(LocalDate.now());
+			entityManager.persist(comment);
+
+			Message message = new Message();
+			message.setSender(i % 2 == 0 ? reader : peer);
+			message.setReceiver(i % 2 == 0 ? peer : reader);
+			message.setContent("Message " + i);
+			message.setSentAt(LocalDateTime.now());
+			entityManager.persist(message);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void feedPageIsOneQuery() {
+		CursorPageDTO<RecommendationDTO> feed = countQueries(1,
+				() -> recommendationService(false).getFeedFromFollowedUsers(reader.getId(), null, ROWS - 1));
+		assertThat(feed.getItems()).hasSize(ROWS - 1);
+		assertThat(feed.getNextCursor()).isNotNull();
+
+		countQueries(1, () -> recommendationService(false).getFeedFromFollowedUsers(reader.getId(),
+				feed.getNextCursor(), ROWS));
+	}
+
+	@Test
+	void timelineFeedPageIsOneQuery() {
+		CursorPageDTO<RecommendationDTO> feed = countQueries(1,
+				() -> recommendationService(true).getFeedFromFollowedUsers(reader.getId(), null, ROWS));
+		assertThat(feed.getItems()).hasSize(ROWS);
+		assertThat(feed.getItems()).allSatisfy(item -> assertThat(item.getMovie().getTitle()).isNotNull());
+	}
+
+	@Test
+	void leaderboardPageIsOneQuery() {
+		// The first page is not full, so Spring Data skips the count query
+		assertThat(countQueries(1, () -> recommendationService(false).getTopRecommendations(0, 100))
+				.getContent()).hasSize(2 * ROWS - 1);
+	}
+
+	@Test
+	void moviePageRecommendationsAreOneQuery() {
+		List<RecommendationDTO> recommendations = countQueries(1,
+				() -> recommendationService(false).findByMovieId(movie.getId()));
+		assertThat(recommendations).hasSize(ROWS);
+		assertThat(recommendations).allSatisfy(item -> assertThat(item.getUser().getUsername()).isNotNull());
+	}
+
+	@Test
+	void singleRecommendationIsOneQuery() {
+		RecommendationDTO recommendation = countQueries(1,
+				() -> recommendationService(false).findById(commented.getId()).orElseThrow());
+		assertThat(recommendation.getMovie().getTitle()).isEqualTo("Movie 0");
+	}
+
+	// Cards are read as projections, so neither the author nor the movie entity is loaded
+	@Test
+	void recommendationCardsLoadNoEntities() {
+		statistics.clear();
+		recommendationService(false).getFeedFromFollowedUsers(reader.getId(), null, ROWS);
+		recommendationService(true).getFeedFromFollowedUsers(reader.getId(), null, ROWS);
+		recommendationService(false).getTopRecommendations(0, 100);
+		recommendationService(false).findByMovieId(movie.getId());
+		recommendationService(false).findByUserId(reader.getId());
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void commentThreadPageIsOneQuery() {
+		CursorPageDTO<CommentDTO> thread = countQueries(1,
+				() -> commentService().getThread(commented.getId(), null, ROWS));
+		assertThat(thread.getItems()).hasSize(ROWS);
+		assertThat(thread.getItems()).allSatisfy(item -> assertThat(item.getUser().getUsername()).isNotNull());
+	}
+
+	@Test
+	void chatPageIsOneQuery() {
+		List<MessageDTO> messages = countQueries(1,
+				() -> messageService().getMessagesBetweenUsers(reader.getId(), peer.getId(), null, null, null));
+		assertThat(messages).hasSize(ROWS);
+		assertThat(messages).allSatisfy(item -> assertThat(item.getSender().getUsername()).isNotNull());
+	}
+
+	@Test
+	void loadingACommentDoesNotLoadItsRecommendation() {
+		Integer commentId = commentRepository.findAll().get(0).getId();
+		entityManager.clear();
+		countQueries(1, () -> commentRepository.findById(commentId).orElseThrow().getRecommendation().getId());
+	}
+
+	private <T> T countQueries(long expected, Supplier<T> action) {
+		statistics.clear();
+		T result = action.get();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+		entityManager.clear();
+		return result;
+	}
+
+	private RecommendationService recommendationService(boolean timelineEnabled) {
+		return new RecommendationService(recommendationRepository, userRepository, movieRepository,
+				new TimelineService(userTimelineRepository, mock(AppStateRepository.class), timelineEnabled, 500), mock(SearchService.class),
+				mock(StartupMigrations.class));
+	}
+
+	private CommentService commentService() {
+		return new CommentService(commentRepository, userRepository, recommendationRepository,
+				mock(UserService.class), mock(SearchService.class));
+	}
+
+	private MessageService messageService() {
+		JpaMessageStore messageStore = new JpaMessageStore(messageRepository,
+				new MessageArchive("target/message-archive"), userRepository);
+		return new MessageService(messageRepository, messageStore, conversationRepository, userRepository,
+				mock(SimpMessageSendingOperations.class), mock(MessageBatchWriter.class), null,
+				new SimpleMeterRegistry(), "enqueue", 5000);
+	}
+
+	private User persistUser(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setForename(username);
+		user.setSurename(username);
+		return entityManager.persist(user);
+	}
+
+	private Movie persistMovie(String title) {
+		Movie movie = new Movie();
+		movie.setTitle(title);
+		movie.setGenres("Drama");
+		return entityManager.persist(movie);
+	}
+
+	private Recommendation persistRecommendation(User author, Movie movie, LocalDate createdAt) {
+		Recommendation recommendation = new Recommendation();
+		recommendation.setUser(author);
+		recommendation.setMovie(movie);
+		recommendation.setContent("Recommended by " + author.getUsername());
+		recommendation.setCreatedAt(createdAt);
+		return entityManager.persist(recommendation);
+	}
+}
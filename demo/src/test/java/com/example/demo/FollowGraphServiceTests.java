@@ -0,0 +1,188 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.FollowGraphService;
+import com.example.demo.data.access.FollowedUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FollowGraphServiceTests {
+
+	private record Edge(Integer getFollowerId, Integer getFollowedId) implements FollowedUserRepository.FollowEdge {
+	}
+
+	// Stands in for the followed_user table, which the graph reads an edge back from after each change
+	private final Set<Long> table = ConcurrentHashMap.newKeySet();
+	private FollowGraphService graph;
+
+	@BeforeEach
+	void load() {
+		FollowedUserRepository repository = mock(FollowedUserRepository.class);
+		when(repository.findEdges(any())).thenReturn(List.of(
+				new Edge(1, 2), new Edge(1, 3), new Edge(2, 1), new Edge(3, 5)));
+		table.addAll(List.of(edge(1, 2), edge(1, 3), edge(2, 1), edge(3, 5)));
+		when(repository.isFollowing(anyInt(), anyInt()))
+				.thenAnswer(invocation -> table.contains(edge(invocation.getArgument(0), invocation.getArgument(1))));
+		// Folds run inline, so every overlay state is reachable from the test thread
+		graph = new FollowGraphService(repository, new SyncTaskExecutor());
+		graph.load();
+	}
+
+	@Test
+	void answersFromTheLoadedSnapshot() {
+		assertThat(graph.isFollowing(1, 2)).isTrue();
+		assertThat(graph.isFollowing(2, 3)).isFalse();
+		assertThat(graph.following(1)).containsExactly(2, 3);
+		assertThat(graph.followerCount(1)).isEqualTo(1);
+		assertThat(graph.mutuals(1)).containsExactly(2);
+	}
+
+	@Test
+	void overlayChangesAreMergedIntoReads() {
+		follow(3, 1);
+		follow(4, 1);
+		unfollow(1, 2);
+
+		assertThat(graph.isFollowing(1, 2)).isFalse();
+		assertThat(graph.following(1)).containsExactly(3);
+		assertThat(graph.followingCount(1)).isEqualTo(1);
+		assertThat(graph.followers(1)).containsExactly(2, 3, 4);
+		assertThat(graph.followerCount(1)).isEqualTo(3);
+		assertThat(graph.followersPage(1, 1, 1)).containsExactly(3);
+		assertThat(graph.mutuals(1)).containsExactly(3);
+	}
+
+	@Test
+	void followThenUnfollowOfTheSameEdgeEndsUnfollowed() {
+		follow(4, 5);
+		unfollow(4, 5);
+		follow(1, 2);
+
+		assertThat(graph.isFollowing(4, 5)).isFalse();
+		assertThat(graph.followers(5)).containsExactly(3);
+		assertThat(graph.following(1)).containsExactly(2, 3);
+	}
+
+	// Enough changes to fold the overlay into new snapshots several times
+	@Test
+	void matchesAPlainSetAcrossFolds() {
+		Set<Long> expected = new TreeSet<>(List.of(edge(1, 2), edge(1, 3), edge(2, 1), edge(3, 5)));
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			int follower = random.nextInt(40);
+			int followed = random.nextInt(40);
+			if (expected.contains(edge(follower, followed))) {
+				unfollow(follower, followed);
+				expected.remove(edge(follower, followed));
+			} else {
+				follow(follower, followed);
+				expected.add(edge(follower, followed));
+			}
+		}
+
+		for (int user = 0; user < 40; user++) {
+			int id = user;
+			int[] following = expected.stream().filter(e -> (int) (e >>> 32) == id)
+					.mapToInt(e -> (int) (long) e).sorted().toArray();
+			int[] followers = expected.stream().filter(e -> (int) (long) e == id)
+					.mapToInt(e -> (int) (e >>> 32)).sorted().toArray();
+			assertThat(graph.following(user)).containsExactly(following);
+			assertThat(graph.followers(user)).containsExactly(followers);
+			assertThat(graph.followingCount(user)).isEqualTo(following.length);
+			assertThat(graph.followerCount(user)).isEqualTo(followers.length);
+			for (int other = 0; other < 40; other++) {
+				assertThat(graph.isFollowing(user, other)).isEqualTo(expected.contains(edge(user, other)));
+			}
+		}
+	}
+
+	// Callbacks of two commits of the same edge can run in the opposite order of the commits
+	@Test
+	void callbacksOutOfCommitOrderEndWithTheCommittedState() {
+		table.add(edge(4, 5));
+		table.remove(edge(4, 5));
+		graph.onUnfollow(4, 5);
+		graph.onFollow(4, 5);
+
+		assertThat(graph.isFollowing(4, 5)).isFalse();
+		assertThat(graph.followers(5)).containsExactly(3);
+		assertThat(graph.followingCount(4)).isZero();
+	}
+
+	// One thread follows and another unfollows the same edge in every round; their callbacks can run
+	// in either order relative to their commits. After each round the graph has to match the table.
+	@Test
+	void concurrentFollowAndUnfollowEndWithTheCommittedState() throws Exception {
+		AtomicInteger mismatches = new AtomicInteger();
+		CyclicBarrier start = new CyclicBarrier(2);
+		CyclicBarrier end = new CyclicBarrier(2, () -> {
+			boolean followed = table.contains(edge(4, 5));
+			if (graph.isFollowing(4, 5) != followed || graph.followerCount(5) != (followed ? 2 : 1)
+					|| graph.following(4).length != (followed ? 1 : 0)) {
+				mismatches.incrementAndGet();
+			}
+		});
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		List<Future<?>> done = new ArrayList<>();
+		for (int t = 0; t < 2; t++) {
+			boolean following = t == 0;
+			Random random = new Random(t);
+			done.add(threads.submit(() -> {
+				for (int round = 0; round < 2000; round++) {
+					start.await();
+					if (following ? table.add(edge(4, 5)) : table.remove(edge(4, 5))) {
+						// The gap between a commit and its callback, where the other commit and callback can get in
+						for (int gap = random.nextInt(3); gap > 0; gap--) {
+							Thread.yield();
+						}
+						if (following) {
+							graph.onFollow(4, 5);
+						} else {
+							graph.onUnfollow(4, 5);
+						}
+					}
+					end.await();
+				}
+				return null;
+			}));
+		}
+		for (Future<?> thread : done) {
+			thread.get();
+		}
+		threads.shutdown();
+
+		assertThat(mismatches).hasValue(0);
+	}
+
+	private void follow(int follower, int followed) {
+		table.add(edge(follower, followed));
+		graph.onFollow(follower, followed);
+	}
+
+	private void unfollow(int follower, int followed) {
+		table.remove(edge(follower, followed));
+		graph.onUnfollow(follower, followed);
+	}
+
+	private static long edge(int follower, int followed) {
+		return ((long) follower << 32) | followed;
+	}
+}
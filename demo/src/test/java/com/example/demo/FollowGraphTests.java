@@ -0,0 +1,76 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.FollowGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FollowGraphTests {
+
+	// 1 -> 2, 1 -> 3, 2 -> 1, 3 -> 5, 4 -> 1, given out of order
+	private static final FollowGraph GRAPH = FollowGraph.build(
+			new int[]{3, 1, 4, 2, 1}, new int[]{5, 3, 1, 1, 2}, 5);
+
+	@Test
+	void buildIndexesBothDirectionsSorted() {
+		assertThat(GRAPH.following(1, 0, 10)).containsExactly(2, 3);
+		assertThat(GRAPH.followers(1, 0, 10)).containsExactly(2, 4);
+		assertThat(GRAPH.followingCount(1)).isEqualTo(2);
+		assertThat(GRAPH.followerCount(5)).isEqualTo(1);
+		assertThat(GRAPH.edgeCount()).isEqualTo(5);
+		assertThat(GRAPH.isFollowing(1, 3)).isTrue();
+		assertThat(GRAPH.isFollowing(3, 1)).isFalse();
+	}
+
+	@Test
+	void unknownUsersHaveNoNeighbours() {
+		assertThat(GRAPH.following(99, 0, 10)).isEmpty();
+		assertThat(GRAPH.followerCount(-1)).isZero();
+		assertThat(GRAPH.isFollowing(99, 1)).isFalse();
+		assertThat(FollowGraph.empty().following(1, 0, 10)).isEmpty();
+	}
+
+	@Test
+	void slicesArePaged() {
+		assertThat(GRAPH.following(1, 1, 10)).containsExactly(3);
+		assertThat(GRAPH.following(1, 0, 1)).containsExactly(2);
+		assertThat(GRAPH.following(1, 2, 10)).isEmpty();
+	}
+
+	@Test
+	void withAppliesAddsAndRemoves() {
+		Map<Long, Boolean> changes = new HashMap<>();
+		changes.put(FollowGraph.edge(1, 2), false);
+		changes.put(FollowGraph.edge(5, 1), true);
+		changes.put(FollowGraph.edge(1, 7), true);
+		// Re-adding an existing edge must not duplicate it
+		changes.put(FollowGraph.edge(3, 5), true);
+
+		FollowGraph changed = GRAPH.with(changes);
+
+		assertThat(changed.following(1, 0, 10)).containsExactly(3, 7);
+		assertThat(changed.followers(1, 0, 10)).containsExactly(2, 4, 5);
+		assertThat(changed.followers(5, 0, 10)).containsExactly(3);
+		assertThat(changed.edgeCount()).isEqualTo(6);
+		// The original is unchanged
+		assertThat(GRAPH.following(1, 0, 10)).containsExactly(2, 3);
+	}
+
+	@Test
+	void pageMergesAddedAndSkipsRemoved() {
+		FollowGraph graph = FollowGraph.build(new int[]{1, 1, 1, 1}, new int[]{10, 20, 30, 40}, 4);
+
+		int[] added = {5, 25, 50};
+		int[] removed = {20, 40};
+
+		assertThat(graph.page(1, true, added, removed, 0, 10)).containsExactly(5, 10, 25, 30, 50);
+		assertThat(graph.page(1, true, added, removed, 1, 3)).containsExactly(10, 25, 30);
+		assertThat(graph.page(1, true, added, removed, 4, 3)).containsExactly(50);
+		assertThat(graph.page(1, true, added, removed, 5, 3)).isEmpty();
+		assertThat(graph.page(2, true, new int[]{1}, new int[0], 0, 3)).containsExactly(1);
+		assertThat(graph.page(10, false, new int[0], new int[]{1}, 0, 3)).isEmpty();
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.MessageBatchWriter;
+import com.example.demo.data.access.ConversationRepository;
+import com.example.demo.data.access.MessageLogStore;
+import com.example.demo.data.access.MessageRepository;
+import com.example.demo.data.access.MessageStore;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A batch that fails is retried message by message, without appending twice to a store outside the transaction
+class MessageBatchWriterTests {
+
+	private static final long ONE_AND_TWO = Message.conversationId(1, 2);
+	private static final long ONE_AND_THREE = Message.conversationId(1, 3);
+
+	@TempDir
+	Path directory;
+
+	private final Map<Integer, User> users = List.of(user(1), user(2), user(3)).stream()
+			.collect(Collectors.toMap(User::getId, Function.identity()));
+	private ConversationRepository conversationRepository;
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		conversationRepository = mock(ConversationRepository.class);
+		userRepository = mock(UserRepository.class);
+		when(userRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			Iterable<Integer> ids = invocation.getArgument(0);
+			return StreamSupport.stream(ids.spliterator(), false).map(users::get).toList();
+		});
+	}
+
+	@Test
+	void failedConversationUpsertDoesNotAppendToTheLogAgain() throws Exception {
+		MessageLogStore store = logStore();
+		doThrow(new IllegalStateException("deadlock")).doNothing().when(conversationRepository)
+				.upsert(anyInt(), anyInt(), anyInt(), anyInt(), anyString(), any(), anyInt());
+
+		List<CompletableFuture<Message>> saved = writeOneBatch(store);
+
+		assertThat(saved.get(0).get().getContent()).isEqualTo("a");
+		assertThat(saved.get(1).get().getContent()).isEqualTo("b");
+		assertThat(store.findAfter(ONE_AND_TWO, 0, 10)).extracting(Message::getId)
+				.containsExactly(saved.get(0).get().getId());
+		assertThat(store.findAfter(ONE_AND_THREE, 0, 10)).extracting(Message::getId)
+				.containsExactly(saved.get(1).get().getId());
+		// The failed upsert, then both sides of each conversation again
+		verify(conversationRepository, times(5)).upsert(anyInt(), anyInt(), anyInt(), anyInt(), anyString(), any(), anyInt());
+		store.closeAll();
+	}
+
+	@Test
+	void onlyMessagesTheLogDidNotTakeAreAppendedAgain() throws Exception {
+		MessageLogStore store = logStore();
+		// A file where the second conversation's directory belongs makes its append fail
+		Files.writeString(directory.resolve("conversations").resolve(String.format("%016x", ONE_AND_THREE)), "");
+
+		List<CompletableFuture<Message>> saved = writeOneBatch(store);
+
+		assertThat(store.findAfter(ONE_AND_TWO, 0, 10)).extracting(Message::getContent).containsExactly("a");
+		assertThat(saved.get(0).get().getId()).isEqualTo(store.findAfter(ONE_AND_TWO, 0, 10).get(0).getId());
+		assertThat(saved.get(1)).isCompletedExceptionally();
+		verify(conversationRepository, times(2)).upsert(anyInt(), anyInt(), anyInt(), anyInt(), anyString(), any(), anyInt());
+		store.closeAll();
+	}
+
+	@Test
+	void transactionalStoreRetriesEveryMessage() throws Exception {
+		MessageStore store = mock(MessageStore.class);
+		when(store.isTransactional()).thenReturn(true);
+		AtomicInteger ids = new AtomicInteger();
+		when(store.append(anyList())).thenThrow(new IllegalStateException("deadlock")).thenAnswer(invocation -> {
+			List<Message> messages = invocation.getArgument(0);
+			messages.forEach(message -> message.setId(ids.incrementAndGet()));
+			return messages;
+		});
+
+		List<CompletableFuture<Message>> saved = writeOneBatch(store);
+
+		assertThat(saved.get(0).get().getId()).isEqualTo(1);
+		assertThat(saved.get(1).get().getId()).isEqualTo(2);
+		verify(store, times(3)).append(anyList());
+	}
+
+	@Test
+	void fullQueueRejectsWithUnavailable() {
+		MessageBatchWriter writer = new MessageBatchWriter("batched", 1, 100, 10, "reject", mock(MessageStore.class),
+				conversationRepository, userRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+				new SimpleMeterRegistry());
+		writer.enqueue(1, 2, "a", LocalDateTime.now());
+
+		assertThatThrownBy(() -> writer.enqueue(1, 2, "b", LocalDateTime.now()))
+				.isInstanceOf(MessageBatchWriter.UnavailableException.class);
+	}
+
+	// Queued before the writer starts, so both messages go out in the same flush
+	private List<CompletableFuture<Message>> writeOneBatch(MessageStore store) throws InterruptedException {
+		MessageBatchWriter writer = new MessageBatchWriter("batched", 100, 100, 10, "block", store,
+				conversationRepository, userRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+				new SimpleMeterRegistry());
+		LocalDateTime sentAt = LocalDateTime.of(2024, 3, 1, 12, 0);
+		List<CompletableFuture<Message>> saved = List.of(
+				writer.enqueue(1, 2, "a", sentAt),
+				writer.enqueue(1, 3, "b", sentAt));
+		writer.start();
+		writer.stop();
+		return saved;
+	}
+
+	private MessageLogStore logStore() throws IOException {
+		MessageLogStore store = new MessageLogStore(directory.toString(), 4096, 4, "interval", 16,
+				mock(MessageRepository.class), userRepository);
+		store.seedIds();
+		return store;
+	}
+
+	private static User user(int id) {
+		User user = new User();
+		ReflectionTestUtils.setField(user, "id", id);
+		user.setUsername("user" + id);
+		return user;
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.MessageBatchWriter;
+import com.example.demo.business.logic.MessageService;
+import com.example.demo.data.access.ConversationRepository;
+import com.example.demo.data.access.MessageRepository;
+import com.example.demo.data.access.MessageStore;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.dto.MessageDTO;
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Batched sends acknowledged on flush
+class MessageServiceTests {
+
+	private MessageBatchWriter batchWriter;
+	private MessageService messageService;
+
+	@BeforeEach
+	void setUp() {
+		batchWriter = mock(MessageBatchWriter.class);
+		when(batchWriter.isEnabled()).thenReturn(true);
+		messageService = new MessageService(mock(MessageRepository.class), mock(MessageStore.class),
+				mock(ConversationRepository.class), mock(UserRepository.class),
+				mock(SimpMessageSendingOperations.class), batchWriter, null, new SimpleMeterRegistry(), "flush", 50);
+	}
+
+	@Test
+	void repliesWithTheWrittenMessage() {
+		when(batchWriter.enqueue(anyInt(), anyInt(), anyString(), any()))
+				.thenReturn(CompletableFuture.completedFuture(message(7)));
+
+		MessageDTO sent = messageService.sendMessage(1, 2, "hello");
+
+		assertThat(sent.getId()).isEqualTo(7);
+	}
+
+	// The controller answers UnavailableException with 503
+	@Test
+	void stalledFlushFailsAfterTheTimeout() {
+		when(batchWriter.enqueue(anyInt(), anyInt(), anyString(), any())).thenReturn(new CompletableFuture<>());
+
+		assertThatThrownBy(() -> messageService.sendMessage(1, 2, "hello"))
+				.isInstanceOf(MessageBatchWriter.UnavailableException.class)
+				.hasMessageContaining("50 ms");
+	}
+
+	@Test
+	void failedFlushRethrowsItsCause() {
+		when(batchWriter.enqueue(anyInt(), anyInt(), anyString(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new RuntimeException("Receiver not found")));
+
+		assertThatThrownBy(() -> messageService.sendMessage(1, 2, "hello"))
+				.isInstanceOf(RuntimeException.class)
+				.hasMessage("Receiver not found");
+	}
+
+	// A store failure is an error, not back-pressure
+	@Test
+	void failedWriteIsNotReportedAsUnavailable() {
+		when(batchWriter.enqueue(anyInt(), anyInt(), anyString(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Unreadable message archive block")));
+
+		assertThatThrownBy(() -> messageService.sendMessage(1, 2, "hello"))
+				.isExactlyInstanceOf(IllegalStateException.class);
+	}
+
+	private static Message message(int id) {
+		Message message = new Message();
+		message.setId(id);
+		message.setSender(user(1));
+		message.setReceiver(user(2));
+		message.setContent("hello");
+		message.setSentAt(LocalDateTime.now());
+		return message;
+	}
+
+	private static User user(int id) {
+		User user = new User();
+		ReflectionTestUtils.setField(user, "id", id);
+		user.setUsername("user" + id);
+		return user;
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.MovieService;
+import com.example.demo.business.logic.PosterStorageService;
+import com.example.demo.business.logic.PosterThumbnailService;
+import com.example.demo.business.logic.SearchService;
+import com.example.demo.business.logic.StartupMigrations;
+import com.example.demo.business.logic.SuggestionService;
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.model.Movie;
+import com.example.demo.presentation.MovieController;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Uploads through MovieService and downloads through MovieController against a poster directory on disk
+class MoviePosterTests {
+
+	@TempDir
+	Path directory;
+
+	private final Movie movie = new Movie();
+	private MovieRepository movieRepository;
+	private PosterStorageService posterStorageService;
+	private PosterThumbnailService posterThumbnailService;
+	private MovieService movieService;
+	private MovieController movieController;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(movie, "id", 1);
+		movie.setTitle("Solaris");
+		movieRepository = mock(MovieRepository.class);
+		when(movieRepository.save(any(Movie.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(movieRepository.findById(1)).thenReturn(Optional.of(movie));
+		posterStorageService = new PosterStorageService();
+		ReflectionTestUtils.setField(posterStorageService, "posterDirectory", directory);
+		posterThumbnailService = mock(PosterThumbnailService.class);
+		movieService = new MovieService(movieRepository, posterStorageService, posterThumbnailService,
+				mock(SearchService.class), mock(SuggestionService.class), mock(StartupMigrations.class));
+		movieController = new MovieController();
+		ReflectionTestUtils.setField(movieController, "movieService", movieService);
+		ReflectionTestUtils.setField(movieController, "posterStorageService", posterStorageService);
+	}
+
+	@Test
+	void onlyTheVersionedUrlIsCachedLongTerm() throws IOException {
+		String etag = upload(Color.RED);
+
+		ResponseEntity<Resource> versioned = getPoster(etag);
+		assertThat(versioned.getHeaders().getCacheControl()).contains("max-age=31536000", "immutable");
+		assertThat(versioned.getHeaders().getETag()).isEqualTo("\"" + etag + "-full\"");
+
+		assertThat(getPoster(null).getHeaders().getCacheControl()).isEqualTo("no-cache");
+	}
+
+	@Test
+	void reUploadServesTheNewVersionAndRemovesTheOldOne() throws IOException {
+		String first = upload(Color.RED);
+		Path firstFile = posterStorageService.resolve(1, PosterStorageService.Size.FULL, first);
+		String second = upload(Color.BLUE);
+
+		assertThat(second).isNotEqualTo(first);
+		assertThat(firstFile).doesNotExist();
+		// An outdated version in the URL gets the current poster, but must not be cached as that version
+		ResponseEntity<Resource> outdated = getPoster(first);
+		assertThat(outdated.getHeaders().getCacheControl()).isEqualTo("no-cache");
+		assertThat(outdated.getBody().getContentAsByteArray()).isEqualTo(png(Color.BLUE));
+		assertThat(getPoster(second).getHeaders().getCacheControl()).contains("immutable");
+		verify(posterThumbnailService).generateVariants(1, second);
+	}
+
+	@Test
+	void failedSaveKeepsTheCurrentVersion() throws IOException {
+		String first = upload(Color.RED);
+		when(movieRepository.save(any(Movie.class))).thenThrow(new IllegalStateException("connection lost"));
+
+		assertThatThrownBy(() -> upload(Color.BLUE)).isInstanceOf(IllegalStateException.class);
+
+		assertThat(Files.readAllBytes(posterStorageService.resolve(1, PosterStorageService.Size.FULL, first)))
+				.isEqualTo(png(Color.RED));
+		// Only the first upload got as far as generating variants
+		verify(posterThumbnailService).generateVariants(anyInt(), anyString());
+	}
+
+	private String upload(Color color) throws IOException {
+		movie.setPoster("data:image/png;base64," + Base64.getEncoder().encodeToString(png(color)));
+		return movieService.save(movie).getPosterEtag();
+	}
+
+	private ResponseEntity<Resource> getPoster(String version) {
+		return movieController.getPoster(1, null, version,
+				new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+	}
+
+	private static byte[] png(Color color) throws IOException {
+		BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, color.getRGB());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", bytes);
+		return bytes.toByteArray();
+	}
+}
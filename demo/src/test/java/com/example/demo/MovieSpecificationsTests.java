@@ -0,0 +1,26 @@
+package com.example.demo;
+
+import com.example.demo.data.access.MovieSpecifications;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+// MovieController answers IllegalArgumentException with 400
+class MovieSpecificationsTests {
+
+	@Test
+	void yearsOutsideTheDateRangeAreRejected() {
+		for (int year : new int[] {-5, 0, 999, 10_000, Integer.MAX_VALUE}) {
+			assertThatIllegalArgumentException().isThrownBy(() -> MovieSpecifications.releasedFrom(year));
+			assertThatIllegalArgumentException().isThrownBy(() -> MovieSpecifications.releasedUntil(year));
+		}
+	}
+
+	@Test
+	void yearsInRangeBuildFilters() {
+		assertThat(MovieSpecifications.releasedFrom(1000)).isNotNull();
+		assertThat(MovieSpecifications.releasedUntil(9999)).isNotNull();
+		assertThat(MovieSpecifications.releasedFrom(null)).isNull();
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.PosterStorageService;
+import com.example.demo.business.logic.PosterThumbnailService;
+import com.example.demo.data.access.MovieRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// generateVariants is called directly, so it runs on the test thread
+class PosterThumbnailServiceTests {
+
+	@TempDir
+	Path directory;
+
+	private MovieRepository movieRepository;
+	private PosterStorageService posterStorageService;
+	private PosterThumbnailService posterThumbnailService;
+	private String etag;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		movieRepository = mock(MovieRepository.class);
+		posterStorageService = new PosterStorageService();
+		ReflectionTestUtils.setField(posterStorageService, "posterDirectory", directory);
+		posterThumbnailService = new PosterThumbnailService(posterStorageService, movieRepository);
+		etag = posterStorageService.store(1, new PosterStorageService.DecodedPoster(MediaType.IMAGE_PNG_VALUE,
+				png(800, 1200))).etag();
+	}
+
+	@Test
+	void variantsAreScaledFromTheirOwnVersion() throws IOException {
+		when(movieRepository.findPosterEtag(1)).thenReturn(Optional.of(etag));
+
+		posterThumbnailService.generateVariants(1, etag);
+
+		BufferedImage small = ImageIO.read(variant(PosterStorageService.Size.SMALL).toFile());
+		assertThat(small.getWidth()).isEqualTo(160);
+		assertThat(small.getHeight()).isEqualTo(240);
+		assertThat(ImageIO.read(variant(PosterStorageService.Size.MEDIUM).toFile()).getWidth()).isEqualTo(480);
+	}
+
+	@Test
+	void supersededVersionGetsNoVariants() {
+		when(movieRepository.findPosterEtag(1)).thenReturn(Optional.of("newer"));
+
+		posterThumbnailService.generateVariants(1, etag);
+
+		assertThat(variant(PosterStorageService.Size.SMALL)).doesNotExist();
+	}
+
+	// The newer upload committed, and deleted this version's files, while the variants were being written
+	@Test
+	void variantsOfAVersionReplacedMeanwhileAreRemoved() {
+		when(movieRepository.findPosterEtag(1)).thenReturn(Optional.of(etag), Optional.of("newer"));
+
+		posterThumbnailService.generateVariants(1, etag);
+
+		assertThat(variant(PosterStorageService.Size.SMALL)).doesNotExist();
+		assertThat(variant(PosterStorageService.Size.MEDIUM)).doesNotExist();
+	}
+
+	private Path variant(PosterStorageService.Size size) {
+		return posterStorageService.resolve(1, size, etag);
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", bytes);
+		return bytes.toByteArray();
+	}
+}
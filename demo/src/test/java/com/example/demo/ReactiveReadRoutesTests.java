@@ -0,0 +1,132 @@
+package com.example.demo;
+
+import com.example.demo.config.ReactiveConfig;
+import com.example.demo.data.access.ReactiveCommentRepository;
+import com.example.demo.data.access.ReactiveMovieRepository;
+import com.example.demo.data.access.ReactiveRecommendationRepository;
+import com.example.demo.dto.CommentDTO;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.RecommendationDTO;
+import com.example.demo.presentation.ReactiveReadHandler;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the reactive routes on a real Reactor Netty server over an embedded R2DBC H2 database
+class ReactiveReadRoutesTests {
+
+	private static final String[] SCHEMA = {
+			"CREATE TABLE user (id INT PRIMARY KEY, username VARCHAR(255), forename VARCHAR(255), surename VARCHAR(255))",
+			"CREATE TABLE movie (id INT PRIMARY KEY, title VARCHAR(100), release_year DATE, genres VARCHAR(100), "
+					+ "director VARCHAR(50), poster_etag VARCHAR(64), description VARCHAR(10000), "
+					+ "recommendation_count INT NOT NULL DEFAULT 0)",
+			"CREATE TABLE recommendation (id INT PRIMARY KEY, user_id INT, movie_id INT, content VARCHAR(15000), "
+					+ "created_at DATE, comment_count INT NOT NULL DEFAULT 0)",
+			"CREATE TABLE followed_user (follower_id INT, followed_id INT, created_at DATE)",
+			"CREATE TABLE comment (id INT PRIMARY KEY, user_id INT, recommendation_id INT, content VARCHAR(10000), "
+					+ "created_at DATE)"
+	};
+
+	private static final String[] DATA = {
+			"INSERT INTO user VALUES (1, 'reader', 'Rea', 'Der'), (2, 'alice', 'Alice', 'A'), "
+					+ "(3, 'bob', 'Bob', 'B'), (4, 'carol', 'Carol', 'C')",
+			"INSERT INTO movie VALUES (1, 'Alien', DATE '1979-05-25', 'Horror', 'Scott', 'e1', 'In space', 2), "
+					+ "(2, 'Heat', DATE '1995-12-15', 'Crime', 'Mann', NULL, 'Heist', 3)",
+			"INSERT INTO followed_user VALUES (1, 2, DATE '2024-01-01'), (1, 3, DATE '2024-01-01')",
+			// 10 and 11 share a day, so the id breaks the tie; 14 is by someone the reader doesn't follow
+			"INSERT INTO recommendation VALUES "
+					+ "(10, 2, 1, 'Classic', DATE '2024-03-01', 0), (11, 3, 2, 'Tense', DATE '2024-03-01', 2), "
+					+ "(12, 2, 2, 'Again', DATE '2024-02-01', 0), (13, 3, 1, 'Scary', DATE '2024-01-01', 1), "
+					+ "(14, 4, 2, 'Meh', DATE '2024-04-01', 0)",
+			"INSERT INTO comment VALUES (20, 4, 11, 'Agreed', DATE '2024-03-02'), "
+					+ "(21, 1, 11, 'Same', DATE '2024-03-03'), (22, 2, 13, 'Boo', DATE '2024-01-02')"
+	};
+
+	private static DisposableServer server;
+	private static WebTestClient client;
+
+	@BeforeAll
+	static void start() {
+		DatabaseClient databaseClient = DatabaseClient.create(ConnectionFactories.get(
+				"r2dbc:h2:mem:///reactive-reads?options=MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1"));
+		Flux.concat(Flux.fromArray(SCHEMA).concatWith(Flux.fromArray(DATA))
+						.map(sql -> databaseClient.sql(sql).then()))
+				.blockLast();
+
+		ReactiveReadHandler handler = new ReactiveReadHandler(new ReactiveRecommendationRepository(databaseClient),
+				new ReactiveMovieRepository(databaseClient), new ReactiveCommentRepository(databaseClient));
+		ReactiveConfig config = new ReactiveConfig();
+		server = config.reactiveServer(config.reactiveRoutes(handler), Jackson2ObjectMapperBuilder.json().build(), 0);
+		client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.port()).build();
+	}
+
+	@AfterAll
+	static void stop() {
+		server.disposeNow();
+	}
+
+	@Test
+	void feedStreamsFollowedRecommendationsInKeysetOrder() {
+		List<RecommendationDTO> first = stream("/api/v1/recommendations/followed/1/feed?size=2", RecommendationDTO.class);
+		assertThat(first).extracting(RecommendationDTO::getId).containsExactly(11, 10);
+		assertThat(first.get(0).getUser().getUsername()).isEqualTo("bob");
+		assertThat(first.get(0).getMovie().getTitle()).isEqualTo("Heat");
+		assertThat(first.get(1).getMovie().getPosterUrl()).isEqualTo("/api/v1/movies/1/poster?v=e1");
+
+		RecommendationDTO last = first.get(1);
+		List<RecommendationDTO> next = stream("/api/v1/recommendations/followed/1/feed?size=2&beforeCreatedAt="
+				+ last.getCreatedAt() + "&beforeId=" + last.getId(), RecommendationDTO.class);
+		assertThat(next).extracting(RecommendationDTO::getId).containsExactly(12, 13);
+	}
+
+	@Test
+	void leaderboardsAreOrderedByCounters() {
+		assertThat(stream("/api/v1/recommendations/top?size=2", RecommendationDTO.class))
+				.extracting(RecommendationDTO::getId).containsExactly(11, 13);
+		assertThat(stream("/api/v1/movies/top", MovieSummaryDTO.class))
+				.extracting(MovieSummaryDTO::getId).containsExactly(2, 1);
+	}
+
+	@Test
+	void movieRecommendationsAreNewestFirst() {
+		assertThat(stream("/api/v1/recommendations/movie/2", RecommendationDTO.class))
+				.extracting(RecommendationDTO::getId).containsExactly(14, 11, 12);
+	}
+
+	@Test
+	void commentThreadCarriesAuthorSummaries() {
+		List<CommentDTO> thread = stream("/api/v1/comments/recommendation/11/thread", CommentDTO.class);
+		assertThat(thread).extracting(CommentDTO::getId).containsExactly(21, 20);
+		assertThat(thread).extracting(comment -> comment.getUser().getUsername()).containsExactly("reader", "carol");
+	}
+
+	@Test
+	void incompleteCursorIsRejected() {
+		client.get().uri("/api/v1/comments/recommendation/11/thread?beforeId=21")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	private static <T> List<T> stream(String uri, Class<T> type) {
+		return client.get().uri(uri)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(type)
+				.getResponseBody()
+				.collectList()
+				.block();
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.SearchService;
+import com.example.demo.data.access.CommentRepository;
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.RecommendationRepository;
+import com.example.demo.dto.SearchResultDTO;
+import com.example.demo.model.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchServiceTests {
+
+	private record MovieText(Integer getId, String getTitle, String getDescription, String getStars,
+							 String getDirector) implements MovieRepository.MovieText {
+	}
+
+	private record RecommendationText(Integer getId, String getTitle, String getContent)
+			implements RecommendationRepository.RecommendationText {
+	}
+
+	private RecommendationRepository recommendationRepository;
+	private SearchService searchService;
+
+	@BeforeEach
+	void rebuild() {
+		MovieRepository movieRepository = mock(MovieRepository.class);
+		recommendationRepository = mock(RecommendationRepository.class);
+		CommentRepository commentRepository = mock(CommentRepository.class);
+		when(movieRepository.findAllText()).thenReturn(List.of(new MovieText(1, "Solaris", null, null, "Tarkovsky")));
+		when(recommendationRepository.findAllText()).thenReturn(List.of(new RecommendationText(10, "Solaris", "Slow and haunting")));
+		searchService = new SearchService(movieRepository, recommendationRepository, commentRepository);
+		searchService.rebuild();
+	}
+
+	// Outside a transaction the index is updated immediately
+	@Test
+	void renamingAMovieReindexesItsRecommendations() {
+		when(recommendationRepository.findTextByMovieId(1))
+				.thenReturn(List.of(new RecommendationText(10, "Stalker", "Slow and haunting")));
+
+		searchService.indexMovie(movie(1, "Stalker"));
+
+		assertThat(titles(searchService.search("stalker", SearchService.RECOMMENDATION, null))).containsExactly("Stalker");
+		assertThat(searchService.search("solaris", null, null)).isEmpty();
+	}
+
+	@Test
+	void savingWithoutARenameLeavesRecommendationsAlone() {
+		searchService.indexMovie(movie(1, "Solaris"));
+
+		verify(recommendationRepository, never()).findTextByMovieId(anyInt());
+		assertThat(titles(searchService.search("solaris", SearchService.RECOMMENDATION, null))).containsExactly("Solaris");
+	}
+
+	private static List<String> titles(List<SearchResultDTO> results) {
+		return results.stream().map(SearchResultDTO::getTitle).toList();
+	}
+
+	private static Movie movie(int id, String title) {
+		Movie movie = new Movie();
+		ReflectionTestUtils.setField(movie, "id", id);
+		movie.setTitle(title);
+		movie.setDirector("Tarkovsky");
+		return movie;
+	}
+}
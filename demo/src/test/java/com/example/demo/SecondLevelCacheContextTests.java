@@ -0,0 +1,153 @@
+package com.example.demo;
+
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Boots the persistence layer with the second-level cache and query cache as configured in
+// application.properties and application.conf, which FetchPlanQueryCountTests turns off.
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cachecontext;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheContextTests {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MovieRepository movieRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictAllRegions();
+		statistics = sessionFactory.getStatistics();
+		statistics.clear();
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Test
+	void entityRegionsUseTheConfiguredCaches() {
+		assertThat(statistics.getSecondLevelCacheRegionNames()).contains("movie", "user");
+	}
+
+	@Test
+	void secondReadOfAMovieIsServedFromTheCache() {
+		Integer id = inTransaction(entityManager -> {
+			Movie movie = new Movie();
+			movie.setTitle("Cached");
+			movie.setGenres("Drama");
+			entityManager.persist(movie);
+			return movie.getId();
+		});
+		inTransaction(entityManager -> entityManager.find(Movie.class, id));
+		statistics.clear();
+
+		inTransaction(entityManager -> entityManager.find(Movie.class, id));
+
+		assertThat(statistics.getDomainDataRegionStatistics("movie").getHitCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void secondReadOfAUserIsServedFromTheCache() {
+		Integer id = inTransaction(entityManager -> {
+			User user = new User();
+			user.setUsername("cached");
+			entityManager.persist(user);
+			return user.getId();
+		});
+		inTransaction(entityManager -> entityManager.find(User.class, id));
+		statistics.clear();
+
+		inTransaction(entityManager -> entityManager.find(User.class, id));
+
+		assertThat(statistics.getDomainDataRegionStatistics("user").getHitCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void counterUpdateEvictsOnlyTheChangedRows() {
+		Integer adjusted = inTransaction(entityManager -> persistUser(entityManager, "adjusted").getId());
+		Integer untouched = inTransaction(entityManager -> persistUser(entityManager, "untouched").getId());
+		Integer movieId = inTransaction(entityManager -> {
+			Movie movie = new Movie();
+			movie.setTitle("Counted");
+			movie.setGenres("Drama");
+			entityManager.persist(movie);
+			return movie.getId();
+		});
+		inTransaction(entityManager -> List.of(entityManager.find(User.class, adjusted),
+				entityManager.find(User.class, untouched), entityManager.find(Movie.class, movieId)));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			userRepository.adjustFollowerCount(adjusted, 1);
+			movieRepository.adjustRecommendationCount(movieId, 1);
+		});
+
+		Cache cache = entityManagerFactory.getCache();
+		assertThat(cache.contains(User.class, untouched)).isTrue();
+		assertThat(cache.contains(User.class, adjusted)).isFalse();
+		assertThat(cache.contains(Movie.class, movieId)).isFalse();
+		int followerCount = inTransaction(entityManager -> entityManager.find(User.class, adjusted).getFollowerCount());
+		int recommendationCount = inTransaction(entityManager ->
+				entityManager.find(Movie.class, movieId).getRecommendationCount());
+		assertThat(followerCount).isEqualTo(1);
+		assertThat(recommendationCount).isEqualTo(1);
+	}
+
+	private static User persistUser(EntityManager entityManager, String username) {
+		User user = new User();
+		user.setUsername(username);
+		entityManager.persist(user);
+		return user;
+	}
+
+	private <T> T inTransaction(Function<EntityManager, T> work) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			entityManager.getTransaction().begin();
+			T result = work.apply(entityManager);
+			entityManager.getTransaction().commit();
+			return result;
+		} finally {
+			entityManager.close();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.SuggestionService;
+import com.example.demo.data.access.MovieRepository;
+import com.example.demo.data.access.UserRepository;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.SuggestionDTO;
+import com.example.demo.model.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Outside a transaction saves are applied immediately
+class SuggestionServiceTests {
+
+	private SuggestionService suggestionService;
+
+	@BeforeEach
+	void load() {
+		MovieRepository movieRepository = mock(MovieRepository.class);
+		when(movieRepository.findAllSummaries()).thenReturn(List.of(
+				new MovieSummaryDTO(1, "Solaris", null, null, "Tarkovsky", null),
+				new MovieSummaryDTO(2, "Stalker", null, null, "Tarkovsky", null),
+				new MovieSummaryDTO(3, "Heat", null, null, "Mann", null)));
+		suggestionService = new SuggestionService(movieRepository, mock(UserRepository.class), new SyncTaskExecutor());
+		suggestionService.load();
+	}
+
+	@Test
+	void renamedMovieIsOnlySuggestedUnderItsNewTitle() {
+		suggestionService.addMovie(movie(3, "Heat 2", "Mann"));
+
+		assertThat(labels("heat")).containsExactly("Heat 2");
+	}
+
+	@Test
+	void directorNoMovieHasAnyMoreIsDropped() {
+		suggestionService.addMovie(movie(3, "Heat", "Kathryn Bigelow"));
+
+		assertThat(labels("mann")).isEmpty();
+		assertThat(labels("bigelow")).containsExactly("Kathryn Bigelow");
+	}
+
+	@Test
+	void directorIsKeptWhileAnotherMovieHasThem() {
+		suggestionService.addMovie(movie(1, "Solaris", null));
+		assertThat(labels("tark")).containsExactly("Tarkovsky");
+
+		suggestionService.addMovie(movie(2, "Stalker", "Andrei Tarkovsky"));
+		assertThat(labels("tark")).containsExactly("Andrei Tarkovsky");
+	}
+
+	private List<String> labels(String prefix) {
+		return suggestionService.suggest(prefix, null).stream().map(SuggestionDTO::getLabel).toList();
+	}
+
+	private static Movie movie(int id, String title, String director) {
+		Movie movie = new Movie();
+		ReflectionTestUtils.setField(movie, "id", id);
+		movie.setTitle(title);
+		movie.setDirector(director);
+		return movie;
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.SuggestionTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTests {
+
+	private static final SuggestionTrie TRIE = SuggestionTrie.build(List.of(
+			new SuggestionTrie.Entry("movie", 1, "The Godfather", 3),
+			new SuggestionTrie.Entry("movie", 2, "The Godfather Part II", 3),
+			new SuggestionTrie.Entry("movie", 3, "Amélie", 3),
+			new SuggestionTrie.Entry("director", null, "Godard", 1),
+			new SuggestionTrie.Entry("movie", 4, "Dr. Strangelove or How I Learned to Stop Worrying", 3),
+			new SuggestionTrie.Entry("movie", 5, "Dr. Strangelove or How I Learned to Love the Bomb", 3)), 10);
+
+	@Test
+	void findsEveryWordOfALabel() {
+		assertThat(labels(TRIE.lookup("god", 10))).containsExactly("The Godfather", "The Godfather Part II", "Godard");
+		assertThat(labels(TRIE.lookup("part", 10))).containsExactly("The Godfather Part II");
+		assertThat(TRIE.lookup("father", 10)).isEmpty();
+	}
+
+	@Test
+	void ignoresCaseAndDiacritics() {
+		assertThat(labels(TRIE.lookup("  AMELIE", 10))).containsExactly("Amélie");
+	}
+
+	@Test
+	void limitKeepsTheBestRanked() {
+		// Higher weight first, then the shorter label
+		assertThat(labels(TRIE.lookup("god", 2))).containsExactly("The Godfather", "The Godfather Part II");
+	}
+
+	// Past the trie's depth limit both labels share a node, and the full prefix tells them apart
+	@Test
+	void prefixesLongerThanTheTrieAreFiltered() {
+		assertThat(labels(TRIE.lookup("dr. strangelove or how i learned to s", 10)))
+				.containsExactly("Dr. Strangelove or How I Learned to Stop Worrying");
+		assertThat(labels(TRIE.lookup("strangelove or how i learned to l", 10)))
+				.containsExactly("Dr. Strangelove or How I Learned to Love the Bomb");
+		assertThat(TRIE.lookup("dr. strangelove or how i learned to x", 10)).isEmpty();
+	}
+
+	private static List<String> labels(List<SuggestionTrie.Entry> entries) {
+		return entries.stream().map(SuggestionTrie.Entry::label).toList();
+	}
+}
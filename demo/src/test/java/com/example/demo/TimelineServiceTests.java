@@ -0,0 +1,64 @@
+package com.example.demo;
+
+import com.example.demo.business.logic.TimelineService;
+import com.example.demo.data.access.AppStateRepository;
+import com.example.demo.data.access.UserTimelineRepository;
+import com.example.demo.model.AppState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TimelineServiceTests {
+
+	private static final String LIVE = "feed.timeline.live";
+
+	private UserTimelineRepository userTimelineRepository;
+	private AppStateRepository appStateRepository;
+
+	@BeforeEach
+	void setUp() {
+		userTimelineRepository = mock(UserTimelineRepository.class);
+		appStateRepository = mock(AppStateRepository.class);
+	}
+
+	// Timelines left over from before the mode was switched off missed every write since
+	@Test
+	void switchingTimelinesBackOnRebuildsThemFromScratch() {
+		when(appStateRepository.existsById(LIVE)).thenReturn(false);
+
+		new TimelineService(userTimelineRepository, appStateRepository, true, 500).seedTimelines();
+
+		InOrder order = inOrder(userTimelineRepository, appStateRepository);
+		order.verify(userTimelineRepository).deleteAllInBatch();
+		order.verify(userTimelineRepository).rebuildAll();
+		order.verify(userTimelineRepository).trim(500);
+		order.verify(appStateRepository).save(any(AppState.class));
+	}
+
+	@Test
+	void timelinesKeptUpToDateAreNotRebuilt() {
+		when(appStateRepository.existsById(LIVE)).thenReturn(true);
+
+		new TimelineService(userTimelineRepository, appStateRepository, true, 500).seedTimelines();
+
+		verify(userTimelineRepository, never()).deleteAllInBatch();
+		verify(userTimelineRepository, never()).rebuildAll();
+		verify(userTimelineRepository, never()).trim(anyInt());
+	}
+
+	@Test
+	void startingWithTimelinesOffMarksThemStale() {
+		new TimelineService(userTimelineRepository, appStateRepository, false, 500).seedTimelines();
+
+		verify(appStateRepository).deleteById(LIVE);
+		verify(userTimelineRepository, never()).rebuildAll();
+	}
+}
@@ -0,0 +1,213 @@
+package com.example.demo.data.access;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationLogTests {
+
+	// Small enough that a few dozen messages span several segments
+	private static final int SEGMENT_BYTES = 256;
+	private static final int INDEX_INTERVAL = 2;
+	private static final LocalDateTime SENT_AT = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 250_000_000);
+
+	@TempDir
+	Path directory;
+
+	private final AtomicInteger ids = new AtomicInteger();
+	private ConversationLog log;
+
+	@BeforeEach
+	void open() throws IOException {
+		log = reopen();
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		log.close();
+	}
+
+	@Test
+	void messagesRoundTripThroughTheFile() throws IOException {
+		log.append(List.of(new ConversationLog.Draft(1, 2, SENT_AT, "héllo")), ids::incrementAndGet);
+		log.close();
+		log = reopen();
+
+		StoredMessage message = log.latest(1).get(0);
+		assertThat(message).isEqualTo(new StoredMessage(1, 1, 2, SENT_AT, "héllo", false));
+	}
+
+	@Test
+	void pagesRunAcrossSegments() throws IOException {
+		append(40);
+		assertThat(segments()).hasSizeGreaterThan(3);
+
+		assertThat(ids(log.latest(10))).containsExactlyElementsOf(descending(40, 31));
+		assertThat(ids(log.before(31, 10))).containsExactlyElementsOf(descending(30, 21));
+		assertThat(ids(log.before(4, 10))).containsExactly(3, 2, 1);
+		assertThat(ids(log.after(7, 10))).containsExactlyElementsOf(ascending(8, 17));
+		assertThat(ids(log.after(35, 10))).containsExactlyElementsOf(ascending(36, 40));
+
+		// Sealed segments are mapped and the active one is read through its channel; both stay
+		// readable as appends continue
+		append(3);
+		assertThat(ids(log.latest(5))).containsExactlyElementsOf(descending(43, 39));
+		log.close();
+		log = reopen();
+		assertThat(ids(log.after(0, 100))).containsExactlyElementsOf(ascending(1, 43));
+	}
+
+	// A record cut short by a crash is dropped on open, and appends continue after the last whole one
+	@Test
+	void tornTailIsTruncatedOnOpen() throws IOException {
+		append(3);
+		log.close();
+		Path segment = segments().get(segments().size() - 1);
+		long intact = Files.size(segment);
+		Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+		log = reopen();
+
+		assertThat(Files.size(segment)).isEqualTo(intact);
+		assertThat(ids(log.latest(10))).containsExactly(3, 2, 1);
+		append(1);
+		assertThat(ids(log.latest(10))).containsExactly(4, 3, 2, 1);
+	}
+
+	@Test
+	void corruptRecordIsTruncatedOnOpen() throws IOException {
+		append(3);
+		log.close();
+		Path segment = segments().get(0);
+		byte[] bytes = Files.readAllBytes(segment);
+		// Flip the last content byte of the last record so its checksum no longer matches
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(segment, bytes);
+
+		log = reopen();
+
+		assertThat(ids(log.latest(10))).containsExactly(2, 1);
+	}
+
+	@Test
+	void unfinishedCompactionOutputIsRemovedOnOpen() throws IOException {
+		append(3);
+		log.close();
+		Path leftover = Files.writeString(directory.resolve(segments().get(0).getFileName() + ".compacting"), "partial");
+
+		log = reopen();
+
+		assertThat(leftover).doesNotExist();
+		assertThat(ids(log.latest(10))).containsExactly(3, 2, 1);
+	}
+
+	// A compaction that replaced the first segment with the merged file but did not get to delete
+	// the other inputs leaves segments whose messages are already in the merged one
+	@Test
+	void mergedInputsLeftBehindAreRemovedOnOpen() throws IOException {
+		append(15);
+		log.close();
+		List<Path> segments = segments();
+		assertThat(segments).hasSizeGreaterThan(2);
+		Files.write(segments.get(0), Files.readAllBytes(segments.get(1)), StandardOpenOption.APPEND);
+
+		log = reopen();
+
+		assertThat(segments.get(1)).doesNotExist();
+		assertThat(ids(log.after(0, 100))).containsExactlyElementsOf(ascending(1, 15));
+	}
+
+	@Test
+	void readMarksCoverMessagesToTheReceiver() throws IOException {
+		log.append(List.of(
+				new ConversationLog.Draft(1, 2, SENT_AT, "to two"),
+				new ConversationLog.Draft(2, 1, SENT_AT, "to one"),
+				new ConversationLog.Draft(1, 2, SENT_AT, "to two again")), ids::incrementAndGet);
+
+		assertThat(log.countUnread(2)).isEqualTo(2);
+		assertThat(log.markRead(2)).isEqualTo(2);
+		assertThat(log.markRead(2)).isZero();
+		assertThat(log.countUnread(2)).isZero();
+		assertThat(log.countUnread(1)).isEqualTo(1);
+
+		log.close();
+		log = reopen();
+		assertThat(log.countUnread(2)).isZero();
+		assertThat(log.latest(3)).extracting(StoredMessage::read).containsExactly(true, false, true);
+
+		log.append(List.of(new ConversationLog.Draft(1, 2, SENT_AT, "later")), ids::incrementAndGet);
+		assertThat(log.countUnread(2)).isEqualTo(1);
+	}
+
+	@Test
+	void compactionDropsSupersededReadMarks() throws IOException {
+		// Each round seals a segment holding messages and a mark the next round supersedes
+		for (int round = 0; round < 6; round++) {
+			append(2);
+			log.markRead(2);
+		}
+		long before = totalBytes();
+
+		assertThat(log.compact()).isPositive();
+
+		assertThat(totalBytes()).isLessThan(before);
+		assertThat(log.countUnread(2)).isZero();
+		assertThat(ids(log.after(0, 100))).containsExactlyElementsOf(ascending(1, 12));
+		log.close();
+		log = reopen();
+		assertThat(log.countUnread(2)).isZero();
+		assertThat(ids(log.after(0, 100))).containsExactlyElementsOf(ascending(1, 12));
+	}
+
+	private ConversationLog reopen() throws IOException {
+		return ConversationLog.open(directory, SEGMENT_BYTES, INDEX_INTERVAL, false);
+	}
+
+	private void append(int count) throws IOException {
+		List<ConversationLog.Draft> drafts = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			drafts.add(new ConversationLog.Draft(1, 2, SENT_AT, "message " + i));
+		}
+		log.append(drafts, ids::incrementAndGet);
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> listing = Files.list(directory)) {
+			return listing.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+		}
+	}
+
+	private long totalBytes() throws IOException {
+		long total = 0;
+		for (Path segment : segments()) {
+			total += Files.size(segment);
+		}
+		return total;
+	}
+
+	private static List<Integer> ids(List<StoredMessage> messages) {
+		return messages.stream().map(StoredMessage::id).toList();
+	}
+
+	private static List<Integer> ascending(int from, int to) {
+		return IntStream.rangeClosed(from, to).boxed().toList();
+	}
+
+	private static List<Integer> descending(int from, int to) {
+		return IntStream.rangeClosed(to, from).map(i -> from + to - i).boxed().toList();
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.demo.data.access;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageArchiveTests {
+
+	private static final long CONVERSATION = 7L;
+
+	@TempDir
+	Path directory;
+
+	private MessageArchive archive;
+
+	@BeforeEach
+	void open() throws IOException {
+		archive = new MessageArchive(directory.toString());
+		archive.load();
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		archive.close();
+	}
+
+	@Test
+	void publishedSegmentsAreReadableAcrossMonths() throws IOException {
+		publish(List.of(segment(YearMonth.of(2024, 1), 1, 2), segment(YearMonth.of(2024, 2), 3, 4)), 4);
+
+		assertThat(ids(archive.findBefore(CONVERSATION, Integer.MAX_VALUE, 10))).containsExactly(4, 3, 2, 1);
+		assertThat(ids(archive.findAfter(CONVERSATION, 1, 2))).containsExactly(2, 3);
+		assertThat(archive.archivedThrough()).isEqualTo(4);
+	}
+
+	// The watermark moves before the segments are renamed; a failure in between must not
+	// lose the files, or the next run would purge rows that exist in no archive file
+	@Test
+	void renameFailureAfterTheWatermarkKeepsTheSegment() throws IOException {
+		MessageArchive.SegmentWriter january = segment(YearMonth.of(2024, 1), 1, 2);
+		MessageArchive.SegmentWriter february = segment(YearMonth.of(2024, 2), 3, 4);
+		Path blocker = Files.createDirectory(directory.resolve("2024-02.seg"));
+
+		assertThatThrownBy(() -> publish(List.of(january, february), 4)).isInstanceOf(IOException.class);
+
+		assertThat(directory.resolve("2024-02.seg.tmp")).exists();
+		assertThat(archive.archivedThrough()).isEqualTo(4);
+		assertThatThrownBy(archive::completePublish).isInstanceOf(IOException.class);
+
+		Files.delete(blocker);
+		archive.completePublish();
+		assertThat(ids(archive.findBefore(CONVERSATION, Integer.MAX_VALUE, 10))).containsExactly(4, 3, 2, 1);
+	}
+
+	@Test
+	void startupCompletesSegmentsCoveredByTheWatermark() throws IOException {
+		MessageArchive.SegmentWriter january = segment(YearMonth.of(2024, 1), 1, 2);
+		Path blocker = Files.createDirectory(directory.resolve("2024-01.seg"));
+		assertThatThrownBy(() -> publish(List.of(january), 2)).isInstanceOf(IOException.class);
+		archive.close();
+		Files.delete(blocker);
+
+		archive = new MessageArchive(directory.toString());
+		archive.load();
+
+		assertThat(ids(archive.findBefore(CONVERSATION, Integer.MAX_VALUE, 10))).containsExactly(2, 1);
+	}
+
+	@Test
+	void startupRemovesSegmentsAboveTheWatermark() throws IOException {
+		publish(List.of(segment(YearMonth.of(2024, 1), 1, 2)), 2);
+		// Finished but the run stopped before publishing
+		segment(YearMonth.of(2024, 2), 3, 4);
+		archive.close();
+
+		archive = new MessageArchive(directory.toString());
+		archive.load();
+
+		assertThat(directory.resolve("2024-02.seg.tmp")).doesNotExist();
+		assertThat(ids(archive.findBefore(CONVERSATION, Integer.MAX_VALUE, 10))).containsExactly(2, 1);
+	}
+
+	private MessageArchive.SegmentWriter segment(YearMonth month, int firstId, int lastId) throws IOException {
+		MessageArchive.SegmentWriter segment = archive.newSegment(month);
+		for (int id = firstId; id <= lastId; id++) {
+			segment.add(CONVERSATION, id, 1, 2, month.atDay(1).atStartOfDay().plusMinutes(id), "Message " + id);
+		}
+		segment.finish();
+		return segment;
+	}
+
+	// As MessageArchiver does: writers are always closed, published or not
+	private void publish(List<MessageArchive.SegmentWriter> segments, int throughId) throws IOException {
+		try {
+			archive.publish(segments, throughId);
+		} finally {
+			for (MessageArchive.SegmentWriter segment : segments) {
+				segment.close();
+			}
+		}
+	}
+
+	private static List<Integer> ids(List<StoredMessage> messages) {
+		return messages.stream().map(StoredMessage::id).toList();
+	}
+}
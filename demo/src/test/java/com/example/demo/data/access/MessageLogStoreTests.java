@@ -0,0 +1,132 @@
+package com.example.demo.data.access;
+
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageLogStoreTests {
+
+	private static final long ONE_AND_TWO = Message.conversationId(1, 2);
+	private static final long ONE_AND_THREE = Message.conversationId(1, 3);
+
+	@TempDir
+	Path directory;
+
+	private final Map<Integer, User> users = List.of(user(1), user(2), user(3)).stream()
+			.collect(Collectors.toMap(User::getId, Function.identity()));
+	private MessageRepository messageRepository;
+	private UserRepository userRepository;
+	private MessageLogStore store;
+
+	@BeforeEach
+	void open() throws IOException {
+		messageRepository = mock(MessageRepository.class);
+		userRepository = mock(UserRepository.class);
+		when(userRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			Iterable<Integer> ids = invocation.getArgument(0);
+			return StreamSupport.stream(ids.spliterator(), false).map(users::get).toList();
+		});
+		store = start();
+	}
+
+	@AfterEach
+	void close() {
+		store.closeAll();
+	}
+
+	@Test
+	void batchesAreSplitByConversation() {
+		List<Message> saved = store.append(List.of(message(1, 2, "a"), message(1, 3, "b"), message(2, 1, "c")));
+
+		// Each conversation's messages are appended together, in their order within the batch
+		assertThat(saved).extracting(Message::getId).containsExactly(1, 3, 2);
+		assertThat(store.findLatest(ONE_AND_TWO, 10)).extracting(Message::getContent).containsExactly("c", "a");
+		assertThat(store.findLatest(ONE_AND_THREE, 10)).extracting(Message::getContent).containsExactly("b");
+		Message latest = store.findLatest(ONE_AND_TWO, 1).get(0);
+		assertThat(latest.getSender()).isSameAs(users.get(2));
+		assertThat(latest.getReceiver()).isSameAs(users.get(1));
+	}
+
+	@Test
+	void conversationWithoutALogIsEmpty() {
+		assertThat(store.findLatest(ONE_AND_TWO, 10)).isEmpty();
+		assertThat(store.countUnread(1, ONE_AND_TWO)).isZero();
+		assertThat(directory.resolve("conversations").toFile().list()).isEmpty();
+	}
+
+	@Test
+	void readMarksAreKeptPerReceiver() {
+		store.append(List.of(message(1, 2, "a"), message(1, 2, "b"), message(2, 1, "c")));
+
+		assertThat(store.markRead(2, ONE_AND_TWO)).isEqualTo(2);
+
+		assertThat(store.countUnread(2, ONE_AND_TWO)).isZero();
+		assertThat(store.countUnread(1, ONE_AND_TWO)).isEqualTo(1);
+		assertThat(store.findAfter(ONE_AND_TWO, 0, 10)).extracting(Message::isRead).containsExactly(true, true, false);
+	}
+
+	// Ids are reserved in blocks on disk, so a restart never hands out an id a second time
+	@Test
+	void idsKeepGrowingAcrossRestarts() throws IOException {
+		store.append(List.of(message(1, 2, "before")));
+		store.closeAll();
+
+		store = start();
+		Message after = store.append(List.of(message(1, 2, "after"))).get(0);
+
+		assertThat(after.getId()).isGreaterThan(1);
+		assertThat(store.findBefore(ONE_AND_TWO, Integer.MAX_VALUE, 10))
+				.extracting(Message::getContent).containsExactly("after", "before");
+	}
+
+	@Test
+	void idsStartAboveTheMessageTable() throws IOException {
+		store.closeAll();
+		when(messageRepository.findMaxId()).thenReturn(500);
+
+		store = start();
+
+		assertThat(store.append(List.of(message(1, 2, "first"))).get(0).getId()).isEqualTo(501);
+	}
+
+	private MessageLogStore start() throws IOException {
+		MessageLogStore started = new MessageLogStore(directory.toString(), 4096, 4, "interval", 16,
+				messageRepository, userRepository);
+		started.seedIds();
+		return started;
+	}
+
+	private Message message(int senderId, int receiverId, String content) {
+		Message message = new Message();
+		message.setSender(users.get(senderId));
+		message.setReceiver(users.get(receiverId));
+		message.setSentAt(LocalDateTime.of(2024, 3, 1, 12, 0));
+		message.setContent(content);
+		return message;
+	}
+
+	private static User user(int id) {
+		User user = new User();
+		ReflectionTestUtils.setField(user, "id", id);
+		user.setUsername("user" + id);
+		return user;
+	}
+}
@@ -135,9 +135,9 @@ const AddRecommendationPage = () => {
           <CardContent>
             <Grid container spacing={2}>
               <Grid item xs={12} sm={3}>
-                {movie.poster && (
+                {movie.posterUrl && (
                   <img
-                    src={movie.poster}
+                    src={`http://localhost:8080${movie.posterUrl}&size=medium`}
                     alt={movie.title}
                     style={{
                       width: '100%',
@@ -22,6 +22,9 @@ import ArrowBackIcon from '@mui/icons-material/ArrowBack';
 import SendIcon from '@mui/icons-material/Send';
 import { useNavigate } from 'react-router-dom';
 import axios from 'axios';
+import { connectStomp } from './stompClient';
+
+const MESSAGE_PAGE_SIZE = 50;
 
 const Chat = () => {
   const theme = useTheme();
@@ -37,12 +40,15 @@ const Chat = () => {
   const messagesEndRef = useRef(null);
   const messageListRef = useRef(null);
 
-  // Auto-scroll to bottom when new messages arrive
+  const [hasEarlier, setHasEarlier] = useState(false);
+  const lastMessageId = messages.length > 0 ? messages[messages.length - 1].id : null;
+
+  // Auto-scroll to bottom when new messages arrive (not when older ones are prepended)
   useEffect(() => {
     if (messagesEndRef.current) {
       messagesEndRef.current.scrollIntoView({ behavior: 'smooth' });
     }
-  }, [messages]);
+  }, [lastMessageId]);
 
   // Load current user and followed users on mount
   useEffect(() => {
@@ -54,27 +60,59 @@ const Chat = () => {
     const parsedUser = JSON.parse(userData);
     setCurrentUser(parsedUser);
     fetchFollowedUsers(parsedUser.id);
+    fetchUnreadCounts(parsedUser.id);
   }, [navigate]);
 
-  // Set up periodic message refresh
+  const [unreadByPeer, setUnreadByPeer] = useState({});
+
+  const selectedUserRef = useRef(null);
+  const messagesRef = useRef([]);
+  useEffect(() => {
+    selectedUserRef.current = selectedUser;
+  }, [selectedUser]);
+  useEffect(() => {
+    messagesRef.current = messages;
+  }, [messages]);
+
+  // Load the conversation once, new messages are pushed over the socket
   useEffect(() => {
-    let intervalId;
     if (currentUser?.id && selectedUser?.id) {
-      // Initial fetch
       fetchMessages(currentUser.id, selectedUser.id);
-      
-      // Set up interval for periodic updates
-      intervalId = setInterval(() => {
-        fetchMessages(currentUser.id, selectedUser.id);
-      }, 5000); // Refresh every 5 seconds
     }
+  }, [currentUser?.id, selectedUser?.id]);
 
-    return () => {
-      if (intervalId) {
-        clearInterval(intervalId);
+  useEffect(() => {
+    if (!currentUser?.id) return undefined;
+    return connectStomp(`ws://localhost:8080/ws?userId=${currentUser.id}`, {
+      '/user/queue/messages': (message) => {
+        const partnerId = message.sender.id === currentUser.id ? message.receiver.id : message.sender.id;
+        if (partnerId === selectedUserRef.current?.id) {
+          appendMessages([message]);
+          if (message.sender.id !== currentUser.id) {
+            markRead(currentUser.id, partnerId);
+          }
+        } else if (message.sender.id !== currentUser.id) {
+          setUnreadByPeer(prev => ({ ...prev, [partnerId]: (prev[partnerId] || 0) + 1 }));
+        }
       }
-    };
-  }, [currentUser?.id, selectedUser?.id]);
+    }, () => {
+      // Pick up whatever was sent while the socket was down
+      const current = messagesRef.current;
+      const partner = selectedUserRef.current;
+      if (partner?.id && current.length > 0) {
+        fetchNewerMessages(currentUser.id, partner.id, current[current.length - 1].id);
+      }
+    });
+  }, [currentUser?.id]);
+
+  // The sender sees its own message both from the POST response and the push
+  const appendMessages = (incoming) => {
+    setMessages(prev => {
+      const known = new Set(prev.map(m => m.id));
+      const fresh = incoming.filter(m => !known.has(m.id));
+      return fresh.length === 0 ? prev : [...prev, ...fresh].sort((a, b) => a.id - b.id);
+    });
+  };
 
   const fetchFollowedUsers = async (userId) => {
     try {
@@ -99,20 +137,71 @@ const Chat = () => {
   const fetchMessages = async (userId1, userId2) => {
     try {
       const response = await axios.get(`http://localhost:8080/api/v1/messages/between`, {
-        params: { userId1, userId2 }
+        params: { userId1, userId2, limit: MESSAGE_PAGE_SIZE }
       });
       setMessages(response.data);
+      setHasEarlier(response.data.length === MESSAGE_PAGE_SIZE);
     } catch (error) {
       console.error('Error fetching messages:', error);
       setError('Failed to load messages');
     }
   };
 
-  const handleUserSelect = async (user) => {
+  const fetchNewerMessages = async (userId1, userId2, afterId) => {
+    try {
+      const response = await axios.get(`http://localhost:8080/api/v1/messages/between`, {
+        params: { userId1, userId2, afterId, limit: MESSAGE_PAGE_SIZE }
+      });
+      appendMessages(response.data);
+    } catch (error) {
+      console.error('Error fetching new messages:', error);
+    }
+  };
+
+  const fetchEarlierMessages = async () => {
+    if (messages.length === 0) return;
+    try {
+      const response = await axios.get(`http://localhost:8080/api/v1/messages/between`, {
+        params: { userId1: currentUser.id, userId2: selectedUser.id, beforeId: messages[0].id, limit: MESSAGE_PAGE_SIZE }
+      });
+      setMessages(prev => [...response.data, ...prev]);
+      setHasEarlier(response.data.length === MESSAGE_PAGE_SIZE);
+    } catch (error) {
+      console.error('Error fetching earlier messages:', error);
+      setError('Failed to load earlier messages');
+    }
+  };
+
+  const fetchUnreadCounts = async (userId) => {
+    try {
+      const response = await axios.get(`http://localhost:8080/api/v1/messages/inbox/${userId}`, {
+        params: { size: 100 }
+      });
+      const counts = {};
+      response.data.content.forEach(conversation => {
+        counts[conversation.peerId] = conversation.unreadCount;
+      });
+      setUnreadByPeer(counts);
+    } catch (error) {
+      console.error('Error fetching inbox:', error);
+    }
+  };
+
+  const markRead = async (userId, peerId) => {
+    setUnreadByPeer(prev => ({ ...prev, [peerId]: 0 }));
+    try {
+      await axios.post('http://localhost:8080/api/v1/messages/read', { userId, peerId });
+    } catch (error) {
+      console.error('Error marking messages as read:', error);
+    }
+  };
+
+  const handleUserSelect = (user) => {
     setSelectedUser(user);
     setMessages([]);
-    if (currentUser?.id && user?.id) {
-      fetchMessages(currentUser.id, user.id);
+    setHasEarlier(false);
+    if (currentUser?.id && unreadByPeer[user.id]) {
+      markRead(currentUser.id, user.id);
     }
   };
 
@@ -128,10 +217,11 @@ const Chat = () => {
         content: newMessage.trim()
       });
 
-      if (response.data) {
-        setMessages(prev => [...prev, response.data]);
-        setNewMessage('');
+      // A 202 without an id means the message was queued; it arrives over the socket once written
+      if (response.data?.id) {
+        appendMessages([response.data]);
       }
+      setNewMessage('');
     } catch (error) {
       console.error('Error sending message:', error);
       setError('Failed to send message');
@@ -216,9 +306,11 @@ const Chat = () => {
                 }}
               >
                 <ListItemAvatar>
-                  <Avatar sx={{ bgcolor: theme.palette.primary.main }}>
-                    {user.username?.[0]?.toUpperCase() || '?'}
-                  </Avatar>
+                  <Badge color="secondary" badgeContent={unreadByPeer[user.id] || 0}>
+                    <Avatar sx={{ bgcolor: theme.palette.primary.main }}>
+                      {user.username?.[0]?.toUpperCase() || '?'}
+                    </Avatar>
+                  </Badge>
                 </ListItemAvatar>
                 <ListItemText
                   primary={user.username}
@@ -280,6 +372,13 @@ const Chat = () => {
                   bgcolor: theme.palette.grey[50]
                 }}
               >
+                {hasEarlier && (
+                  <Box sx={{ textAlign: 'center', mb: 2 }}>
+                    <Button size="small" onClick={fetchEarlierMessages}>
+                      Load earlier messages
+                    </Button>
+                  </Box>
+                )}
                 {messages.length === 0 ? (
                   <Box sx={{ 
                     display: 'flex', 
@@ -20,6 +20,8 @@ import axios from 'axios';
 
 const CommentDialog = ({ open, onClose, recommendationId }) => {
   const [comments, setComments] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
   const [newComment, setNewComment] = useState('');
@@ -33,21 +35,40 @@ const CommentDialog = ({ open, onClose, recommendationId }) => {
       setError('');
       
       const response = await axios.get(
-        `http://localhost:8080/api/v1/comments/recommendation/${recommendationId}`
+        `http://localhost:8080/api/v1/comments/recommendation/${recommendationId}/thread`
       );
       
       // Ensure we have valid data
-      const commentsArray = Array.isArray(response.data) ? response.data : [];
+      const commentsArray = Array.isArray(response.data.items) ? response.data.items : [];
       setComments(commentsArray);
+      setNextCursor(response.data.nextCursor);
     } catch (err) {
       console.error('Error fetching comments:', err);
       setError('Unable to load comments. Please try again.');
       setComments([]);
+      setNextCursor(null);
     } finally {
       setLoading(false);
     }
   }, [recommendationId]);
 
+  const fetchMoreComments = async () => {
+    if (!nextCursor) return;
+    try {
+      setLoadingMore(true);
+      const response = await axios.get(
+        `http://localhost:8080/api/v1/comments/recommendation/${recommendationId}/thread`,
+        { params: { cursor: nextCursor } }
+      );
+      setComments(prev => [...prev, ...response.data.items]);
+      setNextCursor(response.data.nextCursor);
+    } catch (err) {
+      console.error('Error fetching more comments:', err);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     if (open && recommendationId) {
       fetchComments();
@@ -218,6 +239,17 @@ const CommentDialog = ({ open, onClose, recommendationId }) => {
                 </Grid>
               ))
             )}
+            {nextCursor && (
+              <Grid item xs={12} sx={{ display: 'flex', justifyContent: 'center' }}>
+                <Button
+                  variant="outlined"
+                  onClick={fetchMoreComments}
+                  disabled={loadingMore}
+                >
+                  {loadingMore ? <CircularProgress size={24} /> : 'Load More'}
+                </Button>
+              </Grid>
+            )}
           </Grid>
         )}
       </DialogContent>
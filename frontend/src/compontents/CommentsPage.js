@@ -22,6 +22,8 @@ const CommentsPage = () => {
   const navigate = useNavigate();
   const [recommendation, setRecommendation] = useState(null);
   const [comments, setComments] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [newComment, setNewComment] = useState('');
   const [loading, setLoading] = useState(true);
   const [submitting, setSubmitting] = useState(false);
@@ -52,13 +54,32 @@ const CommentsPage = () => {
 
   const fetchComments = async () => {
     try {
-      const response = await axios.get(`http://localhost:8080/api/v1/comments/recommendation/${recommendationId}`);
+      const response = await axios.get(`http://localhost:8080/api/v1/comments/recommendation/${recommendationId}/thread`);
       console.log('Comments:', response.data);
-      setComments(Array.isArray(response.data) ? response.data : []);
+      setComments(Array.isArray(response.data.items) ? response.data.items : []);
+      setNextCursor(response.data.nextCursor);
     } catch (err) {
       console.error('Error fetching comments:', err);
       setError('Failed to load comments');
       setComments([]);
+      setNextCursor(null);
+    }
+  };
+
+  const fetchMoreComments = async () => {
+    if (!nextCursor) return;
+    try {
+      setLoadingMore(true);
+      const response = await axios.get(
+        `http://localhost:8080/api/v1/comments/recommendation/${recommendationId}/thread`,
+        { params: { cursor: nextCursor } }
+      );
+      setComments(prev => [...prev, ...response.data.items]);
+      setNextCursor(response.data.nextCursor);
+    } catch (err) {
+      console.error('Error fetching more comments:', err);
+    } finally {
+      setLoadingMore(false);
     }
   };
 
@@ -79,7 +100,7 @@ const CommentsPage = () => {
       console.log('New comment response:', response.data);
       
       setNewComment('');
-      await fetchComments(); // Refresh comments after posting
+      await Promise.all([fetchComments(), fetchRecommendation()]); // Refresh comments and count after posting
     } catch (err) {
       console.error('Error posting comment:', err);
       setError('Failed to post comment. Please try again.');
@@ -177,7 +198,7 @@ const CommentsPage = () => {
       </Box>
 
       <Typography variant="h5" gutterBottom>
-        Comments ({comments.length})
+        Comments ({recommendation?.commentCount ?? comments.length})
       </Typography>
 
       {comments.length === 0 ? (
@@ -225,6 +246,17 @@ const CommentsPage = () => {
               </CardContent>
             </Card>
           ))}
+          {nextCursor && (
+            <Box sx={{ display: 'flex', justifyContent: 'center' }}>
+              <Button
+                variant="outlined"
+                onClick={fetchMoreComments}
+                disabled={loadingMore}
+              >
+                {loadingMore ? <CircularProgress size={24} /> : 'Load More'}
+              </Button>
+            </Box>
+          )}
         </Box>
       )}
     </Container>
@@ -48,8 +48,9 @@ const EditMovieDialog = ({ open, onClose, onSave, movie, loading, error }) => {
         director: movie.director || '',
         trailer: movie.trailer || ''
       });
-      setPoster(movie.poster || null);
-      setPosterPreview(movie.poster || null);
+      // Leave poster unset so the current one is kept unless a new image is chosen
+      setPoster(null);
+      setPosterPreview(movie.posterUrl ? `http://localhost:8080${movie.posterUrl}` : null);
     }
   }, [movie]);
 
@@ -79,7 +80,7 @@ const EditMovieDialog = ({ open, onClose, onSave, movie, loading, error }) => {
   };
 
   const handleRemoveImage = () => {
-    setPoster(null);
+    setPoster('');
     setPosterPreview(null);
   };
 
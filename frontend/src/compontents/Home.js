@@ -69,6 +69,8 @@ const Home = () => {
   const theme = useTheme();
   const [user, setUser] = useState(null);
   const [recommendations, setRecommendations] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
   const [isMovieFormOpen, setIsMovieFormOpen] = useState(false);
@@ -89,9 +91,10 @@ const Home = () => {
     try {
       setLoading(true);
       const response = await axios.get(
-        `http://localhost:8080/api/v1/recommendations/followed/${userId}`
+        `http://localhost:8080/api/v1/recommendations/followed/${userId}/feed`
       );
-      setRecommendations(response.data);
+      setRecommendations(response.data.items);
+      setNextCursor(response.data.nextCursor);
     } catch (error) {
       console.error('Error fetching recommendations:', error);
       setError('Failed to load recommendations');
@@ -100,6 +103,23 @@ const Home = () => {
     }
   };
 
+  const fetchMoreRecommendations = async () => {
+    if (!user || !nextCursor) return;
+    try {
+      setLoadingMore(true);
+      const response = await axios.get(
+        `http://localhost:8080/api/v1/recommendations/followed/${user.id}/feed`,
+        { params: { cursor: nextCursor } }
+      );
+      setRecommendations(prev => [...prev, ...response.data.items]);
+      setNextCursor(response.data.nextCursor);
+    } catch (error) {
+      console.error('Error fetching more recommendations:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const handleLogout = () => {
     localStorage.removeItem('user');
     navigate('/');
@@ -278,9 +298,9 @@ const Home = () => {
                           mb: 2 
                         }}
                       >
-                        {recommendation.movie?.poster ? (
+                        {recommendation.movie?.posterUrl ? (
                           <img
-                            src={recommendation.movie.poster}
+                            src={`http://localhost:8080${recommendation.movie.posterUrl}&size=small`}
                             alt={recommendation.movie.title}
                             style={{
                               width: 60,
@@ -360,6 +380,18 @@ const Home = () => {
             )}
           </Grid>
         )}
+
+        {!loading && nextCursor && (
+          <Box sx={{ display: 'flex', justifyContent: 'center', mt: 4 }}>
+            <Button
+              variant="outlined"
+              onClick={fetchMoreRecommendations}
+              disabled={loadingMore}
+            >
+              {loadingMore ? <CircularProgress size={24} /> : 'Load More'}
+            </Button>
+          </Box>
+        )}
       </MainContent>
 
       <MovieFormDialog
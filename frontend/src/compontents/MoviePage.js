@@ -128,7 +128,7 @@ const MoviePage = () => {
   };
 
   const renderPoster = () => {
-    if (!movie?.poster) {
+    if (!movie?.posterUrl) {
       return (
         <Box
           sx={{
@@ -149,7 +149,7 @@ const MoviePage = () => {
     return (
       <Box sx={{ height: '500px', position: 'relative' }}>
         <img
-          src={movie.poster}
+          src={`http://localhost:8080${movie.posterUrl}`}
           alt={movie.title || 'Movie poster'}
           style={{
             width: '100%',
@@ -11,7 +11,8 @@ import {
   IconButton,
   TextField,
   CircularProgress,
-  Alert
+  Alert,
+  Pagination
 } from '@mui/material';
 import { styled } from '@mui/material/styles';
 import { useNavigate } from 'react-router-dom';
@@ -36,12 +37,16 @@ const SearchBox = styled(Box)(({ theme }) => ({
   gap: theme.spacing(2),
 }));
 
+const PAGE_SIZE = 24;
+
 const Movies = () => {
   const navigate = useNavigate();
   const [movies, setMovies] = useState([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
   const [searchTerm, setSearchTerm] = useState('');
+  const [page, setPage] = useState(1);
+  const [totalPages, setTotalPages] = useState(0);
 
   useEffect(() => {
     const userData = localStorage.getItem('user');
@@ -49,28 +54,34 @@ const Movies = () => {
       navigate('/');
       return;
     }
-    fetchMovies();
-  }, [navigate]);
+    // Debounce typing so the server is queried once the user pauses
+    const timeout = setTimeout(() => fetchMovies(searchTerm, page), 300);
+    return () => clearTimeout(timeout);
+  }, [navigate, searchTerm, page]);
 
-  const fetchMovies = async () => {
+  const fetchMovies = async (query, pageNumber) => {
     try {
       setLoading(true);
       setError('');
 
       const response = await axios.get('http://localhost:8080/api/v1/movies', {
+        params: {
+          q: query || undefined,
+          page: pageNumber - 1,
+          size: PAGE_SIZE
+        },
         headers: {
           'Accept': 'application/json',
           'Content-Type': 'application/json'
         }
       });
 
-      console.log('Movies response:', response.data);
-      
-      if (!Array.isArray(response.data)) {
-        throw new Error('Invalid response format: expected an array');
+      if (!Array.isArray(response.data?.content)) {
+        throw new Error('Invalid response format: expected a page of movies');
       }
       
-      setMovies(response.data);
+      setMovies(response.data.content);
+      setTotalPages(response.data.totalPages);
     } catch (err) {
       console.error('Error fetching movies:', err);
       setError(err.response?.data?.message || err.message || 'Failed to load movies');
@@ -84,11 +95,10 @@ const Movies = () => {
     navigate(`/movies/${movieId}`);
   };
 
-  const filteredMovies = movies.filter(movie =>
-    movie.title?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-    movie.genres?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-    movie.director?.toLowerCase().includes(searchTerm.toLowerCase())
-  );
+  const handleSearchChange = (e) => {
+    setSearchTerm(e.target.value);
+    setPage(1);
+  };
 
   return (
     <Container maxWidth="lg" sx={{ py: 4 }}>
@@ -107,7 +117,7 @@ const Movies = () => {
           variant="outlined"
           placeholder="Search movies by title, genre, or director..."
           value={searchTerm}
-          onChange={(e) => setSearchTerm(e.target.value)}
+          onChange={handleSearchChange}
           InputProps={{
             startAdornment: <SearchIcon color="action" sx={{ mr: 1 }} />,
           }}
@@ -122,14 +132,14 @@ const Movies = () => {
         <Alert severity="error" sx={{ my: 2 }}>{error}</Alert>
       ) : (
         <Grid container spacing={3}>
-          {filteredMovies.map((movie) => (
+          {movies.map((movie) => (
             <Grid item xs={12} sm={6} md={4} key={movie.id || Math.random()}>
               <StyledCard>
-                {movie.poster && (
+                {movie.posterUrl && (
                   <CardMedia
                     component="img"
                     height="300"
-                    image={movie.poster}
+                    image={`http://localhost:8080${movie.posterUrl}&size=medium`}
                     alt={movie.title || 'Movie poster'}
                     sx={{ objectFit: 'cover' }}
                     onError={(e) => {
@@ -145,20 +155,11 @@ const Movies = () => {
                   <Typography variant="body2" color="text.secondary" gutterBottom>
                     {movie.releaseYear ? new Date(movie.releaseYear).getFullYear() : 'N/A'} • {movie.genres || 'No genres listed'}
                   </Typography>
-                  <Typography 
-                    variant="body2" 
-                    color="text.secondary"
-                    sx={{ 
-                      overflow: 'hidden',
-                      textOverflow: 'ellipsis',
-                      display: '-webkit-box',
-                      WebkitLineClamp: 3,
-                      WebkitBoxOrient: 'vertical',
-                      mb: 2
-                    }}
-                  >
-                    {movie.description || 'No description available'}
-                  </Typography>
+                  {movie.director && (
+                    <Typography variant="body2" color="text.secondary" sx={{ mb: 2 }}>
+                      Directed by {movie.director}
+                    </Typography>
+                  )}
                   <Button
                     variant="contained"
                     color="primary"
@@ -171,13 +172,24 @@ const Movies = () => {
               </StyledCard>
             </Grid>
           ))}
-          {filteredMovies.length === 0 && !loading && !error && (
+          {movies.length === 0 && !loading && !error && (
             <Grid item xs={12}>
               <Alert severity="info">No movies found</Alert>
             </Grid>
           )}
         </Grid>
       )}
+
+      {totalPages > 1 && (
+        <Box sx={{ display: 'flex', justifyContent: 'center', mt: 4 }}>
+          <Pagination
+            count={totalPages}
+            page={page}
+            onChange={(e, value) => setPage(value)}
+            color="primary"
+          />
+        </Box>
+      )}
     </Container>
   );
 };
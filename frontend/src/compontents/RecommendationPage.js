@@ -139,9 +139,9 @@ const RecommendationPage = () => {
                 <Paper variant="outlined" sx={{ p: 2 }}>
                   <Grid container spacing={2}>
                     <Grid item xs={12} sm={3}>
-                      {recommendation.movie.poster ? (
+                      {recommendation.movie.posterUrl ? (
                         <img
-                          src={recommendation.movie.poster}
+                          src={`http://localhost:8080${recommendation.movie.posterUrl}&size=medium`}
                           alt={recommendation.movie.title}
                           style={{
                             width: '100%',
@@ -12,7 +12,9 @@ import {
   IconButton,
   Snackbar,
   Alert,
-  CircularProgress
+  CircularProgress,
+  Pagination,
+  Autocomplete
 } from '@mui/material';
 import { styled } from '@mui/material/styles';
 import PersonAddIcon from '@mui/icons-material/PersonAdd';
@@ -52,6 +54,8 @@ const ButtonsContainer = styled(Box)(({ theme }) => ({
   marginTop: theme.spacing(2),
 }));
 
+const PAGE_SIZE = 24;
+
 const Users = () => {
   const navigate = useNavigate();
   const [users, setUsers] = useState([]);
@@ -59,6 +63,9 @@ const Users = () => {
   const [error, setError] = useState('');
   const [currentUser, setCurrentUser] = useState(null);
   const [searchTerm, setSearchTerm] = useState('');
+  const [page, setPage] = useState(1);
+  const [totalPages, setTotalPages] = useState(0);
+  const [suggestions, setSuggestions] = useState([]);
   const [snackbar, setSnackbar] = useState({
     open: false,
     message: '',
@@ -71,15 +78,46 @@ const Users = () => {
       navigate('/');
       return;
     }
-    setCurrentUser(JSON.parse(userData));
-    fetchUsers();
-  }, [navigate]);
+    const parsedUser = JSON.parse(userData);
+    setCurrentUser(parsedUser);
+    // Debounce typing so the server is queried once the user pauses
+    const timeout = setTimeout(() => fetchUsers(parsedUser.id, searchTerm, page), 300);
+    return () => clearTimeout(timeout);
+  }, [navigate, searchTerm, page]);
+
+  useEffect(() => {
+    if (!searchTerm.trim()) {
+      setSuggestions([]);
+      return;
+    }
+    // Type-ahead comes from the in-memory suggestion index, not the users table
+    const timeout = setTimeout(async () => {
+      try {
+        const response = await axios.get('http://localhost:8080/api/v1/suggest', {
+          params: { prefix: searchTerm }
+        });
+        setSuggestions(response.data.filter(suggestion => suggestion.type === 'user'));
+      } catch (error) {
+        console.error('Error fetching suggestions:', error);
+        setSuggestions([]);
+      }
+    }, 150);
+    return () => clearTimeout(timeout);
+  }, [searchTerm]);
 
-  const fetchUsers = async () => {
+  const fetchUsers = async (viewerId, query, pageNumber) => {
     try {
       setLoading(true);
-      const response = await axios.get('http://localhost:8080/api/v1/user/all');
-      setUsers(response.data);
+      const response = await axios.get('http://localhost:8080/api/v1/user', {
+        params: {
+          viewerId,
+          q: query || undefined,
+          page: pageNumber - 1,
+          size: PAGE_SIZE
+        }
+      });
+      setUsers(response.data.content);
+      setTotalPages(response.data.totalPages);
     } catch (error) {
       console.error('Error fetching users:', error);
       setError('Failed to load users');
@@ -101,7 +139,8 @@ const Users = () => {
         if (user.id === userToFollow.id) {
           return {
             ...user,
-            followerIds: [...(user.followerIds || []), currentUser.id]
+            followedByViewer: true,
+            followerCount: user.followerCount + 1
           };
         }
         return user;
@@ -136,7 +175,8 @@ const Users = () => {
         if (user.id === userToUnfollow.id) {
           return {
             ...user,
-            followerIds: (user.followerIds || []).filter(id => id !== currentUser.id)
+            followedByViewer: false,
+            followerCount: Math.max(user.followerCount - 1, 0)
           };
         }
         return user;
@@ -162,15 +202,21 @@ const Users = () => {
     navigate(`/users/${userId}`);
   };
 
-  const filteredUsers = users.filter(user => 
-    user.id !== currentUser?.id && // Don't show current user
-    (user.username.toLowerCase().includes(searchTerm.toLowerCase()) ||
-     user.forename.toLowerCase().includes(searchTerm.toLowerCase()) ||
-     user.surename.toLowerCase().includes(searchTerm.toLowerCase()))
-  );
+  const filteredUsers = users.filter(user => user.id !== currentUser?.id); // Don't show current user
 
   const isUserFollowed = (user) => {
-    return user.followerIds?.includes(currentUser?.id);
+    return user.followedByViewer === true;
+  };
+
+  const handleSearchChange = (e, value) => {
+    setSearchTerm(value);
+    setPage(1);
+  };
+
+  const handleSuggestionSelect = (e, suggestion) => {
+    if (suggestion && typeof suggestion === 'object') {
+      handleViewProfile(suggestion.id);
+    }
   };
 
   return (
@@ -187,15 +233,27 @@ const Users = () => {
 
       {/* Search Box */}
       <SearchBox>
-        <TextField
+        <Autocomplete
+          freeSolo
           fullWidth
-          variant="outlined"
-          placeholder="Search users..."
-          value={searchTerm}
-          onChange={(e) => setSearchTerm(e.target.value)}
-          InputProps={{
-            startAdornment: <SearchIcon color="action" sx={{ mr: 1 }} />,
-          }}
+          options={suggestions}
+          filterOptions={(options) => options}
+          getOptionLabel={(option) => (typeof option === 'string' ? option : option.label)}
+          isOptionEqualToValue={(option, value) => option.id === value.id}
+          inputValue={searchTerm}
+          onInputChange={handleSearchChange}
+          onChange={handleSuggestionSelect}
+          renderInput={(params) => (
+            <TextField
+              {...params}
+              variant="outlined"
+              placeholder="Search users..."
+              InputProps={{
+                ...params.InputProps,
+                startAdornment: <SearchIcon color="action" sx={{ mr: 1 }} />,
+              }}
+            />
+          )}
         />
       </SearchBox>
 
@@ -229,21 +287,9 @@ const Users = () => {
                       <Typography variant="body2" color="text.secondary" gutterBottom>
                         {user.forename} {user.surename}
                       </Typography>
-                      {user.description && (
-                        <Typography 
-                          variant="body2" 
-                          color="text.secondary"
-                          sx={{ 
-                            overflow: 'hidden',
-                            textOverflow: 'ellipsis',
-                            display: '-webkit-box',
-                            WebkitLineClamp: 2,
-                            WebkitBoxOrient: 'vertical',
-                          }}
-                        >
-                          {user.description}
-                        </Typography>
-                      )}
+                      <Typography variant="body2" color="text.secondary">
+                        {user.followerCount} followers • {user.followingCount} following • {user.recommendationCount} recommendations
+                      </Typography>
                     </UserInfo>
                   </Box>
                   
@@ -286,6 +332,17 @@ const Users = () => {
         </Grid>
       )}
 
+      {totalPages > 1 && (
+        <Box sx={{ display: 'flex', justifyContent: 'center', mt: 4 }}>
+          <Pagination
+            count={totalPages}
+            page={page}
+            onChange={(e, value) => setPage(value)}
+            color="primary"
+          />
+        </Box>
+      )}
+
       {/* Snackbar for notifications */}
       <Snackbar
         open={snackbar.open}
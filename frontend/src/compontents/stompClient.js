@@ -0,0 +1,76 @@
+// Minimal STOMP 1.2 client over a native WebSocket, enough for subscribing to
+// user queues pushed by the backend broker. Reconnects with a fixed delay.
+const NULL = '\u0000';
+
+const frame = (command, headers = {}, body = '') =>
+  command + '\n' +
+  Object.entries(headers).map(([key, value]) => `${key}:${value}`).join('\n') +
+  '\n\n' + body + NULL;
+
+const parseFrames = (data) =>
+  data.split(NULL)
+    .map(raw => raw.replace(/^\n+/, ''))
+    .filter(raw => raw.length > 0)
+    .map(raw => {
+      const headerEnd = raw.indexOf('\n\n');
+      const head = (headerEnd < 0 ? raw : raw.substring(0, headerEnd)).split('\n');
+      const headers = {};
+      head.slice(1).forEach(line => {
+        const separator = line.indexOf(':');
+        if (separator > 0) {
+          headers[line.substring(0, separator)] = line.substring(separator + 1);
+        }
+      });
+      return { command: head[0], headers, body: headerEnd < 0 ? '' : raw.substring(headerEnd + 2) };
+    });
+
+export const connectStomp = (url, subscriptions, onConnect, reconnectDelay = 3000) => {
+  let socket = null;
+  let closed = false;
+  let reconnectTimer = null;
+  const destinations = Object.keys(subscriptions);
+
+  const open = () => {
+    socket = new WebSocket(url);
+    socket.onopen = () => {
+      socket.send(frame('CONNECT', { 'accept-version': '1.2', 'heart-beat': '0,0', host: window.location.hostname }));
+    };
+    socket.onmessage = (event) => {
+      parseFrames(event.data).forEach(({ command, headers, body }) => {
+        if (command === 'CONNECTED') {
+          destinations.forEach((destination, index) => {
+            socket.send(frame('SUBSCRIBE', { id: `sub-${index}`, destination }));
+          });
+          if (onConnect) {
+            onConnect();
+          }
+        } else if (command === 'MESSAGE') {
+          const destination = destinations[Number((headers.subscription || '').replace('sub-', ''))];
+          if (destination) {
+            subscriptions[destination](JSON.parse(body));
+          }
+        } else if (command === 'ERROR') {
+          console.error('STOMP error:', headers.message || body);
+        }
+      });
+    };
+    socket.onclose = () => {
+      if (!closed) {
+        reconnectTimer = setTimeout(open, reconnectDelay);
+      }
+    };
+  };
+
+  open();
+
+  return () => {
+    closed = true;
+    clearTimeout(reconnectTimer);
+    if (socket && socket.readyState === WebSocket.OPEN) {
+      socket.send(frame('DISCONNECT'));
+    }
+    if (socket) {
+      socket.close();
+    }
+  };
+};